@@ -20,25 +20,44 @@
 import org.gradle.caching.internal.origin.OriginReader;
 import org.gradle.caching.internal.origin.OriginWriter;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-public class GZipBuildCacheEntryPacker implements BuildCacheEntryPacker {
+public class GZipBuildCacheEntryPacker implements BuildCacheEntryPacker, Stoppable {
     private final BuildCacheEntryPacker delegate;
+    private final Executor compressionExecutor;
+    private final int maxPendingBlocks;
 
     public GZipBuildCacheEntryPacker(BuildCacheEntryPacker delegate) {
+        this(delegate, null, 0);
+    }
+
+    /**
+     * Creates a packer that compresses blocks of the packed entry in parallel on the given executor when one is given.
+     * The executor is stopped when this packer is stopped.
+     */
+    public GZipBuildCacheEntryPacker(BuildCacheEntryPacker delegate, @Nullable Executor compressionExecutor, int maxPendingBlocks) {
         this.delegate = delegate;
+        this.compressionExecutor = compressionExecutor;
+        this.maxPendingBlocks = maxPendingBlocks;
     }
 
     @Override
     public PackResult pack(CacheableEntity entity, Map<String, CurrentFileCollectionFingerprint> fingerprints, OutputStream output, OriginWriter writeOrigin) throws IOException {
-        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+        try (OutputStream gzipOutput = compressionExecutor == null
+            ? new GZIPOutputStream(output)
+            : new ParallelGZipOutputStream(output, compressionExecutor, maxPendingBlocks)
+        ) {
             return delegate.pack(entity, fingerprints, gzipOutput, writeOrigin);
         }
     }
@@ -49,4 +68,9 @@ public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginRead
             return delegate.unpack(entity, gzipInput, readOrigin);
         }
     }
+
+    @Override
+    public void stop() {
+        CompositeStoppable.stoppable(compressionExecutor).stop();
+    }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.internal.UncheckedException;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes data in gzip format, compressing blocks of the data in parallel.
+ *
+ * The data is split into blocks which are compressed independently, using the last 32 KiB of the preceding block as the dictionary.
+ * Each block but the last is terminated with a sync flush so that the compressed blocks can be concatenated into a single deflate stream.
+ * The result can be read by any gzip decoder, such as {@link java.util.zip.GZIPInputStream}, and is usually only slightly larger than the
+ * output of {@link java.util.zip.GZIPOutputStream}.
+ *
+ * Deflaters are reused between blocks, so at most one deflater is allocated per block being compressed concurrently.
+ *
+ * Closing this stream also closes the underlying stream.
+ */
+public class ParallelGZipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b,  // Magic number
+        Deflater.DEFLATED,  // Compression method
+        0,                  // Flags
+        0, 0, 0, 0,         // Modification time
+        0,                  // Extra flags
+        0                   // Operating system
+    };
+
+    private final OutputStream output;
+    private final Executor executor;
+    private final int level;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private final Queue<Deflater> idleDeflaters = new ConcurrentLinkedQueue<>();
+    private final CRC32 crc = new CRC32();
+    private long uncompressedSize;
+    private byte[] block;
+    private int blockLength;
+    private byte[] dictionary;
+    private boolean headerWritten;
+    private boolean closed;
+
+    public ParallelGZipOutputStream(OutputStream output, Executor executor, int maxPendingBlocks) {
+        this(output, executor, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, maxPendingBlocks);
+    }
+
+    public ParallelGZipOutputStream(OutputStream output, Executor executor, int level, int blockSize, int maxPendingBlocks) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size must be at least " + DICTIONARY_SIZE + " bytes");
+        }
+        if (maxPendingBlocks < 1) {
+            throw new IllegalArgumentException("At least one block must be allowed to be pending");
+        }
+        this.output = output;
+        this.executor = executor;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = maxPendingBlocks;
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int count = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        byte[] input = block;
+        int length = blockLength;
+        byte[] blockDictionary = dictionary;
+        crc.update(input, 0, length);
+        uncompressedSize += length;
+        if (!last) {
+            // Only full blocks are submitted before the last one, and a full block is never smaller than the dictionary
+            dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+            block = new byte[blockSize];
+            blockLength = 0;
+        }
+
+        FutureTask<byte[]> compression = new FutureTask<>(() -> compress(input, length, blockDictionary, last));
+        pendingBlocks.addLast(compression);
+        executor.execute(compression);
+
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeNextCompletedBlock();
+        }
+    }
+
+    private byte[] compress(byte[] input, int length, @Nullable byte[] blockDictionary, boolean last) {
+        Deflater deflater = idleDeflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        try {
+            if (blockDictionary != null) {
+                deflater.setDictionary(blockDictionary);
+            }
+            deflater.setInput(input, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+            } else {
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.reset();
+            idleDeflaters.offer(deflater);
+        }
+    }
+
+    private void writeNextCompletedBlock() throws IOException {
+        Future<byte[]> compression = pendingBlocks.removeFirst();
+        byte[] compressed;
+        try {
+            compressed = Uninterruptibles.getUninterruptibly(compression);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw UncheckedException.throwAsUncheckedException(cause);
+        }
+        if (!headerWritten) {
+            output.write(HEADER);
+            headerWritten = true;
+        }
+        output.write(compressed);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBlock(true);
+            while (!pendingBlocks.isEmpty()) {
+                writeNextCompletedBlock();
+            }
+            writeTrailer();
+            output.flush();
+        } finally {
+            for (Future<byte[]> compression : pendingBlocks) {
+                compression.cancel(false);
+            }
+            endIdleDeflaters();
+            output.close();
+        }
+    }
+
+    private void endIdleDeflaters() {
+        Deflater deflater;
+        while ((deflater = idleDeflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        writeInt((int) crc.getValue());
+        writeInt((int) uncompressedSize);
+    }
+
+    private void writeInt(int value) throws IOException {
+        output.write(value & 0xff);
+        output.write((value >> 8) & 0xff);
+        output.write((value >> 16) & 0xff);
+        output.write((value >> 24) & 0xff);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
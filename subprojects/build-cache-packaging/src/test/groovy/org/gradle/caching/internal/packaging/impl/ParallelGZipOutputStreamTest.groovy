@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.zip.Deflater
+import java.util.zip.GZIPInputStream
+
+class ParallelGZipOutputStreamTest extends Specification {
+    private static final int BLOCK_SIZE = 32 * 1024
+
+    @Unroll
+    def "output of #size bytes can be read by GZIPInputStream (#executorName)"() {
+        def data = generateData(size)
+        def compressed = new ByteArrayOutputStream()
+
+        when:
+        def output = new ParallelGZipOutputStream(compressed, executor, Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, 3)
+        output.write(data, 0, data.length)
+        output.close()
+
+        then:
+        decompress(compressed.toByteArray()) == data
+
+        where:
+        [size, executorName] << [[0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 10 * BLOCK_SIZE + 17], ["direct", "fork-join"]].combinations()
+        executor = executorName == "direct" ? { Runnable it -> it.run() } as Executor : ForkJoinPool.commonPool()
+    }
+
+    def "single bytes can be written"() {
+        def data = generateData(2 * BLOCK_SIZE + 5)
+        def compressed = new ByteArrayOutputStream()
+
+        when:
+        def output = new ParallelGZipOutputStream(compressed, ForkJoinPool.commonPool(), Deflater.BEST_SPEED, BLOCK_SIZE, 2)
+        data.each { output.write(it) }
+        output.close()
+
+        then:
+        decompress(compressed.toByteArray()) == data
+    }
+
+    def "compresses repetitive data across blocks"() {
+        def data = ("Some repetitive content " * 10000).bytes
+        def compressed = new ByteArrayOutputStream()
+
+        when:
+        def output = new ParallelGZipOutputStream(compressed, ForkJoinPool.commonPool(), 4)
+        output.write(data)
+        output.close()
+
+        then:
+        decompress(compressed.toByteArray()) == data
+        compressed.size() < data.length / 10
+    }
+
+    def "does not accept blocks smaller than the dictionary"() {
+        when:
+        new ParallelGZipOutputStream(new ByteArrayOutputStream(), ForkJoinPool.commonPool(), Deflater.DEFAULT_COMPRESSION, 1024, 2)
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    private static byte[] generateData(int size) {
+        def random = new Random(1234L)
+        def data = new byte[size]
+        // Mix random and repeated content so that both compressible and incompressible blocks are produced
+        for (int i = 0; i < size; i++) {
+            data[i] = i.intdiv(1000) % 2 == 0 ? (byte) random.nextInt() : (byte) (i % 7)
+        }
+        return data
+    }
+
+    private static byte[] decompress(byte[] compressed) {
+        new GZIPInputStream(new ByteArrayInputStream(compressed)).bytes
+    }
+}
@@ -35,6 +35,7 @@ dependencies {
     implementation(library("commons_io"))
     implementation(library("inject"))
 
+    jmhImplementation(project(":buildCachePackaging"))
     jmhImplementation(library("ant")) {
         version {
             prefer(libraryVersion("ant"))
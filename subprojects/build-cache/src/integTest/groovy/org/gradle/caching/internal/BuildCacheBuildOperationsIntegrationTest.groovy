@@ -79,6 +79,11 @@ class BuildCacheBuildOperationsIntegrationTest extends AbstractIntegrationSpec {
                 void loadLocally(BuildCacheKey key, Action<? super File> reader) {
                     ${isLocal ? loadBody ?: "" : ""}
                 }
+
+                // @Override
+                boolean containsLocally(BuildCacheKey key) {
+                    false
+                }
     
                 // @Override
                 void storeLocally(BuildCacheKey key, File file) {
@@ -16,6 +16,7 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 
 import java.io.Closeable;
@@ -32,6 +33,16 @@ public interface BuildCacheController extends Closeable {
 
     boolean isEmitDebugLogging();
 
+    /**
+     * Whether entries are fetched ahead of time when {@link #prefetch(BuildCacheKey)} is called.
+     */
+    boolean isPrefetchEnabled();
+
+    /**
+     * Indicates that the entry with the given key is likely to be loaded soon, so that it can be fetched ahead of time.
+     */
+    void prefetch(BuildCacheKey key);
+
     <T> Optional<T> load(BuildCacheLoadCommand<T> command);
 
     void store(BuildCacheStoreCommand command);
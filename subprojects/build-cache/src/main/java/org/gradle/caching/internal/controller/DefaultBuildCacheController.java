@@ -26,6 +26,7 @@
 import org.gradle.caching.internal.controller.operations.PackOperationResult;
 import org.gradle.caching.internal.controller.operations.UnpackOperationDetails;
 import org.gradle.caching.internal.controller.operations.UnpackOperationResult;
+import org.gradle.caching.internal.controller.service.AsyncStoringBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
@@ -35,11 +36,13 @@
 import org.gradle.caching.internal.controller.service.NullBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.NullLocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.OpFiringBuildCacheServiceHandle;
+import org.gradle.caching.internal.controller.service.PrefetchingBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.StoreTarget;
 import org.gradle.caching.local.internal.BuildCacheTempFileStore;
 import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -62,6 +65,13 @@ public class DefaultBuildCacheController implements BuildCacheController {
     @VisibleForTesting
     final LocalBuildCacheServiceHandle local;
 
+    private static final int MAX_CONCURRENT_REMOTE_STORES = 4;
+    private static final int MAX_PENDING_REMOTE_STORES = 64;
+    private static final int MAX_CONCURRENT_REMOTE_PREFETCHES = 8;
+    private static final int MAX_PENDING_REMOTE_PREFETCHES = 64;
+
+    @Nullable
+    private final PrefetchingBuildCacheServiceHandle prefetcher;
     private final BuildCacheTempFileStore tmp;
     private final BuildOperationExecutor buildOperationExecutor;
     private final boolean emitDebugLogging;
@@ -73,12 +83,26 @@ public DefaultBuildCacheController(
         BuildOperationExecutor buildOperationExecutor,
         File gradleUserHomeDir,
         boolean logStackTraces,
-        boolean emitDebugLogging
+        boolean emitDebugLogging,
+        ExecutorFactory executorFactory,
+        boolean asyncRemoteStore,
+        boolean remotePrefetch
     ) {
         this.buildOperationExecutor = buildOperationExecutor;
         this.emitDebugLogging = emitDebugLogging;
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush());
-        this.remote = toRemoteHandle(config.getRemote(), config.isRemotePush(), buildOperationExecutor, logStackTraces);
+        BuildCacheServiceHandle remote = toRemoteHandle(config.getRemote(), config.isRemotePush(), buildOperationExecutor, logStackTraces);
+        File remoteTempDir = new File(gradleUserHomeDir, "build-cache-tmp");
+        if (remotePrefetch && config.getRemote() != null) {
+            this.prefetcher = new PrefetchingBuildCacheServiceHandle(remote, executorFactory, remoteTempDir, MAX_CONCURRENT_REMOTE_PREFETCHES, MAX_PENDING_REMOTE_PREFETCHES);
+            remote = prefetcher;
+        } else {
+            this.prefetcher = null;
+        }
+        if (asyncRemoteStore && config.getRemote() != null && config.isRemotePush()) {
+            remote = new AsyncStoringBuildCacheServiceHandle(remote, buildOperationExecutor, executorFactory, remoteTempDir, MAX_CONCURRENT_REMOTE_STORES, MAX_PENDING_REMOTE_STORES);
+        }
+        this.remote = remote;
         this.tmp = toTempFileStore(config.getLocal(), gradleUserHomeDir);
     }
 
@@ -92,6 +116,23 @@ public boolean isEmitDebugLogging() {
         return emitDebugLogging;
     }
 
+    @Override
+    public boolean isPrefetchEnabled() {
+        return prefetcher != null && prefetcher.canLoad();
+    }
+
+    @Override
+    public void prefetch(BuildCacheKey key) {
+        if (!isPrefetchEnabled() || isInLocalCache(key)) {
+            return;
+        }
+        prefetcher.prefetch(key);
+    }
+
+    private boolean isInLocalCache(BuildCacheKey key) {
+        return local.canLoad() && local.contains(key);
+    }
+
     @Override
     public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
         final Unpack<T> unpack = new Unpack<>(command);
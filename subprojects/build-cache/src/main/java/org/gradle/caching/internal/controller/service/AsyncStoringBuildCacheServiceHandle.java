@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.controller.operations.DrainStoresOperationDetails;
+import org.gradle.caching.internal.controller.operations.DrainStoresOperationResult;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.CurrentBuildOperationPreservingRunnable;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores entries in the remote build cache in the background, so that the caller does not have to wait for the upload to complete.
+ *
+ * Each entry to store is copied to a file owned by this handle before the store is queued. At most {@code maxPendingStores} stores can be queued or
+ * running at the same time, after which callers block until a store has completed. All pending stores are completed when the handle is closed.
+ * The build operations of a store are children of the operation that requested the store.
+ *
+ * Copies left behind by a build that did not complete its stores are deleted when the handle is created.
+ */
+public class AsyncStoringBuildCacheServiceHandle implements BuildCacheServiceHandle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncStoringBuildCacheServiceHandle.class);
+
+    private static final String TEMP_FILE_SUFFIX = ".store";
+
+    private final BuildCacheServiceHandle delegate;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final File tempDir;
+    private final ManagedExecutor executor;
+    private final Semaphore pendingStores;
+    private final int maxPendingStores;
+    private final AtomicInteger storeCount = new AtomicInteger();
+
+    public AsyncStoringBuildCacheServiceHandle(BuildCacheServiceHandle delegate, BuildOperationExecutor buildOperationExecutor, ExecutorFactory executorFactory, File tempDir, int maxConcurrentStores, int maxPendingStores) {
+        this.delegate = delegate;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.tempDir = tempDir;
+        this.executor = executorFactory.create("Remote build cache store", maxConcurrentStores);
+        this.pendingStores = new Semaphore(maxPendingStores);
+        this.maxPendingStores = maxPendingStores;
+        GFileUtils.mkdirs(tempDir);
+        StaleTempFiles.deleteStaleFiles(tempDir, TEMP_FILE_SUFFIX);
+    }
+
+    @Nullable
+    @Override
+    public BuildCacheService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public boolean canLoad() {
+        return delegate.canLoad();
+    }
+
+    @Override
+    public void load(BuildCacheKey key, LoadTarget loadTarget) {
+        delegate.load(key, loadTarget);
+    }
+
+    @Override
+    public boolean canStore() {
+        return delegate.canStore();
+    }
+
+    @Override
+    public void store(BuildCacheKey key, StoreTarget storeTarget) {
+        File file = copyToTempFile(key, storeTarget.getFile());
+        pendingStores.acquireUninterruptibly();
+        storeCount.incrementAndGet();
+        try {
+            executor.execute(new CurrentBuildOperationPreservingRunnable(() -> {
+                try {
+                    if (delegate.canStore()) {
+                        delegate.store(key, new StoreTarget(file));
+                    }
+                } finally {
+                    GFileUtils.deleteQuietly(file);
+                    pendingStores.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            GFileUtils.deleteQuietly(file);
+            pendingStores.release();
+            throw e;
+        }
+    }
+
+    private File copyToTempFile(BuildCacheKey key, File source) {
+        try {
+            File file = File.createTempFile(key.getHashCode() + "-", TEMP_FILE_SUFFIX, tempDir);
+            Files.copy(source.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            drain();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private void drain() {
+        int pendingStoreCount = maxPendingStores - pendingStores.availablePermits();
+        if (pendingStoreCount == 0) {
+            executor.stop();
+            return;
+        }
+        LOGGER.debug("Waiting for {} pending stores to the remote build cache", pendingStoreCount);
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                executor.stop();
+                context.setResult(new DrainStoresOperationResult(storeCount.get()));
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Wait for pending stores to remote build cache")
+                    .details(new DrainStoresOperationDetails(pendingStoreCount))
+                    .progressDisplayName("Uploading to remote build cache");
+            }
+        });
+    }
+}
@@ -36,6 +36,8 @@ public interface LocalBuildCacheServiceHandle extends Closeable {
     // TODO: what if this errors?
     void load(BuildCacheKey key, Action<? super File> reader);
 
+    boolean contains(BuildCacheKey key);
+
     boolean canStore();
 
     // TODO: what if this errors?
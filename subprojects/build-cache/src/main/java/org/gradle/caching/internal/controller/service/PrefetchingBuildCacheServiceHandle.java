@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.operations.CurrentBuildOperationPreservingRunnable;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads entries from the remote build cache ahead of time, so that a later {@link #load(BuildCacheKey, LoadTarget)} for the same key does not
+ * have to wait for the full round trip to the remote cache.
+ *
+ * Prefetched entries are downloaded to files owned by this handle and are handed out at most once. At most {@code maxPendingPrefetches} entries can be
+ * downloading or waiting to be loaded at the same time. Entries that were not found take up no space, so they do not count once their download has
+ * completed. When the limit is reached, the oldest downloaded entry that has not been loaded yet is discarded to make room for a new prefetch.
+ * Entries that have not been consumed when the handle is closed are discarded.
+ *
+ * Previously downloaded files left behind by a build that did not complete are deleted when the handle is created.
+ */
+public class PrefetchingBuildCacheServiceHandle implements BuildCacheServiceHandle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingBuildCacheServiceHandle.class);
+    private static final String TEMP_FILE_SUFFIX = ".prefetch";
+
+    private final BuildCacheServiceHandle delegate;
+    private final File tempDir;
+    private final ManagedExecutor executor;
+    private final Semaphore pendingPrefetches;
+    private final Map<String, Prefetch> prefetched = new ConcurrentHashMap<>();
+    private final Queue<Prefetch> downloaded = new ConcurrentLinkedQueue<>();
+
+    public PrefetchingBuildCacheServiceHandle(BuildCacheServiceHandle delegate, ExecutorFactory executorFactory, File tempDir, int maxConcurrentPrefetches, int maxPendingPrefetches) {
+        this.delegate = delegate;
+        this.tempDir = tempDir;
+        this.executor = executorFactory.create("Remote build cache prefetch", maxConcurrentPrefetches);
+        this.pendingPrefetches = new Semaphore(maxPendingPrefetches);
+        GFileUtils.mkdirs(tempDir);
+        StaleTempFiles.deleteStaleFiles(tempDir, TEMP_FILE_SUFFIX);
+    }
+
+    @Nullable
+    @Override
+    public BuildCacheService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public boolean canLoad() {
+        return delegate.canLoad();
+    }
+
+    /**
+     * Starts loading the entry for the given key in the background, unless it is already being loaded or too many entries are pending.
+     */
+    public void prefetch(BuildCacheKey key) {
+        if (!delegate.canLoad() || prefetched.containsKey(key.getHashCode()) || !acquirePermit()) {
+            return;
+        }
+        Prefetch prefetch = new Prefetch(key);
+        if (prefetched.putIfAbsent(key.getHashCode(), prefetch) != null) {
+            prefetch.releasePermit();
+            return;
+        }
+        try {
+            executor.execute(new CurrentBuildOperationPreservingRunnable(prefetch));
+        } catch (RuntimeException e) {
+            prefetched.remove(key.getHashCode(), prefetch);
+            prefetch.releasePermit();
+            throw e;
+        }
+    }
+
+    private boolean acquirePermit() {
+        while (!pendingPrefetches.tryAcquire()) {
+            Prefetch oldest = downloaded.poll();
+            if (oldest == null) {
+                return false;
+            }
+            // The entry may have been loaded in the meantime, in which case it has already been cleaned up
+            if (prefetched.remove(oldest.key.getHashCode(), oldest)) {
+                oldest.discard();
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private File download(BuildCacheKey key) throws IOException {
+        if (!delegate.canLoad()) {
+            return null;
+        }
+        File file = File.createTempFile(key.getHashCode() + "-", TEMP_FILE_SUFFIX, tempDir);
+        LoadTarget loadTarget = new LoadTarget(file);
+        delegate.load(key, loadTarget);
+        if (loadTarget.isLoaded()) {
+            return file;
+        }
+        GFileUtils.deleteQuietly(file);
+        return null;
+    }
+
+    @Override
+    public void load(BuildCacheKey key, LoadTarget loadTarget) {
+        Prefetch prefetch = prefetched.remove(key.getHashCode());
+        if (prefetch == null) {
+            delegate.load(key, loadTarget);
+            return;
+        }
+        File file = null;
+        try {
+            file = Uninterruptibles.getUninterruptibly(prefetch);
+            if (file != null) {
+                loadTarget.readFrom(new FileInputStream(file));
+            }
+        } catch (ExecutionException e) {
+            LOGGER.debug("Could not prefetch entry {} from the remote build cache, loading it directly.", key.getDisplayName(), e);
+            delegate.load(key, loadTarget);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            if (file != null) {
+                GFileUtils.deleteQuietly(file);
+            }
+            prefetch.releasePermit();
+        }
+    }
+
+    @Override
+    public boolean canStore() {
+        return delegate.canStore();
+    }
+
+    @Override
+    public void store(BuildCacheKey key, StoreTarget storeTarget) {
+        delegate.store(key, storeTarget);
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (Prefetch prefetch : prefetched.values()) {
+                // Downloads that have not started yet are not needed anymore
+                prefetch.cancel(false);
+            }
+            executor.stop();
+            for (Prefetch prefetch : prefetched.values()) {
+                prefetch.discard();
+            }
+            prefetched.clear();
+            downloaded.clear();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private class Prefetch extends FutureTask<File> {
+        private final BuildCacheKey key;
+        private final AtomicBoolean holdsPermit = new AtomicBoolean(true);
+
+        Prefetch(BuildCacheKey key) {
+            super(() -> download(key));
+            this.key = key;
+        }
+
+        @Override
+        protected void set(@Nullable File file) {
+            super.set(file);
+            if (file != null && isCancelled()) {
+                // The download was cancelled while it was running, so nobody is going to pick up the file
+                GFileUtils.deleteQuietly(file);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (getDownloadedFile() != null) {
+                downloaded.add(this);
+            } else {
+                // Nothing is kept for entries that were not found or could not be downloaded
+                releasePermit();
+            }
+        }
+
+        @Nullable
+        private File getDownloadedFile() {
+            if (isCancelled()) {
+                return null;
+            }
+            try {
+                return Uninterruptibles.getUninterruptibly(this);
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        void discard() {
+            File file = getDownloadedFile();
+            if (file != null) {
+                GFileUtils.deleteQuietly(file);
+            }
+            releasePermit();
+        }
+
+        void releasePermit() {
+            if (holdsPermit.compareAndSet(true, false)) {
+                pendingPrefetches.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+class StaleTempFiles {
+    /**
+     * Files are only deleted when they are older than this, as other builds sharing the directory may still be using younger ones.
+     */
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private StaleTempFiles() {
+    }
+
+    /**
+     * Deletes files with the given suffix that were left behind in the given directory, for example by a build that crashed.
+     */
+    static void deleteStaleFiles(File dir, String suffix) {
+        File[] files = dir.listFiles((parent, name) -> name.endsWith(suffix));
+        if (files == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - MAX_AGE_MILLIS;
+        for (File file : files) {
+            if (file.lastModified() < cutoff) {
+                GFileUtils.deleteQuietly(file);
+            }
+        }
+    }
+}
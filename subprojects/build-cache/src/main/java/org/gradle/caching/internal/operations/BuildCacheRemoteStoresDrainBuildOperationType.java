@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.operations;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Waiting for stores to the remote build cache that run in the background to complete at the end of the build.
+ */
+public final class BuildCacheRemoteStoresDrainBuildOperationType implements BuildOperationType<BuildCacheRemoteStoresDrainBuildOperationType.Details, BuildCacheRemoteStoresDrainBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The number of stores that were queued or running when draining started.
+         */
+        int getPendingStoreCount();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The total number of stores that were run in the background during the build.
+         */
+        int getStoreCount();
+
+    }
+
+    private BuildCacheRemoteStoresDrainBuildOperationType() {
+    }
+}
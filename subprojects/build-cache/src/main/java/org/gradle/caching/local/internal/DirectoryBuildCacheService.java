@@ -104,6 +104,16 @@ public void run() {
         });
     }
 
+    @Override
+    public boolean containsLocally(BuildCacheKey key) {
+        lock.readLock().lock();
+        try {
+            return fileStore.get(key.getHashCode()) != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     private void loadInsideLock(BuildCacheKey key, Action<? super File> reader) {
         LocallyAvailableResource resource = fileStore.get(key.getHashCode());
         if (resource == null) {
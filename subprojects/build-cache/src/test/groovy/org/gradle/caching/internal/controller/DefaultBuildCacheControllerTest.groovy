@@ -23,6 +23,7 @@ import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration
 import org.gradle.caching.local.internal.LocalBuildCacheService
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import spock.lang.Specification
@@ -43,6 +44,7 @@ class DefaultBuildCacheControllerTest extends Specification {
     def localPush = true
     def remote = Mock(BuildCacheService)
     def remotePush = true
+    def remotePrefetch = false
     def loadmetadata = Mock(Object)
 
     def storeCommand = Stub(BuildCacheStoreCommand) {
@@ -94,7 +96,10 @@ class DefaultBuildCacheControllerTest extends Specification {
             operations,
             tmpDir.file("dir"),
             false,
-            false
+            false,
+            new DefaultExecutorFactory(),
+            false,
+            remotePrefetch
         )
     }
 
@@ -250,4 +255,34 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * local.close()
         1 * remote.close()
     }
+
+    def "does not prefetch entries that are in the local cache"() {
+        remotePrefetch = true
+
+        when:
+        def controller = getController()
+        controller.prefetch(key)
+        controller.close()
+
+        then:
+        1 * local.containsLocally(key) >> true
+        0 * local.loadLocally(_, _)
+        0 * remote.load(_, _)
+    }
+
+    def "loads prefetched entries without going to the remote cache again"() {
+        remotePrefetch = true
+
+        when:
+        def controller = getController()
+        controller.prefetch(key)
+        def result = controller.load(loadCommand)
+        controller.close()
+
+        then:
+        1 * local.containsLocally(key) >> false
+        1 * local.loadLocally(key, _) // miss
+        1 * remote.load(key, _) >> false
+        !result.present
+    }
 }
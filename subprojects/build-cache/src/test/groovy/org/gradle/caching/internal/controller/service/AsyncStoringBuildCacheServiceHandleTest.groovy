@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service
+
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.internal.operations.BuildCacheRemoteStoresDrainBuildOperationType
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.BuildOperationRef
+import org.gradle.internal.operations.CurrentBuildOperationRef
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AsyncStoringBuildCacheServiceHandleTest extends Specification {
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def key = Mock(BuildCacheKey) {
+        getHashCode() >> "key"
+    }
+    def delegate = Mock(BuildCacheServiceHandle)
+    def operations = new TestBuildOperationExecutor()
+    def tempDir = temporaryFolder.file("tmp")
+    def handle = new AsyncStoringBuildCacheServiceHandle(delegate, operations, new DefaultExecutorFactory(), tempDir, 2, 4)
+
+    def "stores a copy of the entry in the background and completes pending stores on close"() {
+        def file = temporaryFolder.file("entry") << "content"
+        def storeStarted = new CountDownLatch(1)
+        def continueStore = new CountDownLatch(1)
+        String storedContent = null
+
+        when:
+        handle.store(key, new StoreTarget(file))
+        file.delete()
+        storeStarted.await()
+
+        then:
+        1 * delegate.canStore() >> true
+        1 * delegate.store(key, _) >> { BuildCacheKey k, StoreTarget target ->
+            storeStarted.countDown()
+            continueStore.await()
+            storedContent = target.file.text
+        }
+
+        when:
+        continueStore.countDown()
+        handle.close()
+
+        then:
+        1 * delegate.close()
+        storedContent == "content"
+        tempDir.list().length == 0
+        operations.log.mostRecentResult(BuildCacheRemoteStoresDrainBuildOperationType).storeCount == 1
+    }
+
+    def "does not store in the background once the delegate has been disabled"() {
+        def file = temporaryFolder.file("entry") << "content"
+
+        when:
+        handle.store(key, new StoreTarget(file))
+        handle.close()
+
+        then:
+        1 * delegate.canStore() >> false
+        0 * delegate.store(_, _)
+        1 * delegate.close()
+        tempDir.list().length == 0
+    }
+
+    def "runs stores as children of the operation that requested them"() {
+        def file = temporaryFolder.file("entry") << "content"
+        def parent = Mock(BuildOperationRef)
+        BuildOperationRef currentOperation = null
+
+        when:
+        CurrentBuildOperationRef.instance().set(parent)
+        handle.store(key, new StoreTarget(file))
+        CurrentBuildOperationRef.instance().clear()
+        handle.close()
+
+        then:
+        1 * delegate.canStore() >> true
+        1 * delegate.store(key, _) >> {
+            currentOperation = CurrentBuildOperationRef.instance().get()
+        }
+        currentOperation == parent
+
+        cleanup:
+        CurrentBuildOperationRef.instance().clear()
+    }
+
+    def "deletes copies left behind by earlier builds"() {
+        handle.close()
+        def staleCopy = tempDir.file("stale-1.store") << "content"
+        staleCopy.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        def recentCopy = tempDir.file("recent-1.store") << "content"
+        def otherFile = tempDir.file("other") << "content"
+        otherFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+
+        when:
+        new AsyncStoringBuildCacheServiceHandle(delegate, operations, new DefaultExecutorFactory(), tempDir, 2, 4).close()
+
+        then:
+        !staleCopy.exists()
+        recentCopy.exists()
+        otherFile.exists()
+    }
+}
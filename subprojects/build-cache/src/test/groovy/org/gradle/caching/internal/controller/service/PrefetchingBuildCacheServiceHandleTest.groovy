@@ -0,0 +1,250 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service
+
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.operations.BuildOperationRef
+import org.gradle.internal.operations.CurrentBuildOperationRef
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class PrefetchingBuildCacheServiceHandleTest extends Specification {
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def key = Mock(BuildCacheKey) {
+        getHashCode() >> "key"
+    }
+    def delegate = Mock(BuildCacheServiceHandle)
+    def tempDir = temporaryFolder.file("tmp")
+    def handle = new PrefetchingBuildCacheServiceHandle(delegate, new DefaultExecutorFactory(), tempDir, 2, 4)
+
+    def directExecutorFactory = Stub(ExecutorFactory) {
+        create(_, _) >> Stub(ManagedExecutor) {
+            execute(_) >> { Runnable runnable -> runnable.run() }
+        }
+    }
+
+    def "loads prefetched entry without going to the remote cache again"() {
+        def loaded = new CountDownLatch(1)
+        def target = temporaryFolder.file("target")
+
+        when:
+        handle.prefetch(key)
+        loaded.await()
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, _) >> { BuildCacheKey k, LoadTarget loadTarget ->
+            loadTarget.readFrom(new ByteArrayInputStream("content".bytes))
+            loaded.countDown()
+        }
+
+        when:
+        def loadTarget = new LoadTarget(target)
+        handle.load(key, loadTarget)
+
+        then:
+        0 * delegate.load(_, _)
+        loadTarget.loaded
+        target.text == "content"
+        tempDir.list().length == 0
+    }
+
+    def "reports miss for prefetched entry that was not found"() {
+        when:
+        handle.prefetch(key)
+        def loadTarget = new LoadTarget(temporaryFolder.file("target"))
+        handle.load(key, loadTarget)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, _)
+        !loadTarget.loaded
+        tempDir.list().length == 0
+    }
+
+    def "loads directly from the remote cache when entry was not prefetched"() {
+        def loadTarget = new LoadTarget(temporaryFolder.file("target"))
+
+        when:
+        handle.load(key, loadTarget)
+
+        then:
+        1 * delegate.load(key, loadTarget)
+    }
+
+    def "does not prefetch when the remote cache cannot be loaded from"() {
+        when:
+        handle.prefetch(key)
+        handle.close()
+
+        then:
+        1 * delegate.canLoad() >> false
+        0 * delegate.load(_, _)
+        1 * delegate.close()
+    }
+
+    def "discards prefetched entries that were not loaded on close"() {
+        when:
+        handle.prefetch(key)
+        handle.close()
+
+        then:
+        _ * delegate.canLoad() >> true
+        _ * delegate.load(key, _) >> { BuildCacheKey k, LoadTarget loadTarget ->
+            loadTarget.readFrom(new ByteArrayInputStream("content".bytes))
+        }
+        1 * delegate.close()
+        tempDir.list().length == 0
+    }
+
+    def "releases the permit of an entry that was not found once its prefetch has completed"() {
+        def otherKey = cacheKey("other")
+        def handle = new PrefetchingBuildCacheServiceHandle(delegate, directExecutorFactory, tempDir, 1, 1)
+
+        when:
+        handle.prefetch(key)
+        handle.prefetch(otherKey)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, _)
+        1 * delegate.load(otherKey, _)
+    }
+
+    def "releases the permit of an entry once it has been loaded"() {
+        def otherKey = cacheKey("other")
+        def handle = new PrefetchingBuildCacheServiceHandle(delegate, directExecutorFactory, tempDir, 1, 1)
+
+        when:
+        handle.prefetch(key)
+        handle.load(key, new LoadTarget(temporaryFolder.file("target")))
+        handle.prefetch(otherKey)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, _) >> { BuildCacheKey k, LoadTarget loadTarget ->
+            loadTarget.readFrom(new ByteArrayInputStream("content".bytes))
+        }
+        1 * delegate.load(otherKey, _)
+    }
+
+    def "discards the oldest entry that was not loaded to make room for a new prefetch"() {
+        def otherKey = cacheKey("other")
+        def handle = new PrefetchingBuildCacheServiceHandle(delegate, directExecutorFactory, tempDir, 1, 1)
+
+        when:
+        handle.prefetch(key)
+        handle.prefetch(otherKey)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, _) >> { BuildCacheKey k, LoadTarget loadTarget ->
+            loadTarget.readFrom(new ByteArrayInputStream("content".bytes))
+        }
+        1 * delegate.load(otherKey, _) >> { BuildCacheKey k, LoadTarget loadTarget ->
+            loadTarget.readFrom(new ByteArrayInputStream("other content".bytes))
+        }
+        tempDir.list().length == 1
+
+        when:
+        def evictedTarget = new LoadTarget(temporaryFolder.file("evicted"))
+        handle.load(key, evictedTarget)
+        def otherTarget = new LoadTarget(temporaryFolder.file("other"))
+        handle.load(otherKey, otherTarget)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, evictedTarget)
+        0 * delegate.load(otherKey, _)
+        otherTarget.loaded
+        tempDir.list().length == 0
+    }
+
+    def "does not prefetch more entries than allowed while they are downloading"() {
+        def otherKey = cacheKey("other")
+        def downloading = new CountDownLatch(1)
+        def continueDownload = new CountDownLatch(1)
+        def handle = new PrefetchingBuildCacheServiceHandle(delegate, new DefaultExecutorFactory(), tempDir, 2, 1)
+
+        when:
+        handle.prefetch(key)
+        downloading.await()
+        handle.prefetch(otherKey)
+        continueDownload.countDown()
+        handle.close()
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, _) >> {
+            downloading.countDown()
+            continueDownload.await()
+        }
+        0 * delegate.load(otherKey, _)
+    }
+
+    def "runs prefetches as children of the operation that requested them"() {
+        def parent = Mock(BuildOperationRef)
+        BuildOperationRef currentOperation = null
+        def handle = new PrefetchingBuildCacheServiceHandle(delegate, new DefaultExecutorFactory(), tempDir, 1, 1)
+
+        when:
+        CurrentBuildOperationRef.instance().set(parent)
+        handle.prefetch(key)
+        CurrentBuildOperationRef.instance().clear()
+        handle.load(key, new LoadTarget(temporaryFolder.file("target")))
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, _) >> {
+            currentOperation = CurrentBuildOperationRef.instance().get()
+        }
+        currentOperation == parent
+
+        cleanup:
+        CurrentBuildOperationRef.instance().clear()
+    }
+
+    def "deletes prefetched files left behind by earlier builds"() {
+        handle.close()
+        def staleFile = tempDir.file("stale-1.prefetch") << "content"
+        staleFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        def recentFile = tempDir.file("recent-1.prefetch") << "content"
+
+        when:
+        new PrefetchingBuildCacheServiceHandle(delegate, new DefaultExecutorFactory(), tempDir, 1, 1).close()
+
+        then:
+        !staleFile.exists()
+        recentFile.exists()
+    }
+
+    private BuildCacheKey cacheKey(String hashCode) {
+        Mock(BuildCacheKey) {
+            getHashCode() >> hashCode
+        }
+    }
+}
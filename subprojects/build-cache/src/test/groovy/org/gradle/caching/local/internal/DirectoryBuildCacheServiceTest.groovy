@@ -132,4 +132,26 @@ class DirectoryBuildCacheServiceTest extends Specification {
         1 * fileAccessTracker.markAccessed(cachedFile)
         loaded
     }
+
+    def "checks for entries without loading them"() {
+        given:
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "bar"
+
+        expect:
+        !service.containsLocally(key)
+
+        when:
+        service.storeLocally(key, originalFile)
+
+        then:
+        service.containsLocally(key)
+
+        when:
+        service.containsLocally(key)
+
+        then:
+        0 * fileAccessTracker.markAccessed(_)
+        0 * persistentCache.withFileLock(_)
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures several consecutive build sessions looking up the hashes of the same files in the off-heap file hash cache.
+ *
+ * With {@code per-session}, every session allocates its own cache and releases it at the end, so each session starts cold. With {@code shared}, all
+ * sessions use a single cache, as when it is owned by the Gradle user home services of a daemon.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class OffHeapFileHashCacheSessionsBenchmark {
+    private static final long LENGTH = 1024;
+    private static final long TIMESTAMP = 1_500_000_000_000L;
+
+    @Param({"per-session", "shared"})
+    String lifecycle;
+
+    @Param({"10"})
+    int sessions;
+
+    @Param({"100000"})
+    int files;
+
+    String[] paths;
+    HashCode[] hashes;
+    OffHeapFileHashCache sharedCache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        paths = new String[files];
+        hashes = new HashCode[files];
+        for (int i = 0; i < files; i++) {
+            paths[i] = "/home/user/project/module-" + (i % 100) + "/src/main/java/org/example/Type" + i + ".java";
+            hashes[i] = Hashing.md5().hashString(paths[i]);
+        }
+        if (lifecycle.equals("shared")) {
+            sharedCache = new OffHeapFileHashCache(files * 2);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (sharedCache != null) {
+            sharedCache.stop();
+        }
+    }
+
+    /**
+     * Returns the number of hashes that had to be calculated, because they were not in the cache.
+     */
+    @Benchmark
+    public int consecutiveSessions() {
+        int misses = 0;
+        for (int session = 0; session < sessions; session++) {
+            OffHeapFileHashCache cache = sharedCache != null ? sharedCache : new OffHeapFileHashCache(files * 2);
+            for (int i = 0; i < files; i++) {
+                if (cache.get(paths[i], LENGTH, TIMESTAMP) == null) {
+                    cache.put(paths[i], LENGTH, TIMESTAMP, hashes[i]);
+                    misses++;
+                }
+            }
+            if (cache != sharedCache) {
+                cache.stop();
+            }
+        }
+        return misses;
+    }
+}
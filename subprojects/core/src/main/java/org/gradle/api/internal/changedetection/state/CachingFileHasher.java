@@ -17,6 +17,8 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
@@ -24,30 +26,56 @@
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.resource.local.ContentAddressedFileStore;
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.InterningStringSerializer;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 
 public class CachingFileHasher implements FileHasher {
+    /**
+     * The maximum number of file hashes to keep outside of the Java heap, shared by all file hashers of the Gradle user home. When set, only a small
+     * number of entries are kept on the heap.
+     */
+    public static final String OFF_HEAP_ENTRIES_PROPERTY = "org.gradle.internal.file-hash-cache.off-heap-entries";
+
+    private static final int IN_MEMORY_ENTRIES = 400000;
+    private static final int IN_MEMORY_ENTRIES_WITH_OFF_HEAP_CACHE = 10000;
+    private static final int LINKED_FILE_ENTRIES = 100000;
+
     private final PersistentIndexedCache<String, FileInfo> cache;
+    @Nullable
+    private final OffHeapFileHashCache offHeapCache;
     private final FileHasher delegate;
     private final FileSystem fileSystem;
     private final StringInterner stringInterner;
     private final FileTimeStampInspector timestampInspector;
+    @Nullable
+    private final Cache<Object, FileInfo> linkedFileCache;
 
     public CachingFileHasher(FileHasher delegate, CrossBuildFileHashCache store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, FileSystem fileSystem) {
+        this(delegate, store, stringInterner, timestampInspector, cacheName, fileSystem, new OffHeapFileHashCache(0));
+    }
+
+    public CachingFileHasher(FileHasher delegate, CrossBuildFileHashCache store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, FileSystem fileSystem, OffHeapFileHashCache offHeapCache) {
         this.delegate = delegate;
         this.fileSystem = fileSystem;
+        this.offHeapCache = offHeapCache.isEnabled() ? offHeapCache : null;
         this.cache = store.createCache(
             PersistentIndexedCacheParameters.of(cacheName, new InterningStringSerializer(stringInterner), new FileInfoSerializer()),
-            400000,
+            this.offHeapCache != null ? IN_MEMORY_ENTRIES_WITH_OFF_HEAP_CACHE : IN_MEMORY_ENTRIES,
             true);
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
+        // Files in the artifact cache that share their content are hard links to the same file, so also remember hashes by file identity
+        this.linkedFileCache = ContentAddressedFileStore.isEnabled() ? CacheBuilder.newBuilder().maximumSize(LINKED_FILE_ENTRIES).<Object, FileInfo>build() : null;
     }
 
     @Override
@@ -72,21 +100,59 @@ private FileInfo snapshot(File file) {
 
     private FileInfo snapshot(File file, long length, long timestamp) {
         String absolutePath = file.getAbsolutePath();
+        Object fileKey = null;
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
+            if (offHeapCache != null) {
+                HashCode hash = offHeapCache.get(absolutePath, length, timestamp);
+                if (hash != null) {
+                    return new FileInfo(hash, length, timestamp);
+                }
+            }
+
             FileInfo info = cache.get(absolutePath);
 
             if (info != null && length == info.length && timestamp == info.timestamp) {
+                if (offHeapCache != null) {
+                    offHeapCache.put(absolutePath, length, timestamp, info.hash);
+                }
                 return info;
             }
+
+            if (linkedFileCache != null) {
+                fileKey = getFileKey(file);
+                FileInfo linkedInfo = fileKey == null ? null : linkedFileCache.getIfPresent(fileKey);
+                if (linkedInfo != null && length == linkedInfo.length && timestamp == linkedInfo.timestamp) {
+                    cache.put(stringInterner.intern(absolutePath), linkedInfo);
+                    return linkedInfo;
+                }
+            }
         }
 
         HashCode hash = delegate.hash(file);
         FileInfo info = new FileInfo(hash, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
+        if (fileKey != null) {
+            linkedFileCache.put(fileKey, info);
+        }
+        if (offHeapCache != null) {
+            offHeapCache.put(absolutePath, length, timestamp, hash);
+        }
         return info;
     }
 
+    @Nullable
+    private static Object getFileKey(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     public void discard(String path) {
+        if (offHeapCache != null) {
+            offHeapCache.remove(path);
+        }
         cache.remove(path);
     }
 
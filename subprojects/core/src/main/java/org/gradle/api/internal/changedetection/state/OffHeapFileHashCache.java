@@ -0,0 +1,320 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A fixed size, least recently used cache of file hashes, which stores its entries outside of the Java heap.
+ *
+ * <p>Entries are keyed by a 128-bit hash of the absolute path of the file, so that no path strings need to be retained.
+ * Each entry holds the length, the timestamp and the hash of the file, along with the links of the LRU list, in a single slot of a direct buffer.
+ * Slots are found through an open-addressing index, which is also stored in a direct buffer.</p>
+ *
+ * <p>Only hashes of {@value #HASH_SIZE} bytes can be stored, which is the size of MD5 file content hashes.</p>
+ *
+ * <p>The cache is meant to outlive build sessions, and is shared by the file hashers of all sessions. The off-heap memory is released when the cache is
+ * stopped, after which the cache stays empty. A cache created with no entries is disabled and does not allocate any memory.</p>
+ */
+public class OffHeapFileHashCache implements Stoppable {
+    static final int HASH_SIZE = 16;
+
+    private static final int KEY_HIGH_OFFSET = 0;
+    private static final int KEY_LOW_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 16;
+    private static final int TIMESTAMP_OFFSET = 24;
+    private static final int HASH_OFFSET = 32;
+    private static final int PREVIOUS_OFFSET = HASH_OFFSET + HASH_SIZE;
+    private static final int NEXT_OFFSET = PREVIOUS_OFFSET + 4;
+    private static final int ENTRY_SIZE = NEXT_OFFSET + 4;
+    private static final int NONE = -1;
+
+    private final int maxEntries;
+    private final int indexMask;
+    private ByteBuffer entries;
+    private ByteBuffer indexBuffer;
+    private IntBuffer index;
+    private int size;
+    private int allocated;
+    private int freeList = NONE;
+    private int mostRecentlyUsed = NONE;
+    private int leastRecentlyUsed = NONE;
+
+    public OffHeapFileHashCache(int maxEntries) {
+        if (maxEntries < 0 || maxEntries > Integer.MAX_VALUE / ENTRY_SIZE) {
+            throw new IllegalArgumentException("Unsupported number of entries for off-heap file hash cache: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        if (maxEntries == 0) {
+            this.indexMask = 0;
+            return;
+        }
+        this.entries = ByteBuffer.allocateDirect(maxEntries * ENTRY_SIZE);
+        int indexSize = Integer.highestOneBit(maxEntries) * 4;
+        this.indexBuffer = ByteBuffer.allocateDirect(indexSize * 4);
+        this.index = indexBuffer.asIntBuffer();
+        this.indexMask = indexSize - 1;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Returns the hash of the file, when the cached entry for the file has the given length and timestamp.
+     */
+    @Nullable
+    synchronized HashCode get(String absolutePath, long length, long timestamp) {
+        if (entries == null) {
+            return null;
+        }
+        ByteBuffer key = keyFor(absolutePath);
+        int entry = find(key.getLong(0), key.getLong(8));
+        if (entry == NONE) {
+            return null;
+        }
+        int base = entry * ENTRY_SIZE;
+        if (entries.getLong(base + LENGTH_OFFSET) != length || entries.getLong(base + TIMESTAMP_OFFSET) != timestamp) {
+            return null;
+        }
+        moveToFront(entry);
+        byte[] hash = new byte[HASH_SIZE];
+        for (int i = 0; i < HASH_SIZE; i++) {
+            hash[i] = entries.get(base + HASH_OFFSET + i);
+        }
+        return HashCode.fromBytes(hash);
+    }
+
+    synchronized void put(String absolutePath, long length, long timestamp, HashCode hash) {
+        if (entries == null || hash.length() != HASH_SIZE) {
+            return;
+        }
+        ByteBuffer key = keyFor(absolutePath);
+        long keyHigh = key.getLong(0);
+        long keyLow = key.getLong(8);
+        int entry = find(keyHigh, keyLow);
+        if (entry == NONE) {
+            entry = allocate();
+            int base = entry * ENTRY_SIZE;
+            entries.putLong(base + KEY_HIGH_OFFSET, keyHigh);
+            entries.putLong(base + KEY_LOW_OFFSET, keyLow);
+            insertIntoIndex(keyHigh, entry);
+            linkAtFront(entry);
+            size++;
+        } else {
+            moveToFront(entry);
+        }
+        int base = entry * ENTRY_SIZE;
+        entries.putLong(base + LENGTH_OFFSET, length);
+        entries.putLong(base + TIMESTAMP_OFFSET, timestamp);
+        byte[] bytes = hash.toByteArray();
+        for (int i = 0; i < HASH_SIZE; i++) {
+            entries.put(base + HASH_OFFSET + i, bytes[i]);
+        }
+    }
+
+    synchronized void remove(String absolutePath) {
+        if (entries == null) {
+            return;
+        }
+        ByteBuffer key = keyFor(absolutePath);
+        int entry = find(key.getLong(0), key.getLong(8));
+        if (entry != NONE) {
+            release(entry);
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (entries == null) {
+            return;
+        }
+        free(entries);
+        free(indexBuffer);
+        entries = null;
+        indexBuffer = null;
+        index = null;
+        size = 0;
+        allocated = 0;
+        freeList = NONE;
+        mostRecentlyUsed = NONE;
+        leastRecentlyUsed = NONE;
+    }
+
+    private int allocate() {
+        if (freeList != NONE) {
+            int entry = freeList;
+            freeList = next(entry);
+            return entry;
+        }
+        if (allocated < maxEntries) {
+            return allocated++;
+        }
+        int evicted = leastRecentlyUsed;
+        release(evicted);
+        int entry = freeList;
+        freeList = next(entry);
+        return entry;
+    }
+
+    private void release(int entry) {
+        removeFromIndex(entry);
+        unlink(entry);
+        setNext(entry, freeList);
+        freeList = entry;
+        size--;
+    }
+
+    private int find(long keyHigh, long keyLow) {
+        for (int slot = slotFor(keyHigh); ; slot = (slot + 1) & indexMask) {
+            int entry = index.get(slot) - 1;
+            if (entry == NONE) {
+                return NONE;
+            }
+            int base = entry * ENTRY_SIZE;
+            if (entries.getLong(base + KEY_HIGH_OFFSET) == keyHigh && entries.getLong(base + KEY_LOW_OFFSET) == keyLow) {
+                return entry;
+            }
+        }
+    }
+
+    private void insertIntoIndex(long keyHigh, int entry) {
+        int slot = slotFor(keyHigh);
+        while (index.get(slot) != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        index.put(slot, entry + 1);
+    }
+
+    private void removeFromIndex(int entry) {
+        int slot = slotFor(entries.getLong(entry * ENTRY_SIZE + KEY_HIGH_OFFSET));
+        while (index.get(slot) != entry + 1) {
+            slot = (slot + 1) & indexMask;
+        }
+        // Shift back the entries that follow in the same cluster, so that lookups don't stop at the freed slot
+        int emptied = slot;
+        int current = slot;
+        while (true) {
+            current = (current + 1) & indexMask;
+            int candidate = index.get(current);
+            if (candidate == 0) {
+                break;
+            }
+            int home = slotFor(entries.getLong((candidate - 1) * ENTRY_SIZE + KEY_HIGH_OFFSET));
+            if (((current - home) & indexMask) >= ((current - emptied) & indexMask)) {
+                index.put(emptied, candidate);
+                emptied = current;
+            }
+        }
+        index.put(emptied, 0);
+    }
+
+    private void moveToFront(int entry) {
+        if (entry != mostRecentlyUsed) {
+            unlink(entry);
+            linkAtFront(entry);
+        }
+    }
+
+    private void linkAtFront(int entry) {
+        setPrevious(entry, NONE);
+        setNext(entry, mostRecentlyUsed);
+        if (mostRecentlyUsed != NONE) {
+            setPrevious(mostRecentlyUsed, entry);
+        }
+        mostRecentlyUsed = entry;
+        if (leastRecentlyUsed == NONE) {
+            leastRecentlyUsed = entry;
+        }
+    }
+
+    private void unlink(int entry) {
+        int previous = previous(entry);
+        int next = next(entry);
+        if (previous == NONE) {
+            mostRecentlyUsed = next;
+        } else {
+            setNext(previous, next);
+        }
+        if (next == NONE) {
+            leastRecentlyUsed = previous;
+        } else {
+            setPrevious(next, previous);
+        }
+    }
+
+    private int previous(int entry) {
+        return entries.getInt(entry * ENTRY_SIZE + PREVIOUS_OFFSET);
+    }
+
+    private void setPrevious(int entry, int previous) {
+        entries.putInt(entry * ENTRY_SIZE + PREVIOUS_OFFSET, previous);
+    }
+
+    private int next(int entry) {
+        return entries.getInt(entry * ENTRY_SIZE + NEXT_OFFSET);
+    }
+
+    private void setNext(int entry, int next) {
+        entries.putInt(entry * ENTRY_SIZE + NEXT_OFFSET, next);
+    }
+
+    private int slotFor(long keyHigh) {
+        return (int) keyHigh & indexMask;
+    }
+
+    private static ByteBuffer keyFor(String absolutePath) {
+        return ByteBuffer.wrap(Hashing.murmur3().hashString(absolutePath).toByteArray());
+    }
+
+    /**
+     * Releases the memory of the given direct buffer right away, instead of when the buffer is garbage collected. The buffer must not be used afterwards.
+     */
+    private static void free(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (Exception e) {
+            // Leave the memory to be released when the buffer is garbage collected
+        }
+    }
+}
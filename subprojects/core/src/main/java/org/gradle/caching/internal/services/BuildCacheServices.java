@@ -32,6 +32,8 @@
 import org.gradle.caching.internal.services.BuildCacheControllerFactory.RemoteAccessMode;
 import org.gradle.initialization.buildsrc.BuildSourceBuilder;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.instantiation.InstantiatorFactory;
@@ -56,14 +58,35 @@ public class BuildCacheServices {
     private static final Path ROOT_BUILD_SRC_PATH = Path.path(":" + BuildSourceBuilder.BUILD_SRC);
     private static final String GRADLE_VERSION_KEY = "gradleVersion";
 
+    /**
+     * When set, entries are stored in the remote build cache in the background instead of on the thread that produced them.
+     */
+    public static final String ASYNC_REMOTE_STORE_PROPERTY = "org.gradle.internal.build-cache.async-remote-store";
+
+    /**
+     * When set, entries are loaded from the remote build cache in the background as soon as their cache key is known.
+     */
+    public static final String REMOTE_PREFETCH_PROPERTY = "org.gradle.internal.build-cache.remote-prefetch";
+
+    /**
+     * When set, build cache entries are compressed in parallel on a dedicated pool with one thread per processor.
+     */
+    public static final String PARALLEL_COMPRESSION_PROPERTY = "org.gradle.internal.build-cache.parallel-compression";
+
     BuildCacheEntryPacker createResultPacker(
         Deleter deleter,
         FileSystem fileSystem,
         StreamHasher fileHasher,
-        StringInterner stringInterner
+        StringInterner stringInterner,
+        ExecutorFactory executorFactory
     ) {
-        return new GZipBuildCacheEntryPacker(
-            new TarBuildCacheEntryPacker(deleter, fileSystem, fileHasher, stringInterner));
+        TarBuildCacheEntryPacker tarPacker = new TarBuildCacheEntryPacker(deleter, fileSystem, fileHasher, stringInterner);
+        if (Boolean.getBoolean(PARALLEL_COMPRESSION_PROPERTY)) {
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            ManagedExecutor compressionExecutor = executorFactory.create("Build cache entry compression", parallelism);
+            return new GZipBuildCacheEntryPacker(tarPacker, compressionExecutor, 2 * parallelism);
+        }
+        return new GZipBuildCacheEntryPacker(tarPacker);
     }
 
     OriginMetadataFactory createOriginMetadataFactory(
@@ -132,6 +155,8 @@ private BuildCacheController doCreateBuildCacheController(ServiceRegistry servic
         RemoteAccessMode remoteAccessMode = startParameter.isOffline() ? OFFLINE : ONLINE;
         boolean logStackTraces = startParameter.getShowStacktrace() != ShowStacktrace.INTERNAL_EXCEPTIONS;
         boolean emitDebugLogging = startParameter.isBuildCacheDebugLogging();
+        boolean asyncRemoteStore = Boolean.getBoolean(ASYNC_REMOTE_STORE_PROPERTY);
+        boolean remotePrefetch = Boolean.getBoolean(REMOTE_PREFETCH_PROPERTY);
 
         return BuildCacheControllerFactory.create(
             buildOperationExecutor,
@@ -142,7 +167,10 @@ private BuildCacheController doCreateBuildCacheController(ServiceRegistry servic
             remoteAccessMode,
             logStackTraces,
             emitDebugLogging,
-            instantiatorFactory.inject(serviceRegistry)
+            instantiatorFactory.inject(serviceRegistry),
+            serviceRegistry.get(ExecutorFactory.class),
+            asyncRemoteStore,
+            remotePrefetch
         );
     }
 
@@ -57,13 +57,16 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * A reusable implementation of ExecutionPlan. The {@link #addEntryTasks(java.util.Collection)} and {@link #clear()} methods are NOT threadsafe, and callers must synchronize access to these methods.
@@ -74,7 +77,10 @@ public class DefaultExecutionPlan implements ExecutionPlan {
 
     private final Set<Node> entryNodes = new LinkedHashSet<>();
     private final NodeMapping nodeMapping = new NodeMapping();
-    private final List<Node> executionQueue = Lists.newLinkedList();
+    private final Set<Node> executionQueue = new LinkedHashSet<>();
+    private final Map<Node, Integer> executionOrder = Maps.newIdentityHashMap();
+    // Nodes from the execution queue that may be ready to execute, in execution order. Only these nodes are considered by selectNext().
+    private final NavigableSet<Node> readyNodes = new TreeSet<>(Comparator.comparingInt(node -> executionOrder.get(node)));
     private final Map<Project, ResourceLock> projectLocks = Maps.newHashMap();
     private final FailureCollector failureCollector = new FailureCollector();
     private final TaskNodeFactory taskNodeFactory;
@@ -88,7 +94,7 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     private final Set<Node> producedButNotYetConsumed = Sets.newIdentityHashSet();
     private final Map<Pair<Node, Node>, Boolean> reachableCache = Maps.newHashMap();
     private final List<Node> dependenciesWhichRequireMonitoring = Lists.newArrayList();
-    private boolean maybeNodesReady;
+    private boolean rescanExecutionQueue;
     private final SharedResourceLeaseRegistry sharedResourceLeaseRegistry;
     private final Map<Node, List<ResourceLock>> sharedResourceLocks = Maps.newIdentityHashMap();
     private final SharedResourceContainer sharedResourceContainer;
@@ -364,9 +370,13 @@ public NodeInVisitingSegment apply(Node node) {
             }
         }
         executionQueue.clear();
+        executionOrder.clear();
+        readyNodes.clear();
         Iterables.addAll(executionQueue, nodeMapping);
         for (Node node : executionQueue) {
-            maybeNodesReady |= node.updateAllDependenciesComplete() && node.isReady();
+            executionOrder.put(node, executionOrder.size());
+            node.updateAllDependenciesComplete();
+            maybeNodeReady(node);
         }
         this.dependenciesWhichRequireMonitoring.addAll(dependenciesWhichRequireMonitoring);
     }
@@ -506,6 +516,8 @@ public void clear() {
         entryNodes.clear();
         nodeMapping.clear();
         executionQueue.clear();
+        executionOrder.clear();
+        readyNodes.clear();
         projectLocks.clear();
         failureCollector.clearFailures();
         producedButNotYetConsumed.clear();
@@ -558,36 +570,48 @@ public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLock
                 iterator.remove();
             }
         }
-        if (!maybeNodesReady) {
-            return null;
+        if (rescanExecutionQueue) {
+            rescanExecutionQueue = false;
+            for (Node node : executionQueue) {
+                maybeNodeReady(node);
+            }
         }
-        Iterator<Node> iterator = executionQueue.iterator();
+        Iterator<Node> iterator = readyNodes.iterator();
         boolean foundReadyNode = false;
         while (iterator.hasNext()) {
             Node node = iterator.next();
-            if (node.isReady() && node.allDependenciesComplete()) {
-                foundReadyNode = true;
-                MutationInfo mutations = getResolvedMutationInfo(node);
+            if (!node.isReady() || !node.allDependenciesComplete()) {
+                // Will be considered again when one of its dependencies completes
+                iterator.remove();
+                continue;
+            }
+            foundReadyNode = true;
+            MutationInfo mutations = getResolvedMutationInfo(node);
 
-                if (!tryAcquireLocksForNode(node, workerLease, mutations)) {
-                    resourceLockState.releaseLocks();
-                    continue;
-                }
+            if (!tryAcquireLocksForNode(node, workerLease, mutations)) {
+                resourceLockState.releaseLocks();
+                continue;
+            }
 
-                if (node.allDependenciesSuccessful()) {
-                    node.startExecution(this::recordNodeExecutionStarted);
-                } else {
-                    node.skipExecution(this::recordNodeCompleted);
-                }
-                iterator.remove();
-                return node;
+            iterator.remove();
+            executionQueue.remove(node);
+            if (node.allDependenciesSuccessful()) {
+                node.startExecution(this::recordNodeExecutionStarted);
+            } else {
+                node.skipExecution(this::recordNodeCompleted);
             }
+            return node;
         }
         LOGGER.debug("No node could be selected, nodes ready: {}", foundReadyNode);
-        maybeNodesReady = foundReadyNode;
         return null;
     }
 
+    private void maybeNodeReady(Node node) {
+        if (node.isReady() && node.allDependenciesComplete() && executionQueue.contains(node)) {
+            readyNodes.add(node);
+        }
+    }
+
     private boolean tryAcquireLocksForNode(Node node, WorkerLeaseRegistry.WorkerLease workerLease, MutationInfo mutations) {
         if (!tryLockProjectFor(node)) {
             LOGGER.debug("Cannot acquire project lock for node {}", node);
@@ -608,7 +632,9 @@ private boolean tryAcquireLocksForNode(Node node, WorkerLeaseRegistry.WorkerLeas
 
     private void updateAllDependenciesCompleteForPredecessors(Node node) {
         for (Node predecessor : node.getAllPredecessors()) {
-            maybeNodesReady |= predecessor.updateAllDependenciesComplete() && predecessor.isReady();
+            if (predecessor.updateAllDependenciesComplete()) {
+                maybeNodeReady(predecessor);
+            }
         }
     }
 
@@ -804,8 +830,8 @@ private void recordNodeCompleted(Node node) {
     public void finishedExecuting(Node node) {
         try {
             if (!node.isComplete()) {
-                enforceFinalizers(node);
-                maybeNodesReady = true;
+                // Enforcing a finalizer can make nodes ready that are not dependent on a completed node, so look at the whole queue
+                rescanExecutionQueue |= enforceFinalizers(node);
                 if (node.isFailed()) {
                     LOGGER.debug("Node {} failed", node);
                     handleFailure(node);
@@ -824,13 +850,16 @@ public void finishedExecuting(Node node) {
         }
     }
 
-    private static void enforceFinalizers(Node node) {
+    private static boolean enforceFinalizers(Node node) {
+        boolean enforced = false;
         for (Node finalizerNode : node.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
                 Set<Node> enforcedNodes = Sets.newHashSet();
                 enforceWithDependencies(finalizerNode, enforcedNodes);
+                enforced = true;
             }
         }
+        return enforced;
     }
 
     private static void enforceWithDependencies(Node nodeInfo, Set<Node> enforcedNodes) {
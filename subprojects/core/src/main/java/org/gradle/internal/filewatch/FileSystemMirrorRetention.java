@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.snapshot.impl.DefaultFileSystemMirror;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Retains the state of a {@link DefaultFileSystemMirror} between builds, and invalidates the retained state using a {@link FileWatcher}.
+ *
+ * Retention is enabled by setting the {@value #RETENTION_ENABLED_PROPERTY} system property. At the end of each build the roots of the retained
+ * state are registered with the watcher. Changes made between taking a snapshot and registering its root, or changes that have not yet
+ * been reported by the watcher when the next build starts, are not noticed, which is why this is not enabled by default.
+ *
+ * When the watcher fails or stops, or reports a change it cannot attribute to a file, all retained state is discarded.
+ */
+public class FileSystemMirrorRetention implements RootBuildLifecycleListener, Stoppable {
+    public static final String RETENTION_ENABLED_PROPERTY = "org.gradle.unsafe.vfs.retention";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemMirrorRetention.class);
+
+    private final FileWatcherFactory fileWatcherFactory;
+    private final Object lock = new Object();
+    private DefaultFileSystemMirror fileSystemMirror;
+    private FileWatcher watcher;
+    private volatile boolean watcherFailed;
+
+    public FileSystemMirrorRetention(FileWatcherFactory fileWatcherFactory) {
+        this.fileWatcherFactory = fileWatcherFactory;
+    }
+
+    public void attach(DefaultFileSystemMirror fileSystemMirror) {
+        this.fileSystemMirror = fileSystemMirror;
+    }
+
+    @Override
+    public void afterStart() {
+        if (fileSystemMirror == null) {
+            return;
+        }
+        // The watcher can also stop without reporting a failure, in which case changes since the last build have been missed
+        if (watcherFailed || !isRetentionEnabled() || !isWatcherRunning()) {
+            stop();
+            fileSystemMirror.invalidateAll();
+        }
+    }
+
+    @Override
+    public void beforeComplete() {
+        if (fileSystemMirror == null) {
+            return;
+        }
+        boolean retain = isRetentionEnabled() && watchRetainedRoots();
+        fileSystemMirror.beforeBuildFinished(retain);
+        if (!retain) {
+            stop();
+        }
+    }
+
+    private boolean watchRetainedRoots() {
+        FileSystemSubset.Builder roots = FileSystemSubset.builder();
+        for (String root : fileSystemMirror.getRetainedRoots()) {
+            roots.add(new File(root));
+        }
+        synchronized (lock) {
+            try {
+                if (watcher != null && !watcher.isRunning()) {
+                    watcher.stop();
+                    watcher = null;
+                }
+                if (watcher == null) {
+                    watcherFailed = false;
+                    watcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                        @Override
+                        public void execute(Throwable failure) {
+                            LOGGER.debug("Failure while watching the file system, discarding retained file system state.", failure);
+                            watcherFailed = true;
+                            fileSystemMirror.invalidateAll();
+                        }
+                    }, new FileWatcherListener() {
+                        @Override
+                        public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                            invalidate(event);
+                        }
+                    });
+                }
+                watcher.watch(roots.build());
+                return !watcherFailed;
+            } catch (Exception e) {
+                LOGGER.debug("Could not watch the file system, discarding retained file system state.", e);
+                return false;
+            }
+        }
+    }
+
+    private void invalidate(FileWatcherEvent event) {
+        File file = event.getFile();
+        if (event.getType() == FileWatcherEvent.Type.UNDEFINED || file == null) {
+            fileSystemMirror.invalidateAll();
+        } else {
+            fileSystemMirror.invalidate(file.getAbsolutePath());
+        }
+    }
+
+    private boolean isWatcherRunning() {
+        synchronized (lock) {
+            return watcher != null && watcher.isRunning();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            if (watcher != null) {
+                watcher.stop();
+                watcher = null;
+            }
+        }
+    }
+
+    private static boolean isRetentionEnabled() {
+        return Boolean.getBoolean(RETENTION_ENABLED_PROPERTY);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.local;
+
+import org.gradle.cache.CleanupAction;
+import org.gradle.cache.internal.AbstractCacheCleanup;
+import org.gradle.cache.internal.SingleDepthFilesFinder;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A store of file content keyed by the SHA1 of the content, which other file stores link their entries to so that identical content is only stored once.
+ *
+ * Each entry in this store is a hard link to the same file as the entries of the other stores that have the same content. The link count of an entry
+ * is its reference count: an entry whose link count drops to 1 is no longer referenced by any other store and is removed by {@link #createCleanupAction()}.
+ * Deleting an entry never affects the entries linked to it, so when link counts are not available, entries are removed unconditionally on cleanup,
+ * which only means that content downloaded before the cleanup is not shared with content downloaded after it.
+ *
+ * Because linked entries share their content, modifying one of them in place modifies all of them, which is why this is not enabled by default.
+ * Sharing is enabled by setting the {@value #ENABLED_PROPERTY} system property. The store must be on the same file system as the stores linking to it.
+ * Access must be organised externally, in the same way as for the stores linking to it.
+ */
+public class ContentAddressedFileStore {
+    public static final String ENABLED_PROPERTY = "org.gradle.unsafe.artifact-cache.deduplicate";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentAddressedFileStore.class);
+    private static final int FILE_TREE_DEPTH_TO_CLEANUP = 2;
+
+    private final File baseDir;
+
+    public ContentAddressedFileStore(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    public File getBaseDir() {
+        return baseDir;
+    }
+
+    /**
+     * Moves the given source file, whose content has the given SHA1, to the given destination. When this store already contains the same content,
+     * the destination is linked to it and the source is left in place for the caller to discard. Otherwise, the source is moved and this store
+     * links to it.
+     */
+    public void moveAndLink(String sha1, File source, File destination) {
+        File content = getContentFile(sha1);
+        if (content.isFile() && content.length() == source.length() && createLink(destination, content)) {
+            return;
+        }
+        GFileUtils.moveExistingFile(source, destination);
+        if (content.exists()) {
+            // The content does not match the checksum anymore, or could not be linked
+            GFileUtils.deleteQuietly(content);
+        }
+        GFileUtils.parentMkdirs(content);
+        createLink(content, destination);
+    }
+
+    private File getContentFile(String sha1) {
+        return new File(new File(baseDir, sha1.substring(0, 2)), sha1);
+    }
+
+    private static boolean createLink(File link, File existing) {
+        try {
+            Files.createLink(link.toPath(), existing.toPath());
+            return true;
+        } catch (IOException e) {
+            LOGGER.debug("Could not link {} to {}.", link, existing, e);
+            return false;
+        } catch (UnsupportedOperationException e) {
+            LOGGER.debug("Could not link {} to {}.", link, existing, e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of links to the given file, or -1 when the file system does not report it.
+     */
+    static int getLinkCount(File file) {
+        try {
+            return (Integer) Files.getAttribute(file.toPath(), "unix:nlink");
+        } catch (IOException e) {
+            return -1;
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Creates an action that removes the entries of this store that are no longer linked to by any other store.
+     */
+    public static CleanupAction createCleanupAction() {
+        return new AbstractCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_CLEANUP)) {
+            @Override
+            protected boolean shouldDelete(File file) {
+                int linkCount = getLinkCount(file);
+                return linkCount == 1 || linkCount < 0;
+            }
+
+            @Override
+            protected void handleDeletion(File file) {
+            }
+        };
+    }
+}
@@ -15,12 +15,14 @@
  */
 package org.gradle.internal.resource.local;
 
+import org.apache.commons.io.FileUtils;
 import org.gradle.api.Action;
 import org.gradle.api.Namer;
 import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.hash.HashUtil;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Set;
 
@@ -36,9 +38,19 @@
     private final Grouper<K> grouper;
     private final Namer<K> namer;
     private final FileAccessTracker checksumDirAccessTracker;
+    @Nullable
+    private final ContentAddressedFileStore contentStore;
 
     public GroupedAndNamedUniqueFileStore(File baseDir, TemporaryFileProvider temporaryFileProvider, FileAccessTimeJournal fileAccessTimeJournal, Grouper<K> grouper, Namer<K> namer) {
+        this(baseDir, temporaryFileProvider, fileAccessTimeJournal, grouper, namer, null);
+    }
+
+    /**
+     * Creates a store whose entries share their content with the entries of other stores via the given content store, when not null.
+     */
+    public GroupedAndNamedUniqueFileStore(File baseDir, TemporaryFileProvider temporaryFileProvider, FileAccessTimeJournal fileAccessTimeJournal, Grouper<K> grouper, Namer<K> namer, @Nullable ContentAddressedFileStore contentStore) {
         this.delegate = new UniquePathKeyFileStore(baseDir);
+        this.contentStore = contentStore;
         this.temporaryFileProvider = temporaryFileProvider;
         this.grouper = grouper;
         this.namer = namer;
@@ -47,7 +59,7 @@ public GroupedAndNamedUniqueFileStore(File baseDir, TemporaryFileProvider tempor
 
     @Override
     public LocallyAvailableResource move(K key, File source) {
-        return markAccessed(delegate.move(toPath(key, getChecksum(source)), source));
+        return markAccessed(moveIntoStore(key, getChecksum(source), source));
     }
 
     @Override
@@ -80,8 +92,22 @@ public LocallyAvailableResource add(K key, Action<File> addAction) {
         //and reexecuting the action isn't acceptable
         final File tempFile = getTempFile();
         addAction.execute(tempFile);
-        final String groupedAndNamedKey = toPath(key, getChecksum(tempFile));
-        return markAccessed(delegate.move(groupedAndNamedKey, tempFile));
+        return markAccessed(moveIntoStore(key, getChecksum(tempFile), tempFile));
+    }
+
+    private LocallyAvailableResource moveIntoStore(K key, final String checksum, final File source) {
+        String groupedAndNamedKey = toPath(key, checksum);
+        if (contentStore == null) {
+            return delegate.move(groupedAndNamedKey, source);
+        }
+        LocallyAvailableResource resource = delegate.add(groupedAndNamedKey, new Action<File>() {
+            @Override
+            public void execute(File destination) {
+                contentStore.moveAndLink(checksum, source, destination);
+            }
+        });
+        FileUtils.deleteQuietly(source);
+        return resource;
     }
 
     private LocallyAvailableResource markAccessed(LocallyAvailableResource resource) {
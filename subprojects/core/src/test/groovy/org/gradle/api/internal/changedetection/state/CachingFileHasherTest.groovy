@@ -23,6 +23,7 @@ import org.gradle.cache.PersistentIndexedCache
 import org.gradle.internal.file.impl.DefaultFileMetadata
 import org.gradle.internal.hash.FileHasher
 import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -42,7 +43,7 @@ class CachingFileHasherTest extends Specification {
 
     def setup() {
         file.write("some-content")
-        1 * cacheAccess.createCache({ it.cacheName == "fileHashes"  }, _, _) >> cache
+        1 * cacheAccess.createCache({ it.cacheName == "fileHashes"  }, 400000, true) >> cache
         hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem)
     }
 
@@ -67,6 +68,41 @@ class CachingFileHasherTest extends Specification {
         0 * _._
     }
 
+    def "reuses hashes from an off-heap cache shared with a previous session"() {
+        def offHeapCache = new OffHeapFileHashCache(10)
+        def contentHash = Hashing.md5().hashString("some-content")
+        def stat = fileSystem.stat(file)
+        2 * cacheAccess.createCache({ it.cacheName == "fileHashes" }, 10000, true) >> cache
+        def firstSession = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, offHeapCache)
+        def secondSession = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, offHeapCache)
+
+        when:
+        def result = firstSession.hash(file)
+
+        then:
+        result == contentHash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * cache.get(file.absolutePath) >> null
+        1 * target.hash(file) >> contentHash
+        1 * cache.put(file.absolutePath, _)
+        0 * _._
+
+        when:
+        result = secondSession.hash(file)
+
+        then:
+        result == contentHash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        0 * _._
+
+        cleanup:
+        offHeapCache.stop()
+    }
+
     def hashesFileWhenLengthHasChanged() {
         def stat = fileSystem.stat(file)
 
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import spock.lang.Specification
+
+class OffHeapFileHashCacheTest extends Specification {
+    def cache = new OffHeapFileHashCache(3)
+
+    def "returns hash when length and timestamp match"() {
+        def hash = hash("content")
+
+        when:
+        cache.put("/some/file", 10, 100, hash)
+
+        then:
+        cache.get("/some/file", 10, 100) == hash
+        cache.get("/some/file", 11, 100) == null
+        cache.get("/some/file", 10, 101) == null
+        cache.get("/other/file", 10, 100) == null
+    }
+
+    def "updates and removes entries"() {
+        when:
+        cache.put("/some/file", 10, 100, hash("old"))
+        cache.put("/some/file", 12, 200, hash("new"))
+
+        then:
+        cache.size() == 1
+        cache.get("/some/file", 10, 100) == null
+        cache.get("/some/file", 12, 200) == hash("new")
+
+        when:
+        cache.remove("/some/file")
+        cache.remove("/unknown")
+
+        then:
+        cache.size() == 0
+        cache.get("/some/file", 12, 200) == null
+    }
+
+    def "evicts least recently used entry when full"() {
+        cache.put("/a", 1, 1, hash("a"))
+        cache.put("/b", 1, 1, hash("b"))
+        cache.put("/c", 1, 1, hash("c"))
+
+        when:
+        cache.get("/a", 1, 1)
+        cache.put("/d", 1, 1, hash("d"))
+
+        then:
+        cache.size() == 3
+        cache.get("/a", 1, 1) == hash("a")
+        cache.get("/b", 1, 1) == null
+        cache.get("/c", 1, 1) == hash("c")
+        cache.get("/d", 1, 1) == hash("d")
+    }
+
+    def "does not store hashes of a different size"() {
+        when:
+        cache.put("/some/file", 10, 100, HashCode.fromInt(123))
+
+        then:
+        cache.size() == 0
+        cache.get("/some/file", 10, 100) == null
+    }
+
+    def "is empty and ignores updates once stopped"() {
+        cache.put("/some/file", 10, 100, hash("content"))
+
+        when:
+        cache.stop()
+        cache.put("/other/file", 10, 100, hash("other"))
+        cache.remove("/some/file")
+
+        then:
+        cache.size() == 0
+        cache.get("/some/file", 10, 100) == null
+        cache.get("/other/file", 10, 100) == null
+
+        when:
+        cache.stop()
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "cache without entries is disabled"() {
+        def disabled = new OffHeapFileHashCache(0)
+
+        when:
+        disabled.put("/some/file", 10, 100, hash("content"))
+
+        then:
+        !disabled.enabled
+        disabled.get("/some/file", 10, 100) == null
+
+        cleanup:
+        disabled.stop()
+    }
+
+    private static HashCode hash(String content) {
+        Hashing.md5().hashString(content)
+    }
+}
@@ -30,6 +30,7 @@ import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperation
 import org.gradle.caching.internal.services.BuildCacheControllerFactory
 import org.gradle.caching.local.DirectoryBuildCache
 import org.gradle.caching.local.internal.LocalBuildCacheService
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.util.Path
 import org.gradle.util.TestUtil
@@ -66,7 +67,10 @@ class BuildCacheControllerFactoryTest extends Specification {
             ONLINE,
             logStacktraces,
             emitDebugLogging,
-            TestUtil.instantiatorFactory().inject()
+            TestUtil.instantiatorFactory().inject(),
+            new DefaultExecutorFactory(),
+            false,
+            false
         )
         assert controllerType.isInstance(controller)
         controllerType.cast(controller)
@@ -235,6 +239,11 @@ class BuildCacheControllerFactoryTest extends Specification {
 
         }
 
+        @Override
+        boolean containsLocally(BuildCacheKey key) {
+            return false
+        }
+
         @Override
         boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
             return false
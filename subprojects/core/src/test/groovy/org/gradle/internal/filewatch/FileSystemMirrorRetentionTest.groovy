@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch
+
+import org.gradle.api.internal.file.FileSystemSubset
+import org.gradle.internal.snapshot.impl.DefaultFileSystemMirror
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class FileSystemMirrorRetentionTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def mirror = Mock(DefaultFileSystemMirror)
+    def watcher = Mock(FileWatcher)
+    def fileWatcherFactory = Mock(FileWatcherFactory)
+    def retention = new FileSystemMirrorRetention(fileWatcherFactory)
+
+    def setup() {
+        retention.attach(mirror)
+    }
+
+    def "discards state at the end of the build when retention is not enabled"() {
+        when:
+        retention.beforeComplete()
+
+        then:
+        1 * mirror.beforeBuildFinished(false)
+        0 * fileWatcherFactory._
+    }
+
+    def "watches retained roots and invalidates changed files when retention is enabled"() {
+        def root = new File("root").absoluteFile
+        def changed = new File(root, "changed")
+        FileWatcherListener listener = null
+        System.setProperty(FileSystemMirrorRetention.RETENTION_ENABLED_PROPERTY, "true")
+
+        when:
+        retention.beforeComplete()
+
+        then:
+        1 * mirror.getRetainedRoots() >> ([root.path] as Set)
+        1 * fileWatcherFactory.watch(_, _) >> { onError, l ->
+            listener = l
+            watcher
+        }
+        1 * watcher.watch({ FileSystemSubset subset -> subset.roots as List == [root] })
+        1 * mirror.beforeBuildFinished(true)
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.modify(changed))
+
+        then:
+        1 * mirror.invalidate(changed.absolutePath)
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.undefined())
+
+        then:
+        1 * mirror.invalidateAll()
+    }
+
+    def "discards retained state when the watcher cannot be registered"() {
+        System.setProperty(FileSystemMirrorRetention.RETENTION_ENABLED_PROPERTY, "true")
+
+        when:
+        retention.beforeComplete()
+
+        then:
+        1 * mirror.getRetainedRoots() >> ([new File("root").absolutePath] as Set)
+        1 * fileWatcherFactory.watch(_, _) >> watcher
+        1 * watcher.watch(_) >> { throw new IOException("broken") }
+        1 * mirror.beforeBuildFinished(false)
+        1 * watcher.stop()
+    }
+
+    def "discards retained state when the watcher has stopped since the last build"() {
+        System.setProperty(FileSystemMirrorRetention.RETENTION_ENABLED_PROPERTY, "true")
+
+        when:
+        retention.beforeComplete()
+
+        then:
+        1 * mirror.getRetainedRoots() >> ([new File("root").absolutePath] as Set)
+        1 * fileWatcherFactory.watch(_, _) >> watcher
+        1 * mirror.beforeBuildFinished(true)
+
+        when:
+        retention.afterStart()
+
+        then:
+        1 * watcher.isRunning() >> false
+        1 * watcher.stop()
+        1 * mirror.invalidateAll()
+    }
+
+    def "keeps retained state when the watcher is still running"() {
+        System.setProperty(FileSystemMirrorRetention.RETENTION_ENABLED_PROPERTY, "true")
+
+        when:
+        retention.beforeComplete()
+        retention.afterStart()
+
+        then:
+        1 * mirror.getRetainedRoots() >> ([new File("root").absolutePath] as Set)
+        1 * fileWatcherFactory.watch(_, _) >> watcher
+        1 * mirror.beforeBuildFinished(true)
+        1 * watcher.isRunning() >> true
+        0 * mirror.invalidateAll()
+        0 * watcher.stop()
+    }
+
+    def "stops the watcher when stopped"() {
+        System.setProperty(FileSystemMirrorRetention.RETENTION_ENABLED_PROPERTY, "true")
+        fileWatcherFactory.watch(_, _) >> watcher
+        mirror.getRetainedRoots() >> ([new File("root").absolutePath] as Set)
+        retention.beforeComplete()
+
+        when:
+        retention.stop()
+
+        then:
+        1 * watcher.stop()
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.local
+
+import org.gradle.cache.CleanableStore
+import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Subject
+
+@Requires(TestPrecondition.NOT_WINDOWS)
+class ContentAddressedFileStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def baseDir = tmpDir.createDir("content")
+    @Subject def store = new ContentAddressedFileStore(baseDir)
+
+    def "moves first file with some content and links later files with the same content to it"() {
+        def first = tmpDir.createFile("first") << "content"
+        def second = tmpDir.createFile("second") << "content"
+        def firstDestination = tmpDir.file("store/a/file")
+        def secondDestination = tmpDir.file("store/b/file")
+        firstDestination.parentFile.mkdirs()
+        secondDestination.parentFile.mkdirs()
+
+        when:
+        store.moveAndLink("abcdef", first, firstDestination)
+
+        then:
+        !first.exists()
+        firstDestination.text == "content"
+        baseDir.file("ab/abcdef").text == "content"
+        ContentAddressedFileStore.getLinkCount(firstDestination) == 2
+
+        when:
+        store.moveAndLink("abcdef", second, secondDestination)
+
+        then:
+        second.exists()
+        secondDestination.text == "content"
+        ContentAddressedFileStore.getLinkCount(secondDestination) == 3
+    }
+
+    def "does not link to content that no longer matches"() {
+        def first = tmpDir.createFile("first") << "content"
+        def second = tmpDir.createFile("second") << "content"
+        def firstDestination = tmpDir.file("store/a/file")
+        def secondDestination = tmpDir.file("store/b/file")
+        firstDestination.parentFile.mkdirs()
+        secondDestination.parentFile.mkdirs()
+        store.moveAndLink("abcdef", first, firstDestination)
+
+        when:
+        firstDestination.text = "modified content"
+        store.moveAndLink("abcdef", second, secondDestination)
+
+        then:
+        !second.exists()
+        secondDestination.text == "content"
+        baseDir.file("ab/abcdef").text == "content"
+        ContentAddressedFileStore.getLinkCount(firstDestination) == 1
+        ContentAddressedFileStore.getLinkCount(secondDestination) == 2
+    }
+
+    def "cleanup removes content that is no longer linked to"() {
+        def used = tmpDir.createFile("used") << "used"
+        def unused = tmpDir.createFile("unused") << "unused"
+        def usedDestination = tmpDir.file("store/used")
+        def unusedDestination = tmpDir.file("store/unused")
+        usedDestination.parentFile.mkdirs()
+        store.moveAndLink("aa1111", used, usedDestination)
+        store.moveAndLink("bb2222", unused, unusedDestination)
+        unusedDestination.delete()
+
+        when:
+        ContentAddressedFileStore.createCleanupAction().clean(Stub(CleanableStore) {
+            getBaseDir() >> baseDir
+            getReservedCacheFiles() >> []
+        }, Stub(CleanupProgressMonitor))
+
+        then:
+        baseDir.file("aa/aa1111").exists()
+        !baseDir.file("bb/bb2222").exists()
+        !baseDir.file("bb").exists()
+        usedDestination.text == "used"
+    }
+}
@@ -21,6 +21,8 @@ import org.gradle.api.internal.file.TemporaryFileProvider
 import org.gradle.internal.file.FileAccessTimeJournal
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
 import org.junit.Rule
 import spock.lang.Specification
 import spock.lang.Subject
@@ -71,4 +73,24 @@ class GroupedAndNamedUniqueFileStoreTest extends Specification {
         then:
         1 * fileAccessTimeJournal.setLastAccessTime(baseDir.file('group'), _)
     }
+
+    @Requires(TestPrecondition.NOT_WINDOWS)
+    def "entries with the same content share it when a content store is used"() {
+        given:
+        def contentStore = new ContentAddressedFileStore(tmpDir.createDir("content"))
+        def sharingFileStore = new GroupedAndNamedUniqueFileStore<String>(baseDir, temporaryFileProvider, fileAccessTimeJournal, grouper, { key -> key }, contentStore)
+
+        when:
+        def first = sharingFileStore.add('1', { it.text = 'Hello, World!' })
+        def second = sharingFileStore.add('2', { it.text = 'Hello, World!' })
+        def source = tmpDir.createFile("3.txt") << 'Hello, World!'
+        def third = sharingFileStore.move('3', source)
+
+        then:
+        first.file.text == 'Hello, World!'
+        second.file.text == 'Hello, World!'
+        third.file.text == 'Hello, World!'
+        !source.exists()
+        ContentAddressedFileStore.getLinkCount(first.file) == 4
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a corpus of POMs into a DOM, as was previously done, with parsing them using {@link PomStaxParser}.
+ *
+ * The corpus is made of the POMs found in the directory given by the {@code pomCorpus} system property, which defaults to the module cache
+ * of the current user, so run a build that resolves a large dependency graph first.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PomParserBenchmark {
+    private static final int MAX_POMS = 5000;
+
+    @Param({"dom", "stax"})
+    String parser;
+
+    List<byte[]> poms;
+    DocumentBuilderFactory documentBuilderFactory;
+    byte[] m2Entities;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        String defaultCorpus = new File(System.getProperty("user.home"), ".gradle/caches/modules-2/files-2.1").getAbsolutePath();
+        Path corpus = new File(System.getProperty("pomCorpus", defaultCorpus)).toPath();
+        poms = new ArrayList<byte[]>();
+        if (Files.isDirectory(corpus)) {
+            Files.walkFileTree(corpus, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (file.getFileName().toString().endsWith(".pom")) {
+                        poms.add(Files.readAllBytes(file));
+                    }
+                    return poms.size() < MAX_POMS ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+            });
+        }
+        if (poms.isEmpty()) {
+            throw new IllegalStateException("No POMs found in " + corpus + ", set the pomCorpus system property to a directory containing POMs.");
+        }
+        m2Entities = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setValidating(false);
+    }
+
+    @Benchmark
+    public void parseCorpus(Blackhole blackhole) throws Exception {
+        if (parser.equals("dom")) {
+            for (byte[] pom : poms) {
+                DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+                documentBuilder.setEntityResolver(new EntityResolver() {
+                    @Override
+                    public InputSource resolveEntity(String publicId, String systemId) {
+                        if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                            return new InputSource(new ByteArrayInputStream(m2Entities));
+                        }
+                        return null;
+                    }
+                });
+                blackhole.consume(documentBuilder.parse(new AddDTDFilterInputStream(new ByteArrayInputStream(pom)), "pom.xml"));
+            }
+        } else {
+            for (byte[] pom : poms) {
+                blackhole.consume(PomStaxParser.parse(new ByteArrayInputStream(pom), "pom.xml"));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.component.external.model;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.external.descriptor.MavenScope;
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor;
+import org.gradle.internal.component.external.model.maven.MavenDependencyType;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap retained by the component identifiers and dependency metadata of resolved configurations, with and without interning.
+ *
+ * Each configuration resolves a random subset of a shared pool of modules, and every module declares dependencies on other modules of the pool,
+ * as is the case for the configurations of the projects of a large build. The retained heap per configuration is reported as the
+ * {@code bytesPerConfiguration} secondary result.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ModuleMetadataMemoryBenchmark {
+    private static final String[] VERSIONS = {"1.0", "1.1", "2.0"};
+
+    @Param({"false", "true"})
+    boolean intern;
+
+    @Param({"500"})
+    int configurations;
+
+    @Param({"2000"})
+    int modules;
+
+    @Param({"200"})
+    int componentsPerConfiguration;
+
+    @Param({"10"})
+    int dependenciesPerComponent;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RetainedHeap {
+        public long bytesPerConfiguration;
+    }
+
+    @Benchmark
+    public Object resolveConfigurations(RetainedHeap retainedHeap) {
+        long before = usedHeap();
+        ImmutableModuleIdentifierFactory moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory();
+        Random random = new Random(42);
+        List<List<Object>> resolved = new ArrayList<List<Object>>(configurations);
+        for (int i = 0; i < configurations; i++) {
+            List<Object> configuration = new ArrayList<Object>(componentsPerConfiguration * 2);
+            for (int j = 0; j < componentsPerConfiguration; j++) {
+                int module = random.nextInt(modules);
+                configuration.add(componentId(moduleIdentifierFactory, module));
+                configuration.add(dependencies(moduleIdentifierFactory, module));
+            }
+            resolved.add(configuration);
+        }
+        retainedHeap.bytesPerConfiguration = (usedHeap() - before) / configurations;
+        return resolved;
+    }
+
+    private ModuleComponentIdentifier componentId(ImmutableModuleIdentifierFactory moduleIdentifierFactory, int module) {
+        ModuleComponentIdentifier id = DefaultModuleComponentIdentifier.newId(moduleId(moduleIdentifierFactory, module), version(module));
+        return intern ? ModuleMetadataInterner.internComponentId(id) : id;
+    }
+
+    private List<MavenDependencyDescriptor> dependencies(ImmutableModuleIdentifierFactory moduleIdentifierFactory, int module) {
+        List<MavenDependencyDescriptor> dependencies = new ArrayList<MavenDependencyDescriptor>(dependenciesPerComponent);
+        for (int i = 1; i <= dependenciesPerComponent; i++) {
+            // Derived from the module, so that the same module always declares the same dependencies
+            int target = (module * 31 + i * 17) % modules;
+            ModuleComponentSelector selector = DefaultModuleComponentSelector.newSelector(moduleId(moduleIdentifierFactory, target), version(target));
+            ExcludeMetadata exclude = new DefaultExclude(moduleId(moduleIdentifierFactory, (target + 1) % modules));
+            ImmutableList<ExcludeMetadata> excludes = ImmutableList.of(intern ? ModuleMetadataInterner.internExclude(exclude) : exclude);
+            if (intern) {
+                selector = ModuleMetadataInterner.internSelector(selector);
+                excludes = ModuleMetadataInterner.internList(excludes);
+            }
+            MavenDependencyDescriptor dependency = new MavenDependencyDescriptor(MavenScope.Compile, MavenDependencyType.DEPENDENCY, selector, null, excludes);
+            dependencies.add(intern ? ModuleMetadataInterner.internDependency(dependency) : dependency);
+        }
+        return dependencies;
+    }
+
+    private static ModuleIdentifier moduleId(ImmutableModuleIdentifierFactory moduleIdentifierFactory, int module) {
+        return moduleIdentifierFactory.module("org.group" + module % 50, "module" + module);
+    }
+
+    private static String version(int module) {
+        return VERSIONS[module % VERSIONS.length];
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -34,6 +34,7 @@
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.ExternalModuleIvyDependencyDescriptorFactory;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.LocalConfigurationMetadataBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.ProjectIvyDependencyDescriptorFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.transform.ArtifactTransformActionScheme;
 import org.gradle.api.internal.artifacts.transform.ArtifactTransformParameterScheme;
 import org.gradle.api.internal.artifacts.transform.CacheableTransformTypeAnnotationHandler;
@@ -55,6 +56,7 @@
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.PathSensitive;
+import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.internal.component.external.model.PreferJavaRuntimeVariant;
 import org.gradle.internal.instantiation.InstantiationScheme;
@@ -107,6 +109,10 @@ LocalComponentMetadataBuilder createLocalComponentMetaDataBuilder(LocalConfigura
         return new DefaultLocalComponentMetadataBuilder(localConfigurationMetadataBuilder);
     }
 
+    ResolvedGraphCache createResolvedGraphCache(CrossBuildInMemoryCacheFactory cacheFactory) {
+        return new ResolvedGraphCache(cacheFactory);
+    }
+
     ResourceConnectorFactory createFileConnectorFactory() {
         return new FileConnectorFactory();
     }
@@ -37,6 +37,13 @@ public interface ArtifactCacheMetadata {
      */
     File getExternalResourcesStoreDirectory();
 
+    /**
+     * Returns the root directory for the content addressed store shared by the module artifacts and external resources file stores.
+     *
+     * @return Content store location
+     */
+    File getContentStoreDirectory();
+
     /**
      * Returns the root directory for the meta-data file store.
      *
@@ -59,6 +59,8 @@ public enum CacheLayout {
 
     RESOURCES(ROOT, "resources", introducedIn("1.9-rc-1")),
 
+    CONTENT_STORE(ROOT, "content", introducedIn("6.0")),
+
     TRANSFORMS(null, "transforms", introducedIn("3.5-rc-1")
         .changedTo(2, "5.1")),
 
@@ -32,10 +32,12 @@
 import org.gradle.internal.Factory;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.resource.cached.ExternalResourceFileStore;
+import org.gradle.internal.resource.local.ContentAddressedFileStore;
 import org.gradle.internal.serialize.Serializer;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
+import java.util.Map;
 
 import static org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup.DEFAULT_MAX_AGE_IN_DAYS_FOR_EXTERNAL_CACHE_ENTRIES;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
@@ -64,6 +66,9 @@ private CleanupAction createCleanupAction(ArtifactCacheMetadata cacheMetaData, F
                 .add(cacheMetaData.getFileStoreDirectory(),
                     UnusedVersionsCacheCleanup.create(CacheLayout.FILE_STORE.getName(), CacheLayout.FILE_STORE.getVersionMapping(), usedGradleVersions),
                     new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(ArtifactIdentifierFileStore.FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, maxAgeInDays))
+                // Runs after the file stores have been cleaned up, so that content only referenced by removed entries is removed as well
+                .add(cacheMetaData.getContentStoreDirectory(),
+                    ContentAddressedFileStore.createCleanupAction())
                 .add(cacheMetaData.getMetaDataStoreDirectory().getParentFile(),
                     UnusedVersionsCacheCleanup.create(CacheLayout.META_DATA.getName(), CacheLayout.META_DATA.getVersionMapping(), usedGradleVersions))
                 .build();
@@ -119,6 +124,16 @@ public V create() {
             });
         }
 
+        @Override
+        public Map<K, V> getAll(final Iterable<? extends K> keys) {
+            return cache.useCache(new Factory<Map<K, V>>() {
+                @Override
+                public Map<K, V> create() {
+                    return persistentCache.getAll(keys);
+                }
+            });
+        }
+
         @Override
         public V get(final K key, final Transformer<? extends V, ? super K> producer) {
             return cache.useCache(new Factory<V>() {
@@ -139,6 +154,16 @@ public void run() {
             });
         }
 
+        @Override
+        public void putAll(final Map<? extends K, ? extends V> entries) {
+            cache.useCache(new Runnable() {
+                @Override
+                public void run() {
+                    persistentCache.putAll(entries);
+                }
+            });
+        }
+
         @Override
         public void remove(final K key) {
             cache.useCache(new Runnable() {
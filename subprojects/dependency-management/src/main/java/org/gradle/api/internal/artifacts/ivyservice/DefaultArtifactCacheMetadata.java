@@ -60,6 +60,11 @@ public File getExternalResourcesStoreDirectory() {
         return createCacheRelativeDir(CacheLayout.RESOURCES);
     }
 
+    @Override
+    public File getContentStoreDirectory() {
+        return createCacheRelativeDir(CacheLayout.CONTENT_STORE);
+    }
+
     @Override
     public File getMetaDataStoreDirectory() {
         return new File(createCacheRelativeDir(CacheLayout.META_DATA), "descriptors");
@@ -37,10 +37,14 @@
 import org.gradle.api.internal.artifacts.repositories.resolver.MetadataFetchingCost;
 import org.gradle.api.internal.component.ArtifactType;
 import org.gradle.internal.action.InstantiatingAction;
+import org.gradle.internal.component.external.descriptor.MavenScope;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
 import org.gradle.internal.component.external.model.FixedComponentArtifacts;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
 import org.gradle.internal.component.external.model.ModuleDependencyMetadata;
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor;
+import org.gradle.internal.component.external.model.maven.MavenModuleResolveMetadata;
 import org.gradle.internal.component.model.ComponentArtifactMetadata;
 import org.gradle.internal.component.model.ComponentOverrideMetadata;
 import org.gradle.internal.component.model.ComponentResolveMetadata;
@@ -59,6 +63,8 @@
 
 import java.io.File;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -73,6 +79,11 @@
  * and then store the result in the dependency resolution cache.
  */
 public class CachingModuleComponentRepository implements ModuleComponentRepository {
+    /**
+     * When set, the cached metadata of the modules a Maven module depends on is loaded in a single batch once the metadata of the module has been found in the cache.
+     */
+    public static final String PREFETCH_DEPENDENCY_METADATA_PROPERTY = "org.gradle.internal.resolution.prefetch-cached-dependency-metadata";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(CachingModuleComponentRepository.class);
 
     private final ModuleVersionsCache moduleVersionsCache;
@@ -222,6 +233,35 @@ private void resolveComponentMetaDataFromCache(ModuleComponentIdentifier moduleC
             result.resolved(metadata);
             // When age == 0, verified since the start of this build, assume the meta-data hasn't changed
             result.setAuthoritative(cachedMetadata.getAgeMillis() == 0);
+            if (Boolean.getBoolean(PREFETCH_DEPENDENCY_METADATA_PROPERTY)) {
+                prefetchDependenciesOf(metadata);
+            }
+        }
+
+        private void prefetchDependenciesOf(ModuleComponentResolveMetadata metadata) {
+            if (!(metadata instanceof MavenModuleResolveMetadata)) {
+                return;
+            }
+            List<ModuleComponentIdentifier> ids = new ArrayList<ModuleComponentIdentifier>();
+            for (MavenDependencyDescriptor dependency : ((MavenModuleResolveMetadata) metadata).getDependencies()) {
+                // Only prefetch dependencies that resolution will follow, so that BOMs do not load every managed module
+                if (dependency.isConstraint() || dependency.isOptional() || !isTransitiveScope(dependency.getScope())) {
+                    continue;
+                }
+                ModuleComponentSelector selector = dependency.getSelector();
+                String version = selector.getVersionConstraint().getRequiredVersion();
+                // Dynamic versions are not looked up by version, so they are simply not found
+                if (!version.isEmpty()) {
+                    ids.add(DefaultModuleComponentIdentifier.newId(selector.getModuleIdentifier(), version));
+                }
+            }
+            if (!ids.isEmpty()) {
+                moduleMetadataCache.prefetchModuleDescriptors(delegate, ids);
+            }
+        }
+
+        private boolean isTransitiveScope(MavenScope scope) {
+            return scope == MavenScope.Compile || scope == MavenScope.Runtime;
         }
 
         private ModuleComponentResolveMetadata getProcessedMetadata(int key, ModuleMetadataCache.CachedMetadata cachedMetadata) {
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An element of a POM, as retained by {@link PomStaxParser}. Only holds the name, the text content and the child elements,
+ * which is all that is needed to build a module descriptor from a POM. Instances are not modified once parsed and can be shared.
+ */
+public final class PomElement {
+    private final String name;
+    private String text;
+    private StringBuilder textBuilder;
+    private List<PomElement> children = Collections.emptyList();
+    private List<String> comments = Collections.emptyList();
+    private boolean hasChildElements;
+
+    PomElement(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the text directly contained in this element, ignoring the text of child elements.
+     */
+    public String getTextContent() {
+        return text == null ? "" : text;
+    }
+
+    public List<PomElement> getChildren() {
+        return children;
+    }
+
+    /**
+     * Returns the comments directly contained in this element. Only retained for the root element.
+     */
+    public List<String> getComments() {
+        return comments;
+    }
+
+    void appendText(String value) {
+        if (text == null && textBuilder == null) {
+            text = value;
+            return;
+        }
+        // Text split by entities or CDATA sections arrives in several chunks
+        if (textBuilder == null) {
+            textBuilder = new StringBuilder(text);
+            text = null;
+        }
+        textBuilder.append(value);
+    }
+
+    void addChild(PomElement child) {
+        hasChildElements = true;
+        if (children.isEmpty()) {
+            children = new ArrayList<PomElement>(4);
+        }
+        children.add(child);
+    }
+
+    /**
+     * Records that this element contains a child element that was not retained.
+     */
+    void skippedChild() {
+        hasChildElements = true;
+    }
+
+    void addComment(String comment) {
+        if (comments.isEmpty()) {
+            comments = new ArrayList<String>(1);
+        }
+        comments.add(comment);
+    }
+
+    void finish() {
+        if (textBuilder != null) {
+            text = textBuilder.toString();
+            textBuilder = null;
+        }
+        if (hasChildElements && text != null && text.trim().isEmpty()) {
+            text = null;
+        }
+        if (!children.isEmpty()) {
+            ((ArrayList<PomElement>) children).trimToSize();
+            children = Collections.unmodifiableList(children);
+        }
+        if (!comments.isEmpty()) {
+            comments = Collections.unmodifiableList(comments);
+        }
+    }
+
+    boolean hasChildElements() {
+        return hasChildElements;
+    }
+
+    @Override
+    public String toString() {
+        return "<" + name + ">";
+    }
+}
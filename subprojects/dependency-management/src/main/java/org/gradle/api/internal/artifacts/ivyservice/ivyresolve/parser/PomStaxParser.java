@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses a POM into a tree of {@link PomElement}s using a streaming StAX reader.
+ *
+ * Only the elements that are used to build a module descriptor are retained. Everything else, such as the build, reporting, developer and
+ * license sections, is skipped without being materialized.
+ */
+public final class PomStaxParser {
+    private static final String PROJECT = "project";
+    private static final String MODEL = "model";
+    private static final String DISTRIBUTION_MGT = "distributionManagement";
+    private static final String RELOCATION = "relocation";
+    private static final String PROFILES = "profiles";
+    private static final String PROFILE = "profile";
+    private static final Set<String> RETAINED_PROJECT_ELEMENTS = ImmutableSet.of(
+        "groupId", "artifactId", "version", "packaging", "parent", "properties", "dependencies", "dependencyManagement", DISTRIBUTION_MGT, PROFILES);
+    private static final Set<String> RETAINED_PROFILE_ELEMENTS = ImmutableSet.of(
+        "id", "activation", "properties", "dependencies", "dependencyManagement");
+
+    private static final byte[] M2_ENTITIES_RESOURCE;
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+
+    static {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        M2_ENTITIES_RESOURCE = bytes;
+
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the StAX classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+            XML_INPUT_FACTORY.setXMLResolver(new XMLResolver() {
+                @Override
+                public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                        return new ByteArrayInputStream(M2_ENTITIES_RESOURCE);
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private PomStaxParser() {
+    }
+
+    /**
+     * Parses the given POM content, returning its root element. The caller is responsible for checking that the root element is a project.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream));
+        try {
+            return parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static PomElement parse(XMLStreamReader reader) throws XMLStreamException {
+        PomElement root = null;
+        List<PomElement> open = new ArrayList<PomElement>();
+        int skipped = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (skipped > 0) {
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    skipped++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    skipped--;
+                }
+                continue;
+            }
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = elementName(reader);
+                    if (root == null) {
+                        root = new PomElement(name);
+                        open.add(root);
+                    } else if (isRetained(root, open, name)) {
+                        PomElement element = new PomElement(name);
+                        open.get(open.size() - 1).addChild(element);
+                        open.add(element);
+                    } else {
+                        open.get(open.size() - 1).skippedChild();
+                        skipped = 1;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    open.remove(open.size() - 1).finish();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!open.isEmpty()) {
+                        PomElement current = open.get(open.size() - 1);
+                        // Whitespace between child elements is not significant, so avoid materializing it
+                        if (!(current.hasChildElements() && reader.isWhiteSpace())) {
+                            current.appendText(reader.getText());
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    if (open.size() == 1) {
+                        root.addComment(reader.getText());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (root == null) {
+            throw new XMLStreamException("POM does not contain a root element");
+        }
+        return root;
+    }
+
+    private static boolean isRetained(PomElement root, List<PomElement> open, String name) {
+        if (!PROJECT.equals(root.getName()) && !MODEL.equals(root.getName())) {
+            return false;
+        }
+        int depth = open.size();
+        if (depth == 1) {
+            return RETAINED_PROJECT_ELEMENTS.contains(name);
+        }
+        String parentName = open.get(depth - 1).getName();
+        if (depth == 2 && DISTRIBUTION_MGT.equals(parentName)) {
+            return RELOCATION.equals(name);
+        }
+        if (depth == 3 && PROFILE.equals(parentName) && PROFILES.equals(open.get(1).getName())) {
+            return RETAINED_PROFILE_ELEMENTS.contains(name);
+        }
+        return true;
+    }
+
+    private static String elementName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        String localName = reader.getLocalName();
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
+        }
+        return prefix + ":" + localName;
+    }
+
+    public static String getTextContent(PomElement element) {
+        return element.getTextContent();
+    }
+
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return getTextContent(node);
+        } else {
+            return null;
+        }
+    }
+
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+}
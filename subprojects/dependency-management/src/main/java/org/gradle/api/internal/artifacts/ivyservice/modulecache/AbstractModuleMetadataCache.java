@@ -22,6 +22,12 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public abstract class AbstractModuleMetadataCache implements ModuleMetadataCache {
     private static final Logger LOGGER = LoggerFactory.getLogger(PersistentModuleMetadataCache.class);
     protected final BuildCommencedTimeProvider timeProvider;
@@ -36,6 +42,15 @@ public CachedMetadata getCachedModuleDescriptor(ModuleComponentRepository reposi
         return get(key);
     }
 
+    @Override
+    public void prefetchModuleDescriptors(ModuleComponentRepository repository, Collection<ModuleComponentIdentifier> ids) {
+        List<ModuleComponentAtRepositoryKey> keys = new ArrayList<ModuleComponentAtRepositoryKey>(ids.size());
+        for (ModuleComponentIdentifier id : ids) {
+            keys.add(createKey(repository, id));
+        }
+        prefetch(keys);
+    }
+
     @Override
     public CachedMetadata cacheMissing(ModuleComponentRepository repository, ModuleComponentIdentifier id) {
         LOGGER.debug("Recording absence of module descriptor in cache: {} [changing = {}]", id, false);
@@ -67,4 +82,24 @@ private ModuleMetadataCacheEntry createEntry(ModuleComponentResolveMetadata meta
     protected abstract void store(ModuleComponentAtRepositoryKey key, ModuleMetadataCacheEntry entry, CachedMetadata cachedMetaData);
 
     protected abstract CachedMetadata get(ModuleComponentAtRepositoryKey key);
+
+    /**
+     * Returns the entries for the given keys that are present in this cache.
+     */
+    protected Map<ModuleComponentAtRepositoryKey, CachedMetadata> getAll(Collection<ModuleComponentAtRepositoryKey> keys) {
+        Map<ModuleComponentAtRepositoryKey, CachedMetadata> entries = new HashMap<ModuleComponentAtRepositoryKey, CachedMetadata>();
+        for (ModuleComponentAtRepositoryKey key : keys) {
+            CachedMetadata metadata = get(key);
+            if (metadata != null) {
+                entries.put(key, metadata);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Loads the entries for the given keys ahead of their use. Does nothing by default.
+     */
+    protected void prefetch(Collection<ModuleComponentAtRepositoryKey> keys) {
+    }
 }
@@ -16,12 +16,18 @@
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.gradle.util.BuildCommencedTimeProvider;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class InMemoryModuleMetadataCache extends AbstractModuleMetadataCache {
     private Map<ModuleComponentAtRepositoryKey, CachedMetadata> inMemoryCache = Maps.newConcurrentMap();
+    private final Set<ModuleComponentAtRepositoryKey> prefetched = Sets.newConcurrentHashSet();
     private final AbstractModuleMetadataCache delegate;
 
     public InMemoryModuleMetadataCache(BuildCommencedTimeProvider timeProvider) {
@@ -46,6 +52,25 @@ protected CachedMetadata get(ModuleComponentAtRepositoryKey key) {
         return metadata;
     }
 
+    @Override
+    protected void prefetch(Collection<ModuleComponentAtRepositoryKey> keys) {
+        if (delegate == null) {
+            return;
+        }
+        // Look up each key at most once, including the keys that are not present in the delegate
+        List<ModuleComponentAtRepositoryKey> missing = new ArrayList<ModuleComponentAtRepositoryKey>();
+        for (ModuleComponentAtRepositoryKey key : keys) {
+            if (!inMemoryCache.containsKey(key) && prefetched.add(key)) {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Map.Entry<ModuleComponentAtRepositoryKey, CachedMetadata> entry : delegate.getAll(missing).entrySet()) {
+                inMemoryCache.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     @Override
     protected void store(ModuleComponentAtRepositoryKey key, ModuleMetadataCacheEntry entry, CachedMetadata cachedMetaData) {
         inMemoryCache.put(key, cachedMetaData);
@@ -22,6 +22,7 @@
 import org.gradle.internal.component.model.ModuleSource;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
 
 public interface ModuleMetadataCache {
     CachedMetadata cacheMissing(ModuleComponentRepository repository, ModuleComponentIdentifier id);
@@ -30,6 +31,12 @@ public interface ModuleMetadataCache {
 
     CachedMetadata getCachedModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier id);
 
+    /**
+     * Loads the cached entries of the given components, if any, so that they can later be returned by {@link #getCachedModuleDescriptor(ModuleComponentRepository, ModuleComponentIdentifier)}
+     * without accessing the persistent cache again.
+     */
+    void prefetchModuleDescriptors(ModuleComponentRepository repository, Collection<ModuleComponentIdentifier> ids);
+
     interface CachedMetadata {
         ResolvedModuleVersion getModuleVersion();
 
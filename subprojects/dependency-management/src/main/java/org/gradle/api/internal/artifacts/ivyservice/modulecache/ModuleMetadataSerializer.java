@@ -43,6 +43,7 @@
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
 import org.gradle.internal.component.external.model.ExternalDependencyDescriptor;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
+import org.gradle.internal.component.external.model.ModuleMetadataInterner;
 import org.gradle.internal.component.external.model.MutableComponentVariant;
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
 import org.gradle.internal.component.external.model.ivy.IvyDependencyDescriptor;
@@ -456,7 +457,7 @@ private ImmutableAttributes readAttributes() throws IOException {
         private void readVariantDependencies(MutableComponentVariant variant) throws IOException {
             int count = decoder.readSmallInt();
             for (int i = 0; i < count; i++) {
-                ModuleComponentSelector selector = componentSelectorSerializer.read(decoder);
+                ModuleComponentSelector selector = readSelector();
                 String reason = decoder.readNullableString();
                 ImmutableList<ExcludeMetadata> excludes = readVariantDependencyExcludes();
                 boolean inheriting = decoder.readBoolean();
@@ -467,7 +468,7 @@ private void readVariantDependencies(MutableComponentVariant variant) throws IOE
         private void readVariantConstraints(MutableComponentVariant variant) throws IOException {
             int count = decoder.readSmallInt();
             for (int i = 0; i < count; i++) {
-                ModuleComponentSelector selector = componentSelectorSerializer.read(decoder);
+                ModuleComponentSelector selector = readSelector();
                 String reason = decoder.readNullableString();
                 variant.addDependencyConstraint(selector.getGroup(), selector.getModule(), selector.getVersionConstraint(), reason, (ImmutableAttributes) selector.getAttributes());
             }
@@ -479,9 +480,13 @@ private ImmutableList<ExcludeMetadata> readVariantDependencyExcludes() throws IO
             for (int i = 0; i < len; i++) {
                 String group = readString();
                 String module = readString();
-                builder.add(excludeRuleConverter.createExcludeRule(group, module));
+                builder.add(ModuleMetadataInterner.internExclude(excludeRuleConverter.createExcludeRule(group, module)));
             }
-            return builder.build();
+            return ModuleMetadataInterner.internList(builder.build());
+        }
+
+        private ModuleComponentSelector readSelector() throws IOException {
+            return ModuleMetadataInterner.internSelector(componentSelectorSerializer.read(decoder));
         }
 
         private void readVariantFiles(MutableComponentVariant variant) throws IOException {
@@ -521,7 +526,7 @@ private void readInfoSection() throws IOException {
         }
 
         private ModuleComponentIdentifier readId() throws IOException {
-            return DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId(readString(), readString()), readString());
+            return ModuleMetadataInterner.internComponentId(DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId(readString(), readString()), readString()));
         }
 
         private Map<NamespaceId, String> readExtraInfo() throws IOException {
@@ -573,7 +578,7 @@ private List<IvyDependencyDescriptor> readIvyDependencies() throws IOException {
         }
 
         private IvyDependencyDescriptor readIvyDependency() throws IOException {
-            ModuleComponentSelector requested = componentSelectorSerializer.read(decoder);
+            ModuleComponentSelector requested = readSelector();
             SetMultimap<String, String> configMappings = readDependencyConfigurationMapping();
             List<Artifact> artifacts = readDependencyArtifactDescriptors();
             List<Exclude> excludes = readDependencyExcludes();
@@ -658,12 +663,12 @@ private List<MavenDependencyDescriptor> readMavenDependencies(Map<Integer, Maven
         private MavenDependencyDescriptor readMavenDependency(Map<Integer, MavenDependencyDescriptor> deduplicationDependencyCache) throws IOException {
             int mapping = decoder.readSmallInt();
             if (mapping == deduplicationDependencyCache.size()) {
-                ModuleComponentSelector requested = componentSelectorSerializer.read(decoder);
+                ModuleComponentSelector requested = readSelector();
                 IvyArtifactName artifactName = readNullableArtifact();
                 List<ExcludeMetadata> mavenExcludes = readMavenDependencyExcludes();
                 MavenScope scope = MavenScope.values()[decoder.readSmallInt()];
                 MavenDependencyType type = MavenDependencyType.values()[decoder.readSmallInt()];
-                MavenDependencyDescriptor mavenDependencyDescriptor = new MavenDependencyDescriptor(scope, type, requested, artifactName, mavenExcludes);
+                MavenDependencyDescriptor mavenDependencyDescriptor = ModuleMetadataInterner.internDependency(new MavenDependencyDescriptor(scope, type, requested, artifactName, mavenExcludes));
                 deduplicationDependencyCache.put(mapping, mavenDependencyDescriptor);
                 return mavenDependencyDescriptor;
             } else {
@@ -675,14 +680,14 @@ private MavenDependencyDescriptor readMavenDependency(Map<Integer, MavenDependen
 
         private List<ExcludeMetadata> readMavenDependencyExcludes() throws IOException {
             int len = readCount();
-            List<ExcludeMetadata> result = Lists.newArrayListWithCapacity(len);
+            ImmutableList.Builder<ExcludeMetadata> builder = ImmutableList.builderWithExpectedSize(len);
             for (int i = 0; i < len; i++) {
                 String moduleOrg = readString();
                 String moduleName = readString();
                 DefaultExclude rule = new DefaultExclude(moduleIdentifierFactory.module(moduleOrg, moduleName));
-                result.add(rule);
+                builder.add(ModuleMetadataInterner.internExclude(rule));
             }
-            return result;
+            return ModuleMetadataInterner.internList(builder.build());
         }
 
         private int readCount() throws IOException {
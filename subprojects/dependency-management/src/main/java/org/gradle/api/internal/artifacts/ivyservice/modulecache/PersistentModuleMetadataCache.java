@@ -35,6 +35,11 @@
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.util.BuildCommencedTimeProvider;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public class PersistentModuleMetadataCache extends AbstractModuleMetadataCache {
 
     private PersistentIndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> cache;
@@ -75,20 +80,43 @@ public CachedMetadata create() {
                 if (entry == null) {
                     return null;
                 }
-                if (entry.isMissing()) {
-                    return new DefaultCachedMetadata(entry, null, timeProvider);
-                }
-                MutableModuleComponentResolveMetadata metadata = moduleMetadataStore.getModuleDescriptor(key);
-                if (metadata == null) {
-                    // Descriptor file has been deleted - ignore the entry
-                    cache.remove(key);
-                    return null;
+                return toCachedMetadata(cache, key, entry);
+            }
+        });
+    }
+
+    @Override
+    protected Map<ModuleComponentAtRepositoryKey, CachedMetadata> getAll(final Collection<ModuleComponentAtRepositoryKey> keys) {
+        final PersistentIndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> cache = getCache();
+        return artifactCacheLockingManager.useCache(new Factory<Map<ModuleComponentAtRepositoryKey, CachedMetadata>>() {
+            @Override
+            public Map<ModuleComponentAtRepositoryKey, CachedMetadata> create() {
+                Map<ModuleComponentAtRepositoryKey, CachedMetadata> result = new HashMap<ModuleComponentAtRepositoryKey, CachedMetadata>();
+                for (Map.Entry<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> entry : cache.getAll(keys).entrySet()) {
+                    CachedMetadata cachedMetadata = toCachedMetadata(cache, entry.getKey(), entry.getValue());
+                    if (cachedMetadata != null) {
+                        result.put(entry.getKey(), cachedMetadata);
+                    }
                 }
-                return new DefaultCachedMetadata(entry, entry.configure(metadata), timeProvider);
+                return result;
             }
         });
     }
 
+    @Nullable
+    private CachedMetadata toCachedMetadata(PersistentIndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> cache, ModuleComponentAtRepositoryKey key, ModuleMetadataCacheEntry entry) {
+        if (entry.isMissing()) {
+            return new DefaultCachedMetadata(entry, null, timeProvider);
+        }
+        MutableModuleComponentResolveMetadata metadata = moduleMetadataStore.getModuleDescriptor(key);
+        if (metadata == null) {
+            // Descriptor file has been deleted - ignore the entry
+            cache.remove(key);
+            return null;
+        }
+        return new DefaultCachedMetadata(entry, entry.configure(metadata), timeProvider);
+    }
+
     @Override
     protected void store(final ModuleComponentAtRepositoryKey key, final ModuleMetadataCacheEntry entry, final CachedMetadata cachedMetadata) {
         if (entry.isMissing()) {
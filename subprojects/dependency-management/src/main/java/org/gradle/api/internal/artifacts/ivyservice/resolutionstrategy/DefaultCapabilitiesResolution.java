@@ -67,6 +67,11 @@ public void withCapability(Object notation, Action<? super CapabilityResolutionD
         withCapability(capabilityNotationParser.parseNotation(notation), action);
     }
 
+    @Override
+    public boolean hasRules() {
+        return !actions.isEmpty();
+    }
+
     @Override
     public void apply(CapabilitiesConflictHandler.ResolutionDetails details) {
         details.getCapabilityVersions().stream()
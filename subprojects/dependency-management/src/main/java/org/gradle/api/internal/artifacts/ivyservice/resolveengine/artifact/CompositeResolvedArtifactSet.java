@@ -47,6 +47,10 @@ public static ResolvedArtifactSet of(Collection<? extends ResolvedArtifactSet> s
         return new CompositeResolvedArtifactSet(filtered);
     }
 
+    List<ResolvedArtifactSet> getSets() {
+        return sets;
+    }
+
     @Override
     public Completion startVisit(BuildOperationQueue<RunnableBuildOperation> actions, AsyncArtifactListener listener) {
         List<Completion> results = new ArrayList<Completion>(sets.size());
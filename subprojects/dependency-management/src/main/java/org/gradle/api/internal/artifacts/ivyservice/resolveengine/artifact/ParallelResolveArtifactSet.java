@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact;
 
+import com.google.common.collect.Lists;
 import org.gradle.api.Action;
 import org.gradle.api.internal.file.FileCollectionInternal;
 import org.gradle.api.internal.file.FileCollectionStructureVisitor;
@@ -23,12 +24,24 @@
 import org.gradle.internal.operations.BuildOperationQueue;
 import org.gradle.internal.operations.RunnableBuildOperation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A wrapper that prepares artifacts in parallel when visiting the delegate.
  * This is done by collecting all artifacts to prepare and/or visit in a first step.
  * The collected artifacts are prepared in parallel and subsequently visited in sequence.
+ *
+ * When the {@value #STREAMING_PROPERTY} system property is set, large sets are instead prepared in chunks of at most {@value #DEFAULT_CHUNK_SIZE} sets,
+ * unless configured otherwise using the {@value #CHUNK_SIZE_PROPERTY} system property. Each chunk is visited while the next one is being prepared, so
+ * that the visitor can start before all artifacts have been prepared, and at most two chunks of prepared artifacts are held at the same time.
+ * When preparing an artifact fails, the chunks before it may already have been visited.
  */
 public abstract class ParallelResolveArtifactSet {
+    public static final String STREAMING_PROPERTY = "org.gradle.internal.resolution.streaming-artifact-visit";
+    public static final String CHUNK_SIZE_PROPERTY = "org.gradle.internal.resolution.streaming-artifact-visit.chunk-size";
+
+    private static final int DEFAULT_CHUNK_SIZE = 64;
     private static final EmptySet EMPTY = new EmptySet();
 
     public abstract void visit(ArtifactVisitor visitor);
@@ -37,15 +50,56 @@ public static ParallelResolveArtifactSet wrap(ResolvedArtifactSet artifacts, Bui
         if (artifacts == ResolvedArtifactSet.EMPTY) {
             return EMPTY;
         }
+        if (Boolean.getBoolean(STREAMING_PROPERTY)) {
+            List<ResolvedArtifactSet> sets = new ArrayList<ResolvedArtifactSet>();
+            collectSets(artifacts, sets);
+            int chunkSize = Math.max(1, Integer.getInteger(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE));
+            if (sets.size() > chunkSize) {
+                return new StreamingSet(Lists.partition(sets, chunkSize), buildOperationProcessor);
+            }
+        }
         return new VisitingSet(artifacts, buildOperationProcessor);
     }
 
+    private static void collectSets(ResolvedArtifactSet artifacts, List<ResolvedArtifactSet> sets) {
+        if (artifacts instanceof CompositeResolvedArtifactSet) {
+            for (ResolvedArtifactSet set : ((CompositeResolvedArtifactSet) artifacts).getSets()) {
+                collectSets(set, sets);
+            }
+        } else {
+            sets.add(artifacts);
+        }
+    }
+
     private static class EmptySet extends ParallelResolveArtifactSet {
         @Override
         public void visit(ArtifactVisitor visitor) {
         }
     }
 
+    private static class AsyncArtifactListenerAdapter implements ResolvedArtifactSet.AsyncArtifactListener {
+        private final ArtifactVisitor visitor;
+
+        AsyncArtifactListenerAdapter(ArtifactVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public void artifactAvailable(ResolvableArtifact artifact) {
+            // Don't care, collect the artifacts later (in the correct order)
+        }
+
+        @Override
+        public FileCollectionStructureVisitor.VisitType prepareForVisit(FileCollectionInternal.Source source) {
+            return visitor.prepareForVisit(source);
+        }
+
+        @Override
+        public boolean requireArtifactFiles() {
+            return visitor.requireArtifactFiles();
+        }
+    }
+
     private static class VisitingSet extends ParallelResolveArtifactSet {
         private final ResolvedArtifactSet artifacts;
         private final BuildOperationExecutor buildOperationProcessor;
@@ -65,40 +119,73 @@ public void visit(final ArtifactVisitor visitor) {
             visitAction.result.visit(visitor);
         }
 
-        private static class AsyncArtifactListenerAdapter implements ResolvedArtifactSet.AsyncArtifactListener {
+        private class StartVisitAction implements Action<BuildOperationQueue<RunnableBuildOperation>> {
             private final ArtifactVisitor visitor;
+            ResolvedArtifactSet.Completion result;
 
-            AsyncArtifactListenerAdapter(ArtifactVisitor visitor) {
+            StartVisitAction(ArtifactVisitor visitor) {
                 this.visitor = visitor;
             }
 
             @Override
-            public void artifactAvailable(ResolvableArtifact artifact) {
-                // Don't care, collect the artifacts later (in the correct order)
+            public void execute(BuildOperationQueue<RunnableBuildOperation> buildOperationQueue) {
+                result = artifacts.startVisit(buildOperationQueue, new AsyncArtifactListenerAdapter(visitor));
             }
+        }
+    }
 
-            @Override
-            public FileCollectionStructureVisitor.VisitType prepareForVisit(FileCollectionInternal.Source source) {
-                return visitor.prepareForVisit(source);
-            }
+    private static class StreamingSet extends ParallelResolveArtifactSet {
+        private final List<List<ResolvedArtifactSet>> chunks;
+        private final BuildOperationExecutor buildOperationProcessor;
 
-            @Override
-            public boolean requireArtifactFiles() {
-                return visitor.requireArtifactFiles();
+        StreamingSet(List<List<ResolvedArtifactSet>> chunks, BuildOperationExecutor buildOperationProcessor) {
+            this.chunks = chunks;
+            this.buildOperationProcessor = buildOperationProcessor;
+        }
+
+        @Override
+        public void visit(ArtifactVisitor visitor) {
+            AsyncArtifactListenerAdapter listener = new AsyncArtifactListenerAdapter(visitor);
+            ResolvedArtifactSet.Completion previous = null;
+            for (List<ResolvedArtifactSet> chunk : chunks) {
+                // Prepare the chunk, visiting the previous chunk in the meantime
+                StartChunkAction chunkAction = new StartChunkAction(chunk, listener, previous, visitor);
+                buildOperationProcessor.runAll(chunkAction);
+                if (chunkAction.visitFailure != null) {
+                    throw chunkAction.visitFailure;
+                }
+                previous = chunkAction.result;
             }
+            previous.visit(visitor);
         }
 
-        private class StartVisitAction implements Action<BuildOperationQueue<RunnableBuildOperation>> {
+        private static class StartChunkAction implements Action<BuildOperationQueue<RunnableBuildOperation>> {
+            private final List<ResolvedArtifactSet> chunk;
+            private final ResolvedArtifactSet.AsyncArtifactListener listener;
+            private final ResolvedArtifactSet.Completion previous;
             private final ArtifactVisitor visitor;
             ResolvedArtifactSet.Completion result;
+            RuntimeException visitFailure;
 
-            StartVisitAction(ArtifactVisitor visitor) {
+            StartChunkAction(List<ResolvedArtifactSet> chunk, ResolvedArtifactSet.AsyncArtifactListener listener, ResolvedArtifactSet.Completion previous, ArtifactVisitor visitor) {
+                this.chunk = chunk;
+                this.listener = listener;
+                this.previous = previous;
                 this.visitor = visitor;
             }
 
             @Override
             public void execute(BuildOperationQueue<RunnableBuildOperation> buildOperationQueue) {
-                result = artifacts.startVisit(buildOperationQueue, new AsyncArtifactListenerAdapter(visitor));
+                result = CompositeResolvedArtifactSet.of(chunk).startVisit(buildOperationQueue, listener);
+                if (previous != null) {
+                    try {
+                        previous.visit(visitor);
+                    } catch (RuntimeException e) {
+                        // Report the failure as is, rather than as a failure to populate the queue
+                        visitFailure = e;
+                        buildOperationQueue.cancel();
+                    }
+                }
             }
         }
     }
@@ -32,6 +32,7 @@
 import org.gradle.api.internal.attributes.AttributeMergingException;
 import org.gradle.api.internal.attributes.ImmutableAttributes;
 import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
+import org.gradle.internal.component.external.model.ModuleMetadataInterner;
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.component.model.ForcingDependencyMetadata;
 import org.gradle.internal.id.IdGenerator;
@@ -261,7 +262,7 @@ public void removeUnattachedDependency(EdgeState edge) {
     public ComponentState getVersion(ModuleVersionIdentifier id, ComponentIdentifier componentIdentifier) {
         ComponentState moduleRevision = versions.get(id);
         if (moduleRevision == null) {
-            moduleRevision = new ComponentState(idGenerator.generateId(), this, id, componentIdentifier, metaDataResolver);
+            moduleRevision = new ComponentState(idGenerator.generateId(), this, id, ModuleMetadataInterner.internComponentId(componentIdentifier), metaDataResolver);
             versions.put(id, moduleRevision);
         }
         return moduleRevision;
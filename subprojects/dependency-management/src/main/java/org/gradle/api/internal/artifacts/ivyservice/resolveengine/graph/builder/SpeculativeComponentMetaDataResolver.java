@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.descriptor.MavenScope;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor;
+import org.gradle.internal.component.external.model.maven.MavenModuleResolveMetadata;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ComponentMetaDataResolver} that fetches the metadata of components ahead of the traversal of the dependency graph.
+ *
+ * Whenever the metadata of a Maven module has been resolved, the modules it depends on with a fixed version are queued to be fetched in the background,
+ * and so on transitively, including the parent and imported POMs of those modules. At most {@value #DEFAULT_MAX_IN_FLIGHT} fetches run at the same time
+ * unless configured otherwise using the {@value #MAX_IN_FLIGHT_PROPERTY} system property. When the graph builder needs the metadata of a component
+ * that has been queued, it uses the fetched result, running the fetch itself when it has not started yet.
+ *
+ * Some of the fetched components may not end up in the graph, for example when conflict resolution selects another version or when the dependency
+ * is excluded, which is why this is only enabled by setting the {@value #ENABLED_PROPERTY} system property.
+ */
+public class SpeculativeComponentMetaDataResolver implements ComponentMetaDataResolver, Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.resolution.speculative-metadata-fetch";
+    public static final String MAX_IN_FLIGHT_PROPERTY = "org.gradle.internal.resolution.speculative-metadata-fetch.max-in-flight";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpeculativeComponentMetaDataResolver.class);
+    private static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    private static final int MAX_FETCHES = 10000;
+
+    private final ComponentMetaDataResolver delegate;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final BuildOperationRef parentOperation;
+    private final ManagedExecutor executor;
+    private final ConcurrentMap<ComponentIdentifier, FutureTask<BuildableComponentResolveResult>> fetches = new ConcurrentHashMap<ComponentIdentifier, FutureTask<BuildableComponentResolveResult>>();
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    private volatile boolean stopped;
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    public SpeculativeComponentMetaDataResolver(ComponentMetaDataResolver delegate, VersionSelectorScheme versionSelectorScheme, BuildOperationExecutor buildOperationExecutor, ExecutorFactory executorFactory) {
+        this.delegate = delegate;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.parentOperation = buildOperationExecutor.getCurrentOperation();
+        this.executor = executorFactory.create("Speculative metadata fetch", Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, DEFAULT_MAX_IN_FLIGHT));
+    }
+
+    @Override
+    public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+        FutureTask<BuildableComponentResolveResult> fetch = fetches.get(identifier);
+        if (fetch != null && hasNoOverrides(componentOverrideMetadata)) {
+            // Does nothing when the fetch has already started
+            fetch.run();
+            BuildableComponentResolveResult fetched = waitFor(fetch);
+            if (fetched.hasResult()) {
+                applyTo(fetched, result);
+                return;
+            }
+        }
+        delegate.resolve(identifier, componentOverrideMetadata, result);
+        fetchDependenciesOf(result);
+    }
+
+    @Override
+    public boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+        FutureTask<BuildableComponentResolveResult> fetch = fetches.get(identifier);
+        if (fetch != null && fetch.isDone()) {
+            return true;
+        }
+        return delegate.isFetchingMetadataCheap(identifier);
+    }
+
+    /**
+     * Discards the fetches that have not started yet, and waits for the running ones to complete.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        executor.stop();
+        LOGGER.debug("Speculatively fetched metadata for {} components.", fetches.size());
+    }
+
+    private static boolean hasNoOverrides(ComponentOverrideMetadata componentOverrideMetadata) {
+        return !componentOverrideMetadata.isChanging() && componentOverrideMetadata.getArtifacts().isEmpty() && componentOverrideMetadata.getClientModule() == null;
+    }
+
+    private static BuildableComponentResolveResult waitFor(FutureTask<BuildableComponentResolveResult> fetch) {
+        try {
+            return fetch.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private static void applyTo(BuildableComponentResolveResult fetched, BuildableComponentResolveResult result) {
+        fetched.applyTo(result);
+        if (fetched.getFailure() != null) {
+            result.failed(fetched.getFailure());
+        } else {
+            result.resolved(fetched.getMetadata());
+        }
+    }
+
+    /**
+     * Queues the fetch of the modules the given component depends on. This is done before the result is handed to the graph builder, so that the metadata is
+     * not accessed concurrently.
+     */
+    private void fetchDependenciesOf(BuildableComponentResolveResult result) {
+        if (stopped || !result.hasResult() || result.getFailure() != null) {
+            return;
+        }
+        ComponentResolveMetadata metadata = result.getMetadata();
+        if (!(metadata instanceof MavenModuleResolveMetadata)) {
+            return;
+        }
+        for (MavenDependencyDescriptor dependency : ((MavenModuleResolveMetadata) metadata).getDependencies()) {
+            if (dependency.isConstraint() || dependency.isOptional() || !isTransitiveScope(dependency.getScope())) {
+                continue;
+            }
+            ModuleComponentSelector selector = dependency.getSelector();
+            String version = selector.getVersionConstraint().getRequiredVersion();
+            if (version.isEmpty() || versionSelectorScheme.parseSelector(version).isDynamic()) {
+                continue;
+            }
+            fetch(DefaultModuleComponentIdentifier.newId(selector.getModuleIdentifier(), version));
+        }
+    }
+
+    private static boolean isTransitiveScope(MavenScope scope) {
+        return scope == MavenScope.Compile || scope == MavenScope.Runtime;
+    }
+
+    private void fetch(final ModuleComponentIdentifier identifier) {
+        if (fetches.containsKey(identifier) || fetchCount.incrementAndGet() > MAX_FETCHES) {
+            return;
+        }
+        FutureTask<BuildableComponentResolveResult> fetch = new FutureTask<BuildableComponentResolveResult>(new Callable<BuildableComponentResolveResult>() {
+            @Override
+            public BuildableComponentResolveResult call() {
+                final BuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+                if (stopped) {
+                    return result;
+                }
+                buildOperationExecutor.run(new RunnableBuildOperation() {
+                    @Override
+                    public void run(BuildOperationContext context) {
+                        delegate.resolve(identifier, new DefaultComponentOverrideMetadata(), result);
+                    }
+
+                    @Override
+                    public BuildOperationDescriptor.Builder description() {
+                        return BuildOperationDescriptor.displayName("Resolve " + identifier).parent(parentOperation);
+                    }
+                });
+                fetchDependenciesOf(result);
+                return result;
+            }
+        });
+        if (fetches.putIfAbsent(identifier, fetch) == null) {
+            try {
+                executor.execute(fetch);
+            } catch (RejectedExecutionException e) {
+                // Stopped in the meantime
+                fetches.remove(identifier, fetch);
+            }
+        }
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.artifacts.result.ResolvedVariantResult;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ComponentResolutionState;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolveOptimizations;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
+import org.gradle.internal.component.local.model.RootConfigurationMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.LocalOriginDependencyMetadata;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+
+import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A resolved dependency graph, detached from the state of the build that resolved it.
+ *
+ * Components, selectors and the metadata of the nodes are retained. Nodes and edges are recreated for each replay, so that the root node
+ * and the dependencies declared by the root refer to the configuration being resolved, rather than the one the graph was recorded from.
+ */
+class RecordedDependencyGraph {
+    private final ResolveOptimizations resolveOptimizations;
+    private final List<RecordedSelector> selectors;
+    private final List<NodeData> nodes;
+    private final List<EdgeData> edges;
+    private final int rootIndex;
+    private final int[] edgeVisitOrder;
+
+    private RecordedDependencyGraph(ResolveOptimizations resolveOptimizations, List<RecordedSelector> selectors, List<NodeData> nodes, List<EdgeData> edges, int rootIndex, int[] edgeVisitOrder) {
+        this.resolveOptimizations = resolveOptimizations;
+        this.selectors = selectors;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.rootIndex = rootIndex;
+        this.edgeVisitOrder = edgeVisitOrder;
+    }
+
+    /**
+     * Records the given graph, as visited by the dependency graph builder.
+     *
+     * @return the recorded graph, or null when an edge refers to a node or selector that was not visited.
+     */
+    @Nullable
+    static RecordedDependencyGraph record(RootGraphNode root, List<DependencyGraphSelector> visitedSelectors, List<DependencyGraphNode> visitedNodes, List<DependencyGraphNode> edgeVisitOrder) {
+        Map<DependencyGraphSelector, RecordedSelector> selectors = new IdentityHashMap<DependencyGraphSelector, RecordedSelector>();
+        List<RecordedSelector> selectorList = new ArrayList<RecordedSelector>(visitedSelectors.size());
+        for (DependencyGraphSelector selector : visitedSelectors) {
+            RecordedSelector recordedSelector = new RecordedSelector(selector.getResultId(), selector.getRequested());
+            selectors.put(selector, recordedSelector);
+            selectorList.add(recordedSelector);
+        }
+
+        Map<DependencyGraphNode, Integer> nodeIndexes = new IdentityHashMap<DependencyGraphNode, Integer>();
+        for (DependencyGraphNode node : visitedNodes) {
+            nodeIndexes.put(node, nodeIndexes.size());
+        }
+        Integer rootIndex = nodeIndexes.get(root);
+        if (rootIndex == null) {
+            return null;
+        }
+
+        List<? extends LocalOriginDependencyMetadata> rootDependencies = root.getMetadata().getDependencies();
+        Map<DependencyGraphComponent, RecordedComponent> components = new IdentityHashMap<DependencyGraphComponent, RecordedComponent>();
+        Map<DependencyGraphEdge, Integer> edgeIndexes = new IdentityHashMap<DependencyGraphEdge, Integer>();
+        List<EdgeData> edges = new ArrayList<EdgeData>();
+        List<NodeData> nodes = new ArrayList<NodeData>(visitedNodes.size());
+        for (DependencyGraphNode node : visitedNodes) {
+            int[] incoming = new int[node.getIncomingEdges().size()];
+            int i = 0;
+            for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+                int edgeIndex = recordEdge(edge, root, rootDependencies, nodeIndexes, selectors, edgeIndexes, edges);
+                if (edgeIndex < 0) {
+                    return null;
+                }
+                List<ComponentArtifactMetadata> artifacts = node == root ? Collections.<ComponentArtifactMetadata>emptyList() : edge.getArtifacts(node.getMetadata());
+                if (!artifacts.isEmpty()) {
+                    edges.get(edgeIndex).artifacts.put(node.getMetadata(), ImmutableList.copyOf(artifacts));
+                }
+                incoming[i++] = edgeIndex;
+            }
+            int[] outgoing = new int[node.getOutgoingEdges().size()];
+            i = 0;
+            for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                int edgeIndex = recordEdge(edge, root, rootDependencies, nodeIndexes, selectors, edgeIndexes, edges);
+                if (edgeIndex < 0) {
+                    return null;
+                }
+                outgoing[i++] = edgeIndex;
+            }
+            RecordedComponent component = components.get(node.getOwner());
+            if (component == null) {
+                component = new RecordedComponent(node.getOwner(), node == root);
+                components.put(node.getOwner(), component);
+            }
+            ConfigurationMetadata metadata = node == root ? null : node.getMetadata();
+            nodes.add(new NodeData(node.getNodeId(), node.getResolvedConfigurationId(), component, metadata, node.isSelected(), node.getResolvedVariant(), incoming, outgoing));
+        }
+
+        int[] edgeOrder = new int[edgeVisitOrder.size()];
+        for (int i = 0; i < edgeOrder.length; i++) {
+            Integer nodeIndex = nodeIndexes.get(edgeVisitOrder.get(i));
+            if (nodeIndex == null) {
+                return null;
+            }
+            edgeOrder[i] = nodeIndex;
+        }
+        return new RecordedDependencyGraph(root.getResolveOptimizations(), selectorList, nodes, edges, rootIndex, edgeOrder);
+    }
+
+    private static int recordEdge(DependencyGraphEdge edge, RootGraphNode root, List<? extends LocalOriginDependencyMetadata> rootDependencies, Map<DependencyGraphNode, Integer> nodeIndexes, Map<DependencyGraphSelector, RecordedSelector> selectors, Map<DependencyGraphEdge, Integer> edgeIndexes, List<EdgeData> edges) {
+        Integer existing = edgeIndexes.get(edge);
+        if (existing != null) {
+            return existing;
+        }
+        Integer fromIndex = nodeIndexes.get(edge.getFrom());
+        RecordedSelector selector = selectors.get(edge.getSelector());
+        if (fromIndex == null || selector == null) {
+            return -1;
+        }
+        int originalDependencyIndex = -1;
+        Dependency originalDependency = edge.getOriginalDependency();
+        if (originalDependency != null) {
+            if (edge.getFrom() != root) {
+                return -1;
+            }
+            originalDependencyIndex = indexOf(originalDependency, rootDependencies);
+            if (originalDependencyIndex < 0) {
+                return -1;
+            }
+        }
+        int index = edges.size();
+        edges.add(new EdgeData(edge, fromIndex, selector, originalDependencyIndex));
+        edgeIndexes.put(edge, index);
+        return index;
+    }
+
+    private static int indexOf(Dependency dependency, List<? extends LocalOriginDependencyMetadata> rootDependencies) {
+        for (int i = 0; i < rootDependencies.size(); i++) {
+            LocalOriginDependencyMetadata candidate = rootDependencies.get(i);
+            if (candidate instanceof DslOriginDependencyMetadata && ((DslOriginDependencyMetadata) candidate).getSource() == dependency) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Visits the graph in the same order as the dependency graph builder, with the given configuration as the root.
+     */
+    void replay(RootConfigurationMetadata rootConfiguration, DependencyGraphVisitor visitor) {
+        Replay replay = new Replay(rootConfiguration);
+        RootGraphNode root = (RootGraphNode) replay.nodes[rootIndex];
+        visitor.start(root);
+        for (RecordedSelector selector : selectors) {
+            visitor.visitSelector(selector);
+        }
+        for (ReplayedNode node : replay.nodes) {
+            visitor.visitNode(node);
+        }
+        for (int nodeIndex : edgeVisitOrder) {
+            visitor.visitEdges(replay.nodes[nodeIndex]);
+        }
+        visitor.finish(root);
+    }
+
+    /**
+     * Returns the metadata of the module components of the graph, by component id.
+     */
+    Map<ComponentIdentifier, ComponentResolveMetadata> getComponentMetadata() {
+        Map<ComponentIdentifier, ComponentResolveMetadata> metadata = new HashMap<ComponentIdentifier, ComponentResolveMetadata>();
+        for (NodeData node : nodes) {
+            if (node.owner.metadata != null) {
+                metadata.put(node.owner.componentId, node.owner.metadata);
+            }
+        }
+        return metadata;
+    }
+
+    private class Replay {
+        private final RootConfigurationMetadata rootConfiguration;
+        private final ReplayedNode[] nodes;
+        private final ReplayedEdge[] edges;
+
+        Replay(RootConfigurationMetadata rootConfiguration) {
+            this.rootConfiguration = rootConfiguration;
+            this.nodes = new ReplayedNode[RecordedDependencyGraph.this.nodes.size()];
+            for (int i = 0; i < nodes.length; i++) {
+                NodeData data = RecordedDependencyGraph.this.nodes.get(i);
+                nodes[i] = i == rootIndex ? new ReplayedRootNode(this, data) : new ReplayedNode(this, data);
+            }
+            this.edges = new ReplayedEdge[RecordedDependencyGraph.this.edges.size()];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = new ReplayedEdge(this, RecordedDependencyGraph.this.edges.get(i));
+            }
+        }
+
+        List<ReplayedEdge> edges(final int[] indexes) {
+            return new AbstractList<ReplayedEdge>() {
+                @Override
+                public ReplayedEdge get(int index) {
+                    return edges[indexes[index]];
+                }
+
+                @Override
+                public int size() {
+                    return indexes.length;
+                }
+            };
+        }
+    }
+
+    private static class NodeData {
+        private final Long nodeId;
+        private final ResolvedConfigurationIdentifier resolvedConfigurationId;
+        private final RecordedComponent owner;
+        private final ConfigurationMetadata metadata;
+        private final boolean selected;
+        private final ResolvedVariantResult resolvedVariant;
+        private final int[] incomingEdges;
+        private final int[] outgoingEdges;
+
+        NodeData(Long nodeId, ResolvedConfigurationIdentifier resolvedConfigurationId, RecordedComponent owner, @Nullable ConfigurationMetadata metadata, boolean selected, ResolvedVariantResult resolvedVariant, int[] incomingEdges, int[] outgoingEdges) {
+            this.nodeId = nodeId;
+            this.resolvedConfigurationId = resolvedConfigurationId;
+            this.owner = owner;
+            this.metadata = metadata;
+            this.selected = selected;
+            this.resolvedVariant = resolvedVariant;
+            this.incomingEdges = incomingEdges;
+            this.outgoingEdges = outgoingEdges;
+        }
+    }
+
+    private static class EdgeData {
+        private final int from;
+        private final RecordedSelector selector;
+        private final int originalDependencyIndex;
+        private final ExcludeSpec exclusions;
+        private final boolean contributesArtifacts;
+        private final Map<ConfigurationMetadata, List<ComponentArtifactMetadata>> artifacts = new HashMap<ConfigurationMetadata, List<ComponentArtifactMetadata>>();
+        private final ImmutableAttributes attributes;
+        private final ComponentSelector requested;
+        private final Long selected;
+        private final boolean constraint;
+        private final ResolvedVariantResult fromVariant;
+        private final ResolvedVariantResult selectedVariant;
+
+        EdgeData(DependencyGraphEdge edge, int from, RecordedSelector selector, int originalDependencyIndex) {
+            this.from = from;
+            this.selector = selector;
+            this.originalDependencyIndex = originalDependencyIndex;
+            this.exclusions = edge.getExclusions();
+            this.contributesArtifacts = edge.contributesArtifacts();
+            this.attributes = edge.getAttributes();
+            this.requested = edge.getRequested();
+            this.selected = edge.getSelected();
+            this.constraint = edge.isConstraint();
+            this.fromVariant = edge.getFromVariant();
+            this.selectedVariant = edge.getSelectedVariant();
+        }
+    }
+
+    private static class RecordedSelector implements DependencyGraphSelector {
+        private final Long resultId;
+        private final ComponentSelector requested;
+
+        RecordedSelector(Long resultId, ComponentSelector requested) {
+            this.resultId = resultId;
+            this.requested = requested;
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+    }
+
+    private static class RecordedComponent implements DependencyGraphComponent {
+        private final Long resultId;
+        private final ComponentIdentifier componentId;
+        private final ModuleVersionIdentifier moduleVersion;
+        private final ComponentSelectionReason selectionReason;
+        private final String repositoryName;
+        private final List<ResolvedVariantResult> resolvedVariants;
+        private final ComponentResolveMetadata metadata;
+        private final List<ModuleVersionIdentifier> allVersions;
+
+        RecordedComponent(DependencyGraphComponent component, boolean root) {
+            this.resultId = component.getResultId();
+            this.componentId = component.getComponentId();
+            this.moduleVersion = component.getModuleVersion();
+            this.selectionReason = component.getSelectionReason();
+            this.repositoryName = component.getRepositoryName();
+            this.resolvedVariants = ImmutableList.copyOf(component.getResolvedVariants());
+            // The metadata of the root component belongs to the build that recorded the graph
+            this.metadata = root ? null : component.getMetadata();
+            this.allVersions = ImmutableList.copyOf(component.getAllVersions());
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return componentId;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return moduleVersion;
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return selectionReason;
+        }
+
+        @Nullable
+        @Override
+        public String getRepositoryName() {
+            return repositoryName;
+        }
+
+        @Override
+        public List<ResolvedVariantResult> getResolvedVariants() {
+            return resolvedVariants;
+        }
+
+        @Nullable
+        @Override
+        public ComponentResolveMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphComponent> getDependents() {
+            // Only used to report failures, and graphs with failures are not recorded
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<? extends ModuleVersionIdentifier> getAllVersions() {
+            return allVersions;
+        }
+    }
+
+    private static class ReplayedNode implements DependencyGraphNode {
+        final Replay replay;
+        final NodeData data;
+
+        ReplayedNode(Replay replay, NodeData data) {
+            this.replay = replay;
+            this.data = data;
+        }
+
+        @Override
+        public Long getNodeId() {
+            return data.nodeId;
+        }
+
+        @Override
+        public boolean isRoot() {
+            return false;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return data.resolvedConfigurationId;
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return data.owner;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return replay.edges(data.incomingEdges);
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return replay.edges(data.outgoingEdges);
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public ConfigurationMetadata getMetadata() {
+            return data.metadata;
+        }
+
+        @Override
+        public boolean isSelected() {
+            return data.selected;
+        }
+
+        @Override
+        public ComponentResolutionState getComponent() {
+            // The resolution state is discarded once the graph has been recorded
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResolvedVariantResult getResolvedVariant() {
+            return data.resolvedVariant;
+        }
+    }
+
+    private class ReplayedRootNode extends ReplayedNode implements RootGraphNode {
+        ReplayedRootNode(Replay replay, NodeData data) {
+            super(replay, data);
+        }
+
+        @Override
+        public boolean isRoot() {
+            return true;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return replay.rootConfiguration.getFiles();
+        }
+
+        @Override
+        public RootConfigurationMetadata getMetadata() {
+            return replay.rootConfiguration;
+        }
+
+        @Override
+        public ResolveOptimizations getResolveOptimizations() {
+            return resolveOptimizations;
+        }
+    }
+
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        private final Replay replay;
+        private final EdgeData data;
+
+        ReplayedEdge(Replay replay, EdgeData data) {
+            this.replay = replay;
+            this.data = data;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return replay.nodes[data.from];
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return data.selector;
+        }
+
+        @Override
+        public ExcludeSpec getExclusions() {
+            return data.exclusions;
+        }
+
+        @Override
+        public boolean contributesArtifacts() {
+            return data.contributesArtifacts;
+        }
+
+        @Override
+        public List<ComponentArtifactMetadata> getArtifacts(ConfigurationMetadata targetConfiguration) {
+            List<ComponentArtifactMetadata> artifacts = data.artifacts.get(targetConfiguration);
+            return artifacts == null ? Collections.<ComponentArtifactMetadata>emptyList() : artifacts;
+        }
+
+        @Override
+        public ImmutableAttributes getAttributes() {
+            return data.attributes;
+        }
+
+        @Nullable
+        @Override
+        public Dependency getOriginalDependency() {
+            if (data.originalDependencyIndex < 0) {
+                return null;
+            }
+            LocalOriginDependencyMetadata dependency = replay.rootConfiguration.getDependencies().get(data.originalDependencyIndex);
+            return dependency instanceof DslOriginDependencyMetadata ? ((DslOriginDependencyMetadata) dependency).getSource() : null;
+        }
+
+        @Override
+        public boolean isTargetVirtualPlatform() {
+            return false;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return data.requested;
+        }
+
+        @Nullable
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Long getSelected() {
+            return data.selected;
+        }
+
+        @Nullable
+        @Override
+        public ComponentSelectionReason getReason() {
+            return null;
+        }
+
+        @Override
+        public boolean isConstraint() {
+            return data.constraint;
+        }
+
+        @Override
+        public ResolvedVariantResult getFromVariant() {
+            return data.fromVariant;
+        }
+
+        @Override
+        public ResolvedVariantResult getSelectedVariant() {
+            return data.selectedVariant;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forwards a dependency graph to another visitor, and records the graph when it only depends on the inputs that key a {@link ResolvedGraphCache}.
+ */
+class RecordingDependencyGraphVisitor implements DependencyGraphVisitor {
+    private final DependencyGraphVisitor delegate;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ModuleReplacementsData moduleReplacements;
+    private final Action<? super RecordedDependencyGraph> onRecorded;
+    private final List<DependencyGraphSelector> selectors = new ArrayList<DependencyGraphSelector>();
+    private final List<DependencyGraphNode> nodes = new ArrayList<DependencyGraphNode>();
+    private final List<DependencyGraphNode> edgeVisitOrder = new ArrayList<DependencyGraphNode>();
+    private RootGraphNode root;
+    private boolean recordable = true;
+
+    RecordingDependencyGraphVisitor(DependencyGraphVisitor delegate, VersionSelectorScheme versionSelectorScheme, ModuleReplacementsData moduleReplacements, Action<? super RecordedDependencyGraph> onRecorded) {
+        this.delegate = delegate;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleReplacements = moduleReplacements;
+        this.onRecorded = onRecorded;
+    }
+
+    @Override
+    public void start(RootGraphNode root) {
+        delegate.start(root);
+        this.root = root;
+        recordable = !root.getResolveOptimizations().mayHaveVirtualPlatforms() && root.getOutgoingFileEdges().isEmpty();
+    }
+
+    @Override
+    public void visitNode(DependencyGraphNode node) {
+        delegate.visitNode(node);
+        if (recordable) {
+            recordable = node.isRoot() || isRecordable(node);
+            nodes.add(node);
+        }
+    }
+
+    @Override
+    public void visitSelector(DependencyGraphSelector selector) {
+        delegate.visitSelector(selector);
+        if (recordable) {
+            ComponentSelector requested = selector.getRequested();
+            recordable = requested instanceof ModuleComponentSelector
+                && !ResolvedGraphCache.isDynamic(((ModuleComponentSelector) requested).getVersionConstraint(), versionSelectorScheme);
+            selectors.add(selector);
+        }
+    }
+
+    @Override
+    public void visitEdges(DependencyGraphNode node) {
+        delegate.visitEdges(node);
+        if (recordable) {
+            for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                if (edge.getFailure() != null || edge.isTargetVirtualPlatform()) {
+                    recordable = false;
+                    return;
+                }
+            }
+            edgeVisitOrder.add(node);
+        }
+    }
+
+    @Override
+    public void finish(DependencyGraphNode root) {
+        delegate.finish(root);
+        if (recordable) {
+            RecordedDependencyGraph graph = RecordedDependencyGraph.record(this.root, selectors, nodes, edgeVisitOrder);
+            if (graph != null) {
+                onRecorded.execute(graph);
+            }
+        }
+        selectors.clear();
+        nodes.clear();
+        edgeVisitOrder.clear();
+    }
+
+    private boolean isRecordable(DependencyGraphNode node) {
+        DependencyGraphComponent owner = node.getOwner();
+        ComponentResolveMetadata metadata = owner.getMetadata();
+        return owner.getComponentId() instanceof ModuleComponentIdentifier
+            && metadata != null
+            && !metadata.isChanging()
+            && node.getOutgoingFileEdges().isEmpty()
+            && !moduleReplacements.participatesInReplacements(owner.getModuleVersion().getModule());
+    }
+}
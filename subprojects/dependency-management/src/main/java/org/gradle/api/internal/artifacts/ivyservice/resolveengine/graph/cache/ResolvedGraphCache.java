@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.DependencySubstitution;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.repositories.AbstractArtifactRepository;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.artifacts.repositories.descriptor.RepositoryDescriptor;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
+import org.gradle.cache.internal.CrossBuildInMemoryCache;
+import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
+import org.gradle.internal.Actions;
+import org.gradle.internal.component.local.model.RootConfigurationMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ForcingDependencyMetadata;
+import org.gradle.internal.component.model.LocalOriginDependencyMetadata;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Retains resolved dependency graphs across builds in the same daemon, so that resolving a configuration whose inputs have not changed
+ * can replay the previous graph to the result visitors instead of running the dependency graph builder again.
+ *
+ * Enabled by setting the {@value #ENABLED_PROPERTY} system property. A graph is keyed by the root component and configuration, the declared
+ * dependencies and constraints, the repositories and the rules that influence resolution. Only graphs whose result can be determined from
+ * the key are retained: all versions must be fixed, no module may be changing, the graph may contain no project or file dependencies, no
+ * virtual platforms and no failures, and the resolution strategy may not use substitution, forcing, component selection, capability or
+ * module replacement rules or dependency locking. Attributes schema rules and variant derivation strategies are not part of the key,
+ * which is why this is not enabled by default. Running with {@code --refresh-dependencies} discards all retained graphs.
+ *
+ * When only the declared dependencies and constraints of a configuration have changed since its graph was last retained, the graph is resolved
+ * again, using the metadata of the components of the previous graph. This way, only the components that were not part of the previous graph are
+ * resolved from the repositories.
+ */
+public class ResolvedGraphCache {
+    public static final String ENABLED_PROPERTY = "org.gradle.unsafe.resolved-graph-cache";
+
+    private final CrossBuildInMemoryCache<List<Object>, RecordedDependencyGraph> graphs;
+    private final CrossBuildInMemoryCache<List<Object>, RecordedDependencyGraph> latestGraphs;
+
+    public ResolvedGraphCache(CrossBuildInMemoryCacheFactory cacheFactory) {
+        this.graphs = cacheFactory.newCache();
+        this.latestGraphs = cacheFactory.newCache();
+    }
+
+    /**
+     * Returns the cache entry for resolving the given context, or {@code null} when the result of resolving the context cannot be retained.
+     */
+    @Nullable
+    public Entry entryFor(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules, Spec<? super DependencyMetadata> edgeFilter, VersionSelectorScheme versionSelectorScheme) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY) || edgeFilter != Specs.satisfyAll()) {
+            return null;
+        }
+        ResolutionStrategyInternal resolutionStrategy = resolveContext.getResolutionStrategy();
+        if (!canRetain(resolutionStrategy, globalRules)) {
+            return null;
+        }
+        ComponentResolveMetadata rootComponent = resolveContext.toRootComponentMetaData();
+        ConfigurationMetadata configuration = rootComponent.getConfiguration(resolveContext.getName());
+        if (!(configuration instanceof RootConfigurationMetadata)) {
+            return null;
+        }
+        RootConfigurationMetadata rootConfiguration = (RootConfigurationMetadata) configuration;
+        if (!rootConfiguration.getFiles().isEmpty()) {
+            return null;
+        }
+
+        // Everything but the declared dependencies and constraints
+        List<Object> configurationKey = new ArrayList<Object>();
+        configurationKey.add(rootComponent.getId());
+        configurationKey.add(rootComponent.getModuleVersionId());
+        configurationKey.add(rootConfiguration.getName());
+        configurationKey.add(rootConfiguration.getAttributes());
+        configurationKey.add(rootConfiguration.getExcludes());
+        configurationKey.add(rootConfiguration.isTransitive());
+        for (ResolutionAwareRepository repository : repositories) {
+            if (!addRepository(repository, configurationKey)) {
+                return null;
+            }
+        }
+        configurationKey.add(resolutionStrategy.getConflictResolution());
+        // Only the hash of the rules is used, which does not require a resolution context
+        configurationKey.add(globalRules.getComponentMetadataProcessorFactory().createComponentMetadataProcessor(null).getRulesHash());
+
+        List<Object> key = new ArrayList<Object>(configurationKey);
+        for (LocalOriginDependencyMetadata dependency : rootConfiguration.getDependencies()) {
+            if (!addDependency(dependency, versionSelectorScheme, key)) {
+                return null;
+            }
+        }
+        return new Entry(Collections.unmodifiableList(configurationKey), Collections.unmodifiableList(key), rootConfiguration, versionSelectorScheme, globalRules.getModuleMetadataProcessor().getModuleReplacements());
+    }
+
+    /**
+     * Discards all retained graphs.
+     */
+    public void invalidateAll() {
+        graphs.clear();
+        latestGraphs.clear();
+    }
+
+    private static boolean canRetain(ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules globalRules) {
+        return resolutionStrategy.getDependencySubstitutionRule() == Actions.<DependencySubstitution>doNothing()
+            && resolutionStrategy.getForcedModules().isEmpty()
+            && resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            && !resolutionStrategy.getCapabilitiesResolutionRules().hasRules()
+            && !resolutionStrategy.isDependencyLockingEnabled()
+            && !globalRules.getDependencySubstitutionRules().hasRules();
+    }
+
+    private static boolean addDependency(LocalOriginDependencyMetadata dependency, VersionSelectorScheme versionSelectorScheme, List<Object> key) {
+        if (!(dependency.getSelector() instanceof ModuleComponentSelector) || dependency.isChanging()) {
+            return false;
+        }
+        ModuleComponentSelector selector = (ModuleComponentSelector) dependency.getSelector();
+        if (isDynamic(selector.getVersionConstraint(), versionSelectorScheme)) {
+            return false;
+        }
+        key.add(selector);
+        key.add(dependency.getModuleConfiguration());
+        key.add(dependency.getDependencyConfiguration());
+        key.add(dependency.getExcludes());
+        key.add(dependency.getArtifacts());
+        key.add(dependency.isTransitive());
+        key.add(dependency.isConstraint());
+        key.add(dependency.isInheriting());
+        key.add(dependency.isFromLock());
+        key.add(dependency instanceof ForcingDependencyMetadata && ((ForcingDependencyMetadata) dependency).isForce());
+        key.add(dependency.getReason());
+        return true;
+    }
+
+    private static boolean addRepository(ResolutionAwareRepository repository, List<Object> key) {
+        if (!(repository instanceof AbstractArtifactRepository) || ((AbstractArtifactRepository) repository).getContentFilter() != null) {
+            return false;
+        }
+        RepositoryDescriptor descriptor = repository.getDescriptor();
+        key.add(repository.getClass());
+        key.add(descriptor.getType());
+        key.add(descriptor.name);
+        key.add(descriptor.getProperties());
+        return true;
+    }
+
+    static boolean isDynamic(VersionConstraint versionConstraint, VersionSelectorScheme versionSelectorScheme) {
+        return versionConstraint.getBranch() != null
+            || isDynamic(versionConstraint.getRequiredVersion(), versionSelectorScheme)
+            || isDynamic(versionConstraint.getPreferredVersion(), versionSelectorScheme)
+            || isDynamic(versionConstraint.getStrictVersion(), versionSelectorScheme);
+    }
+
+    private static boolean isDynamic(@Nullable String version, VersionSelectorScheme versionSelectorScheme) {
+        return version != null && !version.isEmpty() && versionSelectorScheme.parseSelector(version).isDynamic();
+    }
+
+    /**
+     * The retained graph, if any, for a single resolution.
+     */
+    public class Entry {
+        private final List<Object> configurationKey;
+        private final List<Object> key;
+        private final RootConfigurationMetadata rootConfiguration;
+        private final VersionSelectorScheme versionSelectorScheme;
+        private final ModuleReplacementsData moduleReplacements;
+
+        private Entry(List<Object> configurationKey, List<Object> key, RootConfigurationMetadata rootConfiguration, VersionSelectorScheme versionSelectorScheme, ModuleReplacementsData moduleReplacements) {
+            this.configurationKey = configurationKey;
+            this.key = key;
+            this.rootConfiguration = rootConfiguration;
+            this.versionSelectorScheme = versionSelectorScheme;
+            this.moduleReplacements = moduleReplacements;
+        }
+
+        /**
+         * Replays the retained graph to the given visitor.
+         *
+         * @return true when a graph was retained and has been visited, false when the graph needs to be resolved.
+         */
+        public boolean replay(DependencyGraphVisitor visitor) {
+            RecordedDependencyGraph graph = graphs.get(key);
+            if (graph == null) {
+                return false;
+            }
+            graph.replay(rootConfiguration, visitor);
+            latestGraphs.put(configurationKey, graph);
+            return true;
+        }
+
+        /**
+         * Returns a visitor that forwards to the given visitor and retains the graph when it is complete and can be retained.
+         */
+        public DependencyGraphVisitor recordTo(DependencyGraphVisitor visitor) {
+            return new RecordingDependencyGraphVisitor(visitor, versionSelectorScheme, moduleReplacements, new Action<RecordedDependencyGraph>() {
+                @Override
+                public void execute(RecordedDependencyGraph graph) {
+                    graphs.put(key, graph);
+                    latestGraphs.put(configurationKey, graph);
+                }
+            });
+        }
+
+        /**
+         * Returns a resolver that uses the metadata of the components of the graph last retained for the same configuration, when only its
+         * declared dependencies or constraints have changed since, and otherwise uses the given resolver.
+         */
+        public ComponentMetaDataResolver withRetainedMetadata(ComponentMetaDataResolver resolver) {
+            RecordedDependencyGraph previous = latestGraphs.get(configurationKey);
+            if (previous == null) {
+                return resolver;
+            }
+            return new RetainedComponentMetaDataResolver(resolver, previous.getComponentMetadata());
+        }
+    }
+}
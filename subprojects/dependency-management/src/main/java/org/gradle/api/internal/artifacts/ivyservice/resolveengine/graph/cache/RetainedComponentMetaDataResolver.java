@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+
+import java.util.Map;
+
+/**
+ * A {@link ComponentMetaDataResolver} that uses the metadata of the components of a previously resolved graph, and delegates for all other components.
+ *
+ * The dependency graph builder still traverses the whole graph, so the result is the same as when resolving from scratch, but only the components
+ * that were not part of the previous graph need to be resolved.
+ */
+class RetainedComponentMetaDataResolver implements ComponentMetaDataResolver {
+    private final ComponentMetaDataResolver delegate;
+    private final Map<ComponentIdentifier, ComponentResolveMetadata> retained;
+
+    RetainedComponentMetaDataResolver(ComponentMetaDataResolver delegate, Map<ComponentIdentifier, ComponentResolveMetadata> retained) {
+        this.delegate = delegate;
+        this.retained = retained;
+    }
+
+    @Override
+    public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+        ComponentResolveMetadata metadata = retained.get(identifier);
+        if (metadata != null && hasNoOverrides(componentOverrideMetadata)) {
+            result.resolved(metadata);
+            return;
+        }
+        delegate.resolve(identifier, componentOverrideMetadata, result);
+    }
+
+    @Override
+    public boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+        return retained.containsKey(identifier) || delegate.isFetchingMetadataCheap(identifier);
+    }
+
+    private static boolean hasNoOverrides(ComponentOverrideMetadata componentOverrideMetadata) {
+        return !componentOverrideMetadata.isChanging() && componentOverrideMetadata.getArtifacts().isEmpty() && componentOverrideMetadata.getClientModule() == null;
+    }
+}
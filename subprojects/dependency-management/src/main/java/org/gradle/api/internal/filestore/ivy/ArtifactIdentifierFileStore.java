@@ -20,8 +20,10 @@
 import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
 import org.gradle.internal.file.FileAccessTimeJournal;
+import org.gradle.internal.resource.local.ContentAddressedFileStore;
 import org.gradle.internal.resource.local.GroupedAndNamedUniqueFileStore;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class ArtifactIdentifierFileStore extends GroupedAndNamedUniqueFileStore<ModuleComponentArtifactIdentifier> {
@@ -51,4 +53,8 @@ public String determineName(ModuleComponentArtifactIdentifier artifactId) {
     public ArtifactIdentifierFileStore(File baseDir, TemporaryFileProvider temporaryFileProvider, FileAccessTimeJournal fileAccessTimeJournal) {
         super(baseDir, temporaryFileProvider, fileAccessTimeJournal, GROUPER, NAMER);
     }
+
+    public ArtifactIdentifierFileStore(File baseDir, TemporaryFileProvider temporaryFileProvider, FileAccessTimeJournal fileAccessTimeJournal, @Nullable ContentAddressedFileStore contentStore) {
+        super(baseDir, temporaryFileProvider, fileAccessTimeJournal, GROUPER, NAMER, contentStore);
+    }
 }
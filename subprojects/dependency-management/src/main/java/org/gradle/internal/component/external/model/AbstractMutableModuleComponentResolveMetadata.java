@@ -232,7 +232,10 @@ public ImmutableList<? extends ComponentVariant> getVariants() {
             builder.addAll(variants);
         }
         for (MutableVariantImpl variant : newVariants) {
-            builder.add(new ImmutableVariantImpl(getId(), variant.name, variant.attributes, ImmutableList.copyOf(variant.dependencies), ImmutableList.copyOf(variant.dependencyConstraints), ImmutableList.copyOf(variant.files), ImmutableCapabilities.of(variant.capabilities)));
+            // Variants of the same or different components often declare the same dependencies, so share equal lists
+            ImmutableList<DependencyImpl> dependencies = ModuleMetadataInterner.internList(ImmutableList.copyOf(variant.dependencies));
+            ImmutableList<DependencyConstraintImpl> dependencyConstraints = ModuleMetadataInterner.internList(ImmutableList.copyOf(variant.dependencyConstraints));
+            builder.add(new ImmutableVariantImpl(getId(), variant.name, variant.attributes, dependencies, dependencyConstraints, ImmutableList.copyOf(variant.files), ImmutableCapabilities.of(variant.capabilities)));
         }
         return builder.build();
     }
@@ -366,7 +369,7 @@ protected static class DependencyImpl implements ComponentVariant.Dependency {
             this.group = group;
             this.module = module;
             this.versionConstraint = versionConstraint;
-            this.excludes = ImmutableList.copyOf(excludes);
+            this.excludes = ModuleMetadataInterner.internList(ImmutableList.copyOf(excludes));
             this.reason = reason;
             this.attributes = attributes;
             this.requestedCapabilities = ImmutableList.copyOf(
@@ -433,7 +436,8 @@ public boolean equals(Object o) {
                 && Objects.equal(excludes, that.excludes)
                 && Objects.equal(reason, that.reason)
                 && Objects.equal(attributes, that.attributes)
-                && Objects.equal(requestedCapabilities, that.requestedCapabilities);
+                && Objects.equal(requestedCapabilities, that.requestedCapabilities)
+                && inheriting == that.inheriting;
         }
 
         @Override
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.component.external.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.internal.Cast;
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor;
+import org.gradle.internal.component.model.ExcludeMetadata;
+
+/**
+ * Interns the value types that are repeated across the metadata of many components, such as identifiers, selectors, excludes and dependency lists,
+ * so that equal values decoded from the module metadata cache or created while building a dependency graph share a single instance.
+ *
+ * Values are weakly referenced, so an interned value is only retained for as long as some metadata or graph refers to it.
+ * Module identifiers, module version identifiers and attribute containers are not interned here, as their factories already share instances.
+ */
+public final class ModuleMetadataInterner {
+    private static final Interner<ModuleComponentIdentifier> COMPONENT_IDS = Interners.newWeakInterner();
+    private static final Interner<ModuleComponentSelector> SELECTORS = Interners.newWeakInterner();
+    private static final Interner<ExcludeMetadata> EXCLUDES = Interners.newWeakInterner();
+    private static final Interner<MavenDependencyDescriptor> MAVEN_DEPENDENCIES = Interners.newWeakInterner();
+    private static final Interner<ImmutableList<?>> LISTS = Interners.newWeakInterner();
+
+    private ModuleMetadataInterner() {
+    }
+
+    public static ModuleComponentIdentifier internComponentId(ModuleComponentIdentifier id) {
+        return COMPONENT_IDS.intern(id);
+    }
+
+    /**
+     * Interns the given identifier when it identifies a module component, and returns any other identifier as is.
+     */
+    public static ComponentIdentifier internComponentId(ComponentIdentifier id) {
+        if (id instanceof ModuleComponentIdentifier) {
+            return COMPONENT_IDS.intern((ModuleComponentIdentifier) id);
+        }
+        return id;
+    }
+
+    public static ModuleComponentSelector internSelector(ModuleComponentSelector selector) {
+        return SELECTORS.intern(selector);
+    }
+
+    public static ExcludeMetadata internExclude(ExcludeMetadata exclude) {
+        return EXCLUDES.intern(exclude);
+    }
+
+    public static MavenDependencyDescriptor internDependency(MavenDependencyDescriptor dependency) {
+        return MAVEN_DEPENDENCIES.intern(dependency);
+    }
+
+    /**
+     * Interns the given list, whose elements should themselves be interned. Empty lists are replaced with the shared empty list.
+     */
+    public static <T> ImmutableList<T> internList(ImmutableList<T> list) {
+        if (list.isEmpty()) {
+            return ImmutableList.of();
+        }
+        return Cast.uncheckedNonnullCast(LISTS.intern(list));
+    }
+}
@@ -19,8 +19,10 @@
 import org.gradle.api.Namer;
 import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.internal.file.FileAccessTimeJournal;
+import org.gradle.internal.resource.local.ContentAddressedFileStore;
 import org.gradle.internal.resource.local.GroupedAndNamedUniqueFileStore;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class ExternalResourceFileStore extends GroupedAndNamedUniqueFileStore<String> {
@@ -50,4 +52,8 @@ public String determineName(String s) {
     public ExternalResourceFileStore(File baseDir, TemporaryFileProvider tmpProvider, FileAccessTimeJournal fileAccessTimeJournal) {
         super(baseDir, tmpProvider, fileAccessTimeJournal, GROUPER, NAMER);
     }
+
+    public ExternalResourceFileStore(File baseDir, TemporaryFileProvider tmpProvider, FileAccessTimeJournal fileAccessTimeJournal, @Nullable ContentAddressedFileStore contentStore) {
+        super(baseDir, tmpProvider, fileAccessTimeJournal, GROUPER, NAMER, contentStore);
+    }
 }
@@ -53,6 +53,11 @@
 import java.util.function.Supplier;
 
 public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExternalResourceAccessor {
+    /**
+     * When set, a cached resource that needs to be revalidated and that has an ETag or a last modified date is revalidated with a single conditional request,
+     * rather than with a request for its meta-data followed by a request for its content when it has changed.
+     */
+    public static final String CONDITIONAL_REVALIDATION_PROPERTY = "org.gradle.internal.resource.conditional-revalidation";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCacheAwareExternalResourceAccessor.class);
 
@@ -64,8 +69,16 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
     private final ExternalResourceCachePolicy externalResourceCachePolicy;
     private final ProducerGuard<ExternalResourceName> producerGuard;
     private final FileResourceRepository fileResourceRepository;
+    private final boolean conditionalRequestSupported;
 
     public DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository delegate, CachedExternalResourceIndex<String> cachedExternalResourceIndex, BuildCommencedTimeProvider timeProvider, TemporaryFileProvider temporaryFileProvider, ArtifactCacheLockingManager artifactCacheLockingManager, ExternalResourceCachePolicy externalResourceCachePolicy, ProducerGuard<ExternalResourceName> producerGuard, FileResourceRepository fileResourceRepository) {
+        this(delegate, cachedExternalResourceIndex, timeProvider, temporaryFileProvider, artifactCacheLockingManager, externalResourceCachePolicy, producerGuard, fileResourceRepository, false);
+    }
+
+    /**
+     * @param conditionalRequestSupported whether the transport behind the given repository can revalidate a resource with a conditional request.
+     */
+    public DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository delegate, CachedExternalResourceIndex<String> cachedExternalResourceIndex, BuildCommencedTimeProvider timeProvider, TemporaryFileProvider temporaryFileProvider, ArtifactCacheLockingManager artifactCacheLockingManager, ExternalResourceCachePolicy externalResourceCachePolicy, ProducerGuard<ExternalResourceName> producerGuard, FileResourceRepository fileResourceRepository, boolean conditionalRequestSupported) {
         this.delegate = delegate;
         this.cachedExternalResourceIndex = cachedExternalResourceIndex;
         this.timeProvider = timeProvider;
@@ -74,6 +87,7 @@ public DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository dele
         this.externalResourceCachePolicy = externalResourceCachePolicy;
         this.producerGuard = producerGuard;
         this.fileResourceRepository = fileResourceRepository;
+        this.conditionalRequestSupported = conditionalRequestSupported;
     }
 
     @Nullable
@@ -98,6 +112,12 @@ public LocallyAvailableExternalResource get() {
                 // We have a cached version, but it might be out of date, so we tell the upstreams to revalidate too
                 final boolean revalidate = true;
 
+                // Without local candidates, the meta-data is only needed to tell whether the cached version is current, which a conditional request can tell as well.
+                // Transports that cannot make conditional requests would read the whole resource instead, so keep comparing meta-data for them
+                if (cached != null && conditionalRequestSupported && Boolean.getBoolean(CONDITIONAL_REVALIDATION_PROPERTY) && (additionalCandidates == null || additionalCandidates.isNone()) && hasValidators(cached.getExternalResourceMetaData())) {
+                    return revalidateConditionally(location, fileStore, cached);
+                }
+
                 // Get the metadata first to see if it's there
                 final ExternalResourceMetaData remoteMetaData = delegate.resource(location, revalidate).getMetaData();
                 if (remoteMetaData == null) {
@@ -158,6 +178,31 @@ public ExternalResourceMetaData create() {
         });
     }
 
+    private static boolean hasValidators(@Nullable ExternalResourceMetaData metaData) {
+        return metaData != null && (metaData.getEtag() != null || metaData.getLastModified() != null);
+    }
+
+    @Nullable
+    private LocallyAvailableExternalResource revalidateConditionally(ExternalResourceName source, ResourceFileStore fileStore, CachedExternalResource cached) {
+        DownloadAction downloadAction = new DownloadAction(source);
+        ExternalResourceReadResult<Object> result;
+        try {
+            result = delegate.withProgressLogging().resource(source, true).withContentIfModified(cached.getExternalResourceMetaData(), downloadAction);
+        } catch (Exception e) {
+            throw ResourceExceptions.getFailed(source.getUri(), e);
+        }
+        if (result == null) {
+            return null;
+        }
+        if (result.isNotModified()) {
+            LOGGER.info("Cached resource {} is up-to-date (lastModified: {}).", source, cached.getExternalLastModified());
+            // Update the cache entry in the index: this resets the age of the cached entry to zero
+            cachedExternalResourceIndex.store(source.toString(), cached.getCachedFile(), cached.getExternalResourceMetaData());
+            return fileResourceRepository.resource(cached.getCachedFile(), source.getUri(), cached.getExternalResourceMetaData());
+        }
+        return moveDownloadIntoCache(source, fileStore, downloadAction);
+    }
+
     private HashValue getResourceSha1(ExternalResourceName location, boolean revalidate) {
         try {
             ExternalResourceName sha1Location = location.append(".sha1");
@@ -202,6 +247,11 @@ private LocallyAvailableExternalResource copyToCache(final ExternalResourceName
         } catch (Exception e) {
             throw ResourceExceptions.getFailed(source.getUri(), e);
         }
+        return moveDownloadIntoCache(source, fileStore, downloadAction);
+    }
+
+    @Nullable
+    private LocallyAvailableExternalResource moveDownloadIntoCache(ExternalResourceName source, ResourceFileStore fileStore, DownloadAction downloadAction) {
         if (downloadAction.metaData == null) {
             return null;
         }
@@ -43,6 +43,21 @@ public ExternalResourceReadResponse openResource(URI location, boolean revalidat
         }
     }
 
+    @Override
+    public ExternalResourceReadResponse openResourceIfModified(URI location, ExternalResourceMetaData cached) {
+        ExternalResourceReadResponse resource = delegate.openResourceIfModified(location, cached);
+        if (resource != null && !resource.isNotModified()) {
+            return new ProgressLoggingExternalResource(location, resource);
+        } else {
+            return resource;
+        }
+    }
+
+    @Override
+    public boolean isConditionalRequestSupported() {
+        return delegate.isConditionalRequestSupported();
+    }
+
     @Override
     @Nullable
     public ExternalResourceMetaData getMetaData(URI location, boolean revalidate) {
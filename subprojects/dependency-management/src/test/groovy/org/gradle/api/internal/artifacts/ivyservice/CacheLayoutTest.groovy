@@ -48,6 +48,18 @@ class CacheLayoutTest extends Specification {
         cacheLayout.getPath(new File('some/dir')) == new File('some/dir/files-2.1')
     }
 
+    def "use content store layout"() {
+        when:
+        CacheLayout cacheLayout = CacheLayout.CONTENT_STORE
+
+        then:
+        cacheLayout.name == 'content'
+        cacheLayout.key == 'content-2.1'
+        cacheLayout.version == CacheVersion.parse("2.1")
+        cacheLayout.getPath(new File('some/dir')) == new File('some/dir/content-2.1')
+        !cacheLayout.versionMapping.getVersionUsedBy(GradleVersion.version("5.6")).present
+    }
+
     def "use metadata store layout"() {
         when:
         CacheLayout cacheLayout = CacheLayout.META_DATA
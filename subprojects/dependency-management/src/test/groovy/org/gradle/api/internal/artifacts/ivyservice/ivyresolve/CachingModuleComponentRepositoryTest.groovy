@@ -18,8 +18,10 @@ package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
 
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier
 import org.gradle.api.internal.artifacts.ComponentMetadataProcessor
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
 import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.api.internal.artifacts.dependencies.DefaultImmutableVersionConstraint
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetadataCache
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleRepositoryCaches
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.ArtifactAtRepositoryKey
@@ -28,25 +30,37 @@ import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.Module
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions.ModuleVersionsCache
 import org.gradle.api.internal.artifacts.repositories.resolver.MetadataFetchingCost
 import org.gradle.api.internal.component.ArtifactType
+import org.gradle.internal.component.external.descriptor.MavenScope
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
 import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
 import org.gradle.internal.component.external.model.ModuleDependencyMetadata
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor
+import org.gradle.internal.component.external.model.maven.MavenDependencyType
+import org.gradle.internal.component.external.model.maven.MavenModuleResolveMetadata
 import org.gradle.internal.component.model.ComponentArtifactMetadata
 import org.gradle.internal.component.model.ComponentArtifacts
 import org.gradle.internal.component.model.ComponentOverrideMetadata
 import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.ModuleSource
+import org.gradle.internal.hash.HashCode
 import org.gradle.internal.resolve.result.BuildableArtifactResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableArtifactSetResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableComponentArtifactsResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableModuleComponentMetaDataResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableModuleVersionListingResolveResult
 import org.gradle.util.BuildCommencedTimeProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 import spock.lang.Specification
 import spock.lang.Unroll
 
 class CachingModuleComponentRepositoryTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
     def realLocalAccess = Mock(ModuleComponentRepositoryAccess)
     def realRemoteAccess = Mock(ModuleComponentRepositoryAccess)
     def realRepo = Stub(ModuleComponentRepository) {
@@ -258,4 +272,36 @@ class CachingModuleComponentRepositoryTest extends Specification {
         true              | MetadataFetchingCost.FAST      | MetadataFetchingCost.FAST
         true              | MetadataFetchingCost.EXPENSIVE | MetadataFetchingCost.EXPENSIVE
     }
+
+    def "prefetches only the dependencies of cached metadata that resolution follows"() {
+        System.setProperty(CachingModuleComponentRepository.PREFETCH_DEPENDENCY_METADATA_PROPERTY, "true")
+        def componentId = DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "a"), "1.0")
+        def metadata = Stub(MavenModuleResolveMetadata) {
+            getDependencies() >> [
+                dependency("compile", "1.0", MavenScope.Compile),
+                dependency("runtime", "1.0", MavenScope.Runtime),
+                dependency("dynamic", "[1.0,2.0)", MavenScope.Compile),
+                dependency("test", "1.0", MavenScope.Test),
+                dependency("provided", "1.0", MavenScope.Provided),
+                dependency("optional", "1.0", MavenScope.Compile, MavenDependencyType.OPTIONAL_DEPENDENCY),
+                dependency("managed", "1.0", MavenScope.Compile, MavenDependencyType.DEPENDENCY_MANAGEMENT)
+            ]
+            getOriginalContentHash() >> HashCode.fromInt(1)
+        }
+        metadata.withSource(_) >> metadata
+        moduleDescriptorCache.getCachedModuleDescriptor(_, componentId) >> Stub(ModuleMetadataCache.CachedMetadata) {
+            getProcessedMetadata(_) >> metadata
+        }
+
+        when:
+        repo.localAccess.resolveComponentMetaData(componentId, Stub(ComponentOverrideMetadata), new DefaultBuildableModuleComponentMetaDataResolveResult())
+
+        then:
+        1 * moduleDescriptorCache.prefetchModuleDescriptors(realRepo, { ids -> ids*.module == ["compile", "runtime"] })
+    }
+
+    private static MavenDependencyDescriptor dependency(String name, String version, MavenScope scope, MavenDependencyType type = MavenDependencyType.DEPENDENCY) {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", name), new DefaultImmutableVersionConstraint(version))
+        new MavenDependencyDescriptor(scope, type, selector, null, [])
+    }
 }
@@ -981,6 +981,75 @@ class GradlePomModuleDescriptorParserTest extends AbstractGradlePomModuleDescrip
         hasDefaultDependencyArtifact(dep)
     }
 
+    def "shares parsed parent pom between modules and re-reads it when it changes"() {
+        given:
+        def parent = tmpDir.file("parent.xml") << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>parent</artifactId>
+    <version>version-one</version>
+
+    <dependencyManagement>
+        <dependencies>
+            <dependency>
+                <groupId>group-one</groupId>
+                <artifactId>artifacttwo</artifactId>
+                <version>\${artifacttwo.version}</version>
+            </dependency>
+        </dependencies>
+    </dependencyManagement>
+</project>
+"""
+        def child = { String version ->
+            """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <artifactId>artifact-one</artifactId>
+
+    <parent>
+        <groupId>group-one</groupId>
+        <artifactId>parent</artifactId>
+        <version>version-one</version>
+    </parent>
+
+    <properties>
+        <artifacttwo.version>${version}</artifacttwo.version>
+    </properties>
+
+    <dependencies>
+        <dependency>
+            <groupId>group-one</groupId>
+            <artifactId>artifacttwo</artifactId>
+        </dependency>
+    </dependencies>
+</project>
+"""
+        }
+        parseContext.getMetaDataArtifact(_, _, MAVEN_POM) >> asResource(parent)
+
+        when:
+        pomFile.text = child("2")
+        parsePom()
+
+        then:
+        firstDependency(metadata.dependencies).selector == moduleId('group-one', 'artifacttwo', '2')
+
+        when:
+        pomFile.text = child("3")
+        parsePom()
+
+        then:
+        firstDependency(metadata.dependencies).selector == moduleId('group-one', 'artifacttwo', '3')
+
+        when:
+        parent.text = parent.text.replace('\${artifacttwo.version}', '4')
+        parsePom()
+
+        then:
+        firstDependency(metadata.dependencies).selector == moduleId('group-one', 'artifacttwo', '4')
+    }
+
     def "grand parent pom properties are evaluated lazily"() {
         given:
         def grandParent = tmpDir.file("grandparent.xml") << """
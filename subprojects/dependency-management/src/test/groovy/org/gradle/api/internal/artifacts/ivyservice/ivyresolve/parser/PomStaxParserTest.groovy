@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import spock.lang.Specification
+
+import javax.xml.stream.XMLStreamException
+
+class PomStaxParserTest extends Specification {
+
+    def "retains only the elements used to build a module descriptor"() {
+        when:
+        def project = parse """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0">
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <description>The first test artifact</description>
+    <build>
+        <plugins>
+            <plugin>
+                <artifactId>maven-compiler-plugin</artifactId>
+            </plugin>
+        </plugins>
+    </build>
+    <distributionManagement>
+        <site>
+            <id>site</id>
+        </site>
+        <relocation>
+            <groupId>group-two</groupId>
+        </relocation>
+    </distributionManagement>
+    <profiles>
+        <profile>
+            <id>profile-one</id>
+            <build/>
+            <properties>
+                <prop>value</prop>
+            </properties>
+        </profile>
+    </profiles>
+</project>
+"""
+
+        then:
+        project.name == 'project'
+        project.textContent == ''
+        project.children*.name == ['groupId', 'artifactId', 'version', 'distributionManagement', 'profiles']
+        PomStaxParser.getFirstChildText(project, 'groupId') == 'group-one'
+        PomStaxParser.getFirstChildElement(project, 'distributionManagement').children*.name == ['relocation']
+        PomStaxParser.getFirstChildElement(project, 'profiles').children[0].children*.name == ['id', 'properties']
+    }
+
+    def "keeps text content of elements"() {
+        when:
+        def project = parse """
+<project>
+    <version> <![CDATA[1.0]]> </version>
+    <properties>
+        <empty/>
+        <entity>&copy;&nbsp;</entity>
+    </properties>
+</project>
+"""
+
+        then:
+        PomStaxParser.getFirstChildText(project, 'version') == ' 1.0 '
+        def properties = PomStaxParser.getFirstChildElement(project, 'properties')
+        PomStaxParser.getFirstChildText(properties, 'empty') == ''
+        PomStaxParser.getFirstChildText(properties, 'entity') == '\u00A9\u00A0'
+    }
+
+    def "retains comments of the project element"() {
+        when:
+        def project = parse """<!-- outside -->
+<project>
+    <!-- ${MetaDataParser.GRADLE_METADATA_MARKER} -->
+    <dependencies>
+        <!-- nested -->
+    </dependencies>
+</project>
+"""
+
+        then:
+        project.comments == [" ${MetaDataParser.GRADLE_METADATA_MARKER} ".toString()]
+    }
+
+    def "parsed elements cannot be modified"() {
+        given:
+        def project = parse """
+<project>
+    <groupId>group-one</groupId>
+</project>
+"""
+
+        when:
+        PomStaxParser.getAllChilds(project).clear()
+
+        then:
+        thrown(UnsupportedOperationException)
+        project.children*.name == ['groupId']
+    }
+
+    def "does not retain children of an unexpected root element"() {
+        when:
+        def root = parse """
+<someothertag>
+    <project>
+        <groupId>group-one</groupId>
+    </project>
+</someothertag>
+"""
+
+        then:
+        root.name == 'someothertag'
+        root.children.empty
+    }
+
+    def "fails on malformed XML"() {
+        when:
+        parse """
+<projectx>
+    <groupId>group-one</groupId>
+</project>
+"""
+
+        then:
+        thrown(XMLStreamException)
+    }
+
+    private static PomElement parse(String content) {
+        return PomStaxParser.parse(new ByteArrayInputStream(content.getBytes("UTF-8")), "pom.xml")
+    }
+}
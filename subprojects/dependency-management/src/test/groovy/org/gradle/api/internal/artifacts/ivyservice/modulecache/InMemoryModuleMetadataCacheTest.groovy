@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.util.BuildCommencedTimeProvider
+import spock.lang.Specification
+
+class InMemoryModuleMetadataCacheTest extends Specification {
+    def delegate = Mock(AbstractModuleMetadataCache)
+    def cache = new InMemoryModuleMetadataCache(new BuildCommencedTimeProvider(), delegate)
+    def repository = Stub(ModuleComponentRepository) {
+        getId() >> "repo"
+    }
+    def id1 = DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "a"), "1.0")
+    def id2 = DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "b"), "1.0")
+    def key1 = new ModuleComponentAtRepositoryKey("repo", id1)
+    def key2 = new ModuleComponentAtRepositoryKey("repo", id2)
+
+    def "prefetches entries in a single batch and looks up each entry at most once"() {
+        def cached = Stub(ModuleMetadataCache.CachedMetadata)
+
+        when:
+        cache.prefetchModuleDescriptors(repository, [id1, id2])
+
+        then:
+        1 * delegate.getAll([key1, key2]) >> [(key1): cached]
+        0 * delegate._
+
+        when:
+        def result = cache.getCachedModuleDescriptor(repository, id1)
+        cache.prefetchModuleDescriptors(repository, [id1, id2])
+
+        then:
+        result.is(cached)
+        0 * delegate._
+    }
+
+    def "looks up entries that were not prefetched individually"() {
+        def cached = Stub(ModuleMetadataCache.CachedMetadata)
+
+        when:
+        def result = cache.getCachedModuleDescriptor(repository, id1)
+
+        then:
+        result.is(cached)
+        1 * delegate.get(key1) >> cached
+        0 * delegate._
+    }
+}
@@ -95,6 +95,21 @@ class ModuleMetadataSerializerTest extends Specification {
 
     }
 
+    def "metadata that is read more than once shares identifiers and dependencies"() {
+        given:
+        def sample = sampleFiles().find { it.parentFile.name == 'pom' && !parse(it).dependencies.empty }
+        def bytes = serialize(parse(sample))
+
+        when:
+        def first = deserialize(bytes) as MutableMavenModuleResolveMetadata
+        def second = deserialize(bytes) as MutableMavenModuleResolveMetadata
+
+        then:
+        first.id.is(second.id)
+        first.dependencies.size() == second.dependencies.size()
+        [first.dependencies, second.dependencies].transpose().every { a, b -> a.is(b) && a.selector.is(b.selector) }
+    }
+
     private MutableModuleComponentResolveMetadata deserialize(byte[] serializedForm) {
         serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(serializedForm)), moduleIdentifierFactory, Maps.newHashMap())
     }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact
+
+import org.gradle.api.Action
+import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class ParallelResolveArtifactSetTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def visitor = Mock(ArtifactVisitor)
+    def set1 = Mock(ResolvedArtifactSet)
+    def set2 = Mock(ResolvedArtifactSet)
+    def set3 = Mock(ResolvedArtifactSet)
+    def result1 = Mock(ResolvedArtifactSet.Completion)
+    def result2 = Mock(ResolvedArtifactSet.Completion)
+    def result3 = Mock(ResolvedArtifactSet.Completion)
+
+    def "prepares all sets before visiting them"() {
+        System.setProperty(ParallelResolveArtifactSet.CHUNK_SIZE_PROPERTY, "2")
+
+        when:
+        ParallelResolveArtifactSet.wrap(CompositeResolvedArtifactSet.of([set1, set2, set3]), buildOperationExecutor).visit(visitor)
+
+        then:
+        1 * set1.startVisit(_, _) >> result1
+        1 * set2.startVisit(_, _) >> result2
+        1 * set3.startVisit(_, _) >> result3
+
+        then:
+        1 * result1.visit(visitor)
+
+        then:
+        1 * result2.visit(visitor)
+
+        then:
+        1 * result3.visit(visitor)
+        0 * _
+    }
+
+    def "visits each chunk while preparing the next one when streaming"() {
+        System.setProperty(ParallelResolveArtifactSet.STREAMING_PROPERTY, "true")
+        System.setProperty(ParallelResolveArtifactSet.CHUNK_SIZE_PROPERTY, "2")
+
+        when:
+        ParallelResolveArtifactSet.wrap(CompositeResolvedArtifactSet.of([set1, CompositeResolvedArtifactSet.of([set2, set3])]), buildOperationExecutor).visit(visitor)
+
+        then:
+        1 * set1.startVisit(_, _) >> result1
+        1 * set2.startVisit(_, _) >> result2
+        0 * _
+
+        then:
+        1 * set3.startVisit(_, _) >> result3
+
+        then:
+        1 * result1.visit(visitor)
+
+        then:
+        1 * result2.visit(visitor)
+
+        then:
+        1 * result3.visit(visitor)
+        0 * _
+    }
+
+    def "reports failure to visit a chunk as is"() {
+        def failure = new RuntimeException("broken")
+        def queue = Mock(BuildOperationQueue)
+        def executor = Stub(BuildOperationExecutor) {
+            runAll(_) >> { Action action -> action.execute(queue) }
+        }
+        System.setProperty(ParallelResolveArtifactSet.STREAMING_PROPERTY, "true")
+        System.setProperty(ParallelResolveArtifactSet.CHUNK_SIZE_PROPERTY, "1")
+
+        when:
+        ParallelResolveArtifactSet.wrap(CompositeResolvedArtifactSet.of([set1, set2, set3]), executor).visit(visitor)
+
+        then:
+        1 * set1.startVisit(queue, _) >> result1
+        1 * set2.startVisit(queue, _) >> result2
+        1 * result1.visit(visitor) >> { throw failure }
+        1 * queue.cancel()
+        0 * set3.startVisit(_, _)
+        0 * result2.visit(_)
+
+        and:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import com.google.common.collect.ImmutableList
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.dependencies.DefaultImmutableVersionConstraint
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.internal.component.external.descriptor.MavenScope
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor
+import org.gradle.internal.component.external.model.maven.MavenDependencyType
+import org.gradle.internal.component.external.model.maven.MavenModuleResolveMetadata
+import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+class SpeculativeComponentMetaDataResolverTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+    def delegate = new RecordingResolver()
+    def resolver = new SpeculativeComponentMetaDataResolver(delegate, versionSelectorScheme, new TestBuildOperationExecutor(), executorFactory)
+
+    def cleanup() {
+        resolver.stop()
+        executorFactory.stop()
+    }
+
+    def "fetches dependencies with a fixed version ahead and reuses the fetched metadata"() {
+        given:
+        module("a", dependency("b", "1.0"), dependency("c", "[1.0,2.0)"), dependency("d", "1.0", MavenScope.Test), dependency("e", "1.0", MavenScope.Compile, MavenDependencyType.OPTIONAL_DEPENDENCY))
+        module("b", dependency("f", "1.0"))
+        module("c")
+        module("d")
+        module("e")
+        module("f")
+
+        when:
+        resolve("a")
+        def result = resolve("b")
+        resolve("f")
+
+        then:
+        result.metadata.id == id("b")
+        delegate.resolveCount(id("a")) == 1
+        delegate.resolveCount(id("b")) == 1
+        delegate.resolveCount(id("f")) == 1
+
+        when:
+        resolver.stop()
+
+        then:
+        delegate.resolveCount(id("c")) == 0
+        delegate.resolveCount(id("d")) == 0
+        delegate.resolveCount(id("e")) == 0
+        resolver.isFetchingMetadataCheap(id("b"))
+    }
+
+    def "resolves using the delegate when the component has overrides"() {
+        given:
+        module("a", dependency("b", "1.0"))
+        module("b")
+
+        when:
+        resolve("a")
+        resolve("b", new DefaultComponentOverrideMetadata().withChanging())
+        resolver.stop()
+
+        then:
+        delegate.resolveCount(id("b")) == 2
+    }
+
+    def "reuses failures of fetched components"() {
+        given:
+        module("a", dependency("missing", "1.0"))
+
+        when:
+        resolve("a")
+        def result = resolve("missing")
+
+        then:
+        result.failure != null
+        delegate.resolveCount(id("missing")) == 1
+    }
+
+    private BuildableComponentResolveResult resolve(String name, ComponentOverrideMetadata overrides = new DefaultComponentOverrideMetadata()) {
+        def result = new DefaultBuildableComponentResolveResult()
+        resolver.resolve(id(name), overrides, result)
+        return result
+    }
+
+    private void module(String name, MavenDependencyDescriptor... dependencies) {
+        def metadata = Stub(MavenModuleResolveMetadata) {
+            getId() >> id(name)
+            getDependencies() >> ImmutableList.copyOf(dependencies)
+        }
+        delegate.modules[id(name)] = metadata
+    }
+
+    private static ComponentIdentifier id(String name) {
+        DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", name), "1.0")
+    }
+
+    private static MavenDependencyDescriptor dependency(String name, String version, MavenScope scope = MavenScope.Compile, MavenDependencyType type = MavenDependencyType.DEPENDENCY) {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", name), new DefaultImmutableVersionConstraint(version))
+        new MavenDependencyDescriptor(scope, type, selector, null, [])
+    }
+
+    private static class RecordingResolver implements ComponentMetaDataResolver {
+        final Map<ComponentIdentifier, MavenModuleResolveMetadata> modules = [:]
+        final Map<ComponentIdentifier, AtomicInteger> resolved = new ConcurrentHashMap<>()
+
+        int resolveCount(ComponentIdentifier identifier) {
+            resolved[identifier]?.get() ?: 0
+        }
+
+        @Override
+        void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+            resolved.computeIfAbsent(identifier, { new AtomicInteger() }).incrementAndGet()
+            def metadata = modules[identifier]
+            if (metadata == null) {
+                result.notFound(identifier)
+            } else {
+                result.resolved(metadata)
+            }
+        }
+
+        @Override
+        boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+            return false
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache
+
+import org.gradle.api.Action
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.dependencies.DefaultMutableVersionConstraint
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolveOptimizations
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadataWrapper
+import org.gradle.internal.component.local.model.RootConfigurationMetadata
+import org.gradle.internal.component.model.ConfigurationMetadata
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult
+import spock.lang.Specification
+
+class RecordingDependencyGraphVisitorTest extends Specification {
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+    def delegate = Mock(DependencyGraphVisitor)
+    def recorded = []
+    def visitor = new RecordingDependencyGraphVisitor(delegate, versionSelectorScheme, ModuleReplacementsData.NO_OP, { recorded << it } as Action)
+
+    def "forwards and records graph with fixed versions"() {
+        def sourceDependency = Mock(Dependency)
+        def rootConfiguration = rootConfiguration(sourceDependency)
+        def root = rootNode(1, rootConfiguration)
+        def selector = selector(10, "org", "dep", "1.0")
+        def dep = node(2, "org", "dep", "1.0")
+        def edge = edge(root, selector, 2, sourceDependency)
+        root.outgoingEdges >> [edge]
+        dep.incomingEdges >> [edge]
+
+        when:
+        visit(root, [selector], [root, dep])
+
+        then:
+        1 * delegate.start(root)
+        1 * delegate.visitSelector(selector)
+        1 * delegate.visitNode(root)
+        1 * delegate.visitNode(dep)
+        1 * delegate.visitEdges(root)
+        1 * delegate.visitEdges(dep)
+        1 * delegate.finish(root)
+        recorded.size() == 1
+    }
+
+    def "replays recorded graph with the current root configuration"() {
+        def sourceDependency = Mock(Dependency)
+        def root = rootNode(1, rootConfiguration(sourceDependency))
+        def selector = selector(10, "org", "dep", "1.0")
+        def dep = node(2, "org", "dep", "1.0")
+        def edge = edge(root, selector, 2, sourceDependency)
+        root.outgoingEdges >> [edge]
+        dep.incomingEdges >> [edge]
+        visit(root, [selector], [root, dep])
+        RecordedDependencyGraph graph = recorded[0]
+
+        def currentDependency = Mock(Dependency)
+        def currentConfiguration = rootConfiguration(currentDependency)
+        def replayVisitor = Mock(DependencyGraphVisitor)
+        RootGraphNode replayedRoot = null
+        DependencyGraphNode replayedDep = null
+
+        when:
+        graph.replay(currentConfiguration, replayVisitor)
+
+        then:
+        1 * replayVisitor.start(_) >> { RootGraphNode node -> replayedRoot = node }
+
+        then:
+        1 * replayVisitor.visitSelector({ it.resultId == 10 && it.requested == selector.requested })
+
+        then:
+        1 * replayVisitor.visitNode({ it.root })
+        1 * replayVisitor.visitNode({ !it.root }) >> { DependencyGraphNode node -> replayedDep = node }
+
+        then:
+        1 * replayVisitor.visitEdges({ it.root })
+
+        then:
+        1 * replayVisitor.visitEdges({ !it.root })
+
+        then:
+        1 * replayVisitor.finish({ it.is(replayedRoot) })
+        0 * replayVisitor._
+
+        and:
+        replayedRoot.metadata.is(currentConfiguration)
+        replayedRoot.nodeId == 1
+        replayedDep.nodeId == 2
+        replayedDep.owner.componentId == dep.owner.componentId
+        replayedDep.metadata.is(dep.metadata)
+
+        def replayedEdge = replayedRoot.outgoingEdges.first()
+        replayedEdge.from.is(replayedRoot)
+        replayedEdge.selected == 2
+        replayedEdge.originalDependency.is(currentDependency)
+        replayedDep.incomingEdges.first().is(replayedEdge)
+    }
+
+    def "resolves the components of a recorded graph using the retained metadata"() {
+        def root = rootNode(1, rootConfiguration())
+        def selector = selector(10, "org", "dep", "1.0")
+        def dep = node(2, "org", "dep", "1.0")
+        def edge = edge(root, selector, 2, null)
+        root.outgoingEdges >> [edge]
+        dep.incomingEdges >> [edge]
+        visit(root, [selector], [root, dep])
+        RecordedDependencyGraph graph = recorded[0]
+
+        def delegateResolver = Mock(ComponentMetaDataResolver)
+        def resolver = new RetainedComponentMetaDataResolver(delegateResolver, graph.componentMetadata)
+        def otherId = DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "other"), "1.0")
+
+        expect:
+        graph.componentMetadata.keySet() == [dep.owner.componentId] as Set
+        resolver.isFetchingMetadataCheap(dep.owner.componentId)
+
+        when:
+        def result = new DefaultBuildableComponentResolveResult()
+        resolver.resolve(dep.owner.componentId, new DefaultComponentOverrideMetadata(), result)
+
+        then:
+        result.metadata.is(dep.owner.metadata)
+        0 * delegateResolver._
+
+        when:
+        resolver.resolve(otherId, new DefaultComponentOverrideMetadata(), new DefaultBuildableComponentResolveResult())
+
+        then:
+        1 * delegateResolver.resolve(otherId, _, _)
+    }
+
+    def "does not record graph with failures"() {
+        def root = rootNode(1, rootConfiguration())
+        def selector = selector(10, "org", "dep", "1.0")
+        def failedEdge = Stub(DependencyGraphEdge) {
+            getFrom() >> root
+            getSelector() >> selector
+            getFailure() >> new ModuleVersionResolveException(selector.requested, new RuntimeException())
+        }
+        root.outgoingEdges >> [failedEdge]
+
+        when:
+        visit(root, [selector], [root])
+
+        then:
+        1 * delegate.finish(root)
+        recorded.empty
+    }
+
+    def "does not record graph with dynamic versions"() {
+        def root = rootNode(1, rootConfiguration())
+        def selector = selector(10, "org", "dep", "1.+")
+        def dep = node(2, "org", "dep", "1.2")
+        def edge = edge(root, selector, 2, null)
+        root.outgoingEdges >> [edge]
+        dep.incomingEdges >> [edge]
+
+        when:
+        visit(root, [selector], [root, dep])
+
+        then:
+        recorded.empty
+    }
+
+    def "does not record graph with changing modules"() {
+        def root = rootNode(1, rootConfiguration())
+        def selector = selector(10, "org", "dep", "1.0")
+        def dep = node(2, "org", "dep", "1.0", true)
+        def edge = edge(root, selector, 2, null)
+        root.outgoingEdges >> [edge]
+        dep.incomingEdges >> [edge]
+
+        when:
+        visit(root, [selector], [root, dep])
+
+        then:
+        recorded.empty
+    }
+
+    private void visit(RootGraphNode root, List<DependencyGraphSelector> selectors, List<DependencyGraphNode> nodes) {
+        visitor.start(root)
+        selectors.each { visitor.visitSelector(it) }
+        nodes.each { visitor.visitNode(it) }
+        nodes.each { visitor.visitEdges(it) }
+        visitor.finish(root)
+    }
+
+    private RootConfigurationMetadata rootConfiguration(Dependency... sources) {
+        def dependencies = sources.collect { source ->
+            Mock(DslOriginDependencyMetadataWrapper) {
+                getSource() >> source
+            }
+        }
+        return Mock(RootConfigurationMetadata) {
+            getDependencies() >> dependencies
+            getFiles() >> ([] as Set)
+        }
+    }
+
+    private RootGraphNode rootNode(Long id, RootConfigurationMetadata configuration) {
+        def component = component(id, "org", "root", "1.0")
+        return Stub(RootGraphNode) {
+            getNodeId() >> id
+            isRoot() >> true
+            getOwner() >> component
+            getMetadata() >> configuration
+            getResolveOptimizations() >> new ResolveOptimizations()
+            getOutgoingFileEdges() >> ([] as Set)
+            getResolvedConfigurationId() >> new ResolvedConfigurationIdentifier(component.moduleVersion, "conf")
+        }
+    }
+
+    private DependencyGraphNode node(Long id, String group, String module, String version, boolean changing = false) {
+        def component = component(id, group, module, version)
+        _ * component.metadata >> Stub(ModuleComponentResolveMetadata) {
+            isChanging() >> changing
+        }
+        return Stub(DependencyGraphNode) {
+            getNodeId() >> id
+            getOwner() >> component
+            getMetadata() >> Mock(ConfigurationMetadata)
+            isSelected() >> true
+            getOutgoingFileEdges() >> ([] as Set)
+            getResolvedConfigurationId() >> new ResolvedConfigurationIdentifier(component.moduleVersion, "default")
+        }
+    }
+
+    private DependencyGraphComponent component(Long id, String group, String module, String version) {
+        def moduleId = DefaultModuleIdentifier.newId(group, module)
+        return Stub(DependencyGraphComponent) {
+            getResultId() >> id
+            getComponentId() >> DefaultModuleComponentIdentifier.newId(moduleId, version)
+            getModuleVersion() >> DefaultModuleVersionIdentifier.newId(moduleId, version)
+            getResolvedVariants() >> []
+            getAllVersions() >> []
+        }
+    }
+
+    private DependencyGraphSelector selector(Long id, String group, String module, String version) {
+        def requested = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId(group, module), new DefaultMutableVersionConstraint(version))
+        return Stub(DependencyGraphSelector) {
+            getResultId() >> id
+            getRequested() >> requested
+        }
+    }
+
+    private DependencyGraphEdge edge(DependencyGraphNode from, DependencyGraphSelector selector, Long selected, Dependency originalDependency) {
+        return Stub(DependencyGraphEdge) {
+            getFrom() >> from
+            getFailure() >> null
+            getSelector() >> selector
+            getRequested() >> selector.requested
+            getSelected() >> selected
+            getOriginalDependency() >> originalDependency
+            getArtifacts(_) >> []
+            contributesArtifacts() >> true
+        }
+    }
+}
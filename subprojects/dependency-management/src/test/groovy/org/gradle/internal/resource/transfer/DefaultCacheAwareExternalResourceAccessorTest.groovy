@@ -36,12 +36,14 @@ import org.gradle.internal.resource.local.LocallyAvailableResourceCandidates
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.BuildCommencedTimeProvider
+import org.gradle.util.SetSystemProperties
 import org.junit.Rule
 import spock.lang.Issue
 import spock.lang.Specification
 
 class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
     @Rule TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
     final repository = Mock(ExternalResourceRepository)
     final progressLoggingRepo = Mock(ExternalResourceRepository)
     final index = Mock(CachedExternalResourceIndex)
@@ -61,6 +63,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         }
     }
     final cache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager, cachePolicy, producerGuard, fileRepository)
+    final conditionalCache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager, cachePolicy, producerGuard, fileRepository, true)
 
     def "returns null when the request resource is not cached and does not exist in the remote repository"() {
         def location = new ExternalResourceName("thing")
@@ -247,6 +250,115 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         0 * _._
     }
 
+    def "revalidates cached resource with a conditional request when enabled"() {
+        given:
+        System.setProperty(DefaultCacheAwareExternalResourceAccessor.CONDITIONAL_REVALIDATION_PROPERTY, "true")
+        def localCandidates = Mock(LocallyAvailableResourceCandidates)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Stub(ExternalResourceMetaData) {
+            getEtag() >> "686897696a7c876b7e"
+        }
+        def remoteResource = Mock(ExternalResource)
+        def location = new ExternalResourceName("thing")
+        def resultResource = Stub(LocallyAvailableExternalResource)
+
+        when:
+        def result = conditionalCache.getResource(location, null, fileStore, localCandidates)
+
+        then:
+        result == resultResource
+
+        and:
+        1 * index.lookup("thing") >> Stub(CachedExternalResource) {
+            getCachedAt() >> 23999L
+            getExternalResourceMetaData() >> cachedMetaData
+            getCachedFile() >> cachedFile
+        }
+        timeProvider.currentTime >> 24000L
+        localCandidates.none >> true
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.resource(location, true) >> remoteResource
+        1 * remoteResource.withContentIfModified(cachedMetaData, _) >> ExternalResourceReadResult.notModified()
+        1 * index.store("thing", cachedFile, cachedMetaData)
+        1 * fileRepository.resource(cachedFile, location.uri, cachedMetaData) >> resultResource
+        0 * _._
+    }
+
+    def "downloads changed resource with a single conditional request when enabled"() {
+        given:
+        System.setProperty(DefaultCacheAwareExternalResourceAccessor.CONDITIONAL_REVALIDATION_PROPERTY, "true")
+        def localCandidates = Mock(LocallyAvailableResourceCandidates)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Stub(ExternalResourceMetaData) {
+            getLastModified() >> new Date(1000)
+        }
+        def remoteMetaData = Mock(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+        def location = new ExternalResourceName("thing")
+        def localResource = new DefaultLocallyAvailableResource(cachedFile)
+        def resultResource = Stub(LocallyAvailableExternalResource)
+
+        when:
+        def result = conditionalCache.getResource(location, null, fileStore, localCandidates)
+
+        then:
+        result == resultResource
+
+        and:
+        1 * index.lookup("thing") >> Stub(CachedExternalResource) {
+            getCachedAt() >> 23999L
+            getExternalResourceMetaData() >> cachedMetaData
+            getCachedFile() >> cachedFile
+        }
+        timeProvider.currentTime >> 24000L
+        localCandidates.none >> true
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.resource(location, true) >> remoteResource
+        1 * remoteResource.withContentIfModified(cachedMetaData, _) >> { ExternalResourceMetaData cached, ExternalResource.ContentAction a ->
+            a.execute(new ByteArrayInputStream(), remoteMetaData)
+            ExternalResourceReadResult.of(0, null)
+        }
+        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * index.store("thing", cachedFile, remoteMetaData)
+        1 * fileRepository.resource(cachedFile, location.uri, remoteMetaData) >> resultResource
+        0 * _._
+    }
+
+    def "compares meta-data of cached resource when the transport cannot make conditional requests"() {
+        given:
+        System.setProperty(DefaultCacheAwareExternalResourceAccessor.CONDITIONAL_REVALIDATION_PROPERTY, "true")
+        def localCandidates = Mock(LocallyAvailableResourceCandidates)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Stub(ExternalResourceMetaData) {
+            getEtag() >> "686897696a7c876b7e"
+        }
+        def remoteMetaData = Stub(ExternalResourceMetaData) {
+            getEtag() >> "686897696a7c876b7e"
+        }
+        def remoteResource = Mock(ExternalResource)
+        def location = new ExternalResourceName("thing")
+        def resultResource = Stub(LocallyAvailableExternalResource)
+
+        when:
+        def result = cache.getResource(location, null, fileStore, localCandidates)
+
+        then:
+        result == resultResource
+
+        and:
+        1 * index.lookup("thing") >> Stub(CachedExternalResource) {
+            getCachedAt() >> 23999L
+            getExternalResourceMetaData() >> cachedMetaData
+            getCachedFile() >> cachedFile
+        }
+        timeProvider.currentTime >> 24000L
+        1 * repository.resource(location, true) >> remoteResource
+        1 * remoteResource.getMetaData() >> remoteMetaData
+        1 * index.store("thing", cachedFile, cachedMetaData)
+        1 * fileRepository.resource(cachedFile, location.uri, cachedMetaData) >> resultResource
+        0 * _._
+    }
+
     def "will download sha1 for finding candidates if not available in meta-data"() {
         given:
         def localCandidates = Mock(LocallyAvailableResourceCandidates)
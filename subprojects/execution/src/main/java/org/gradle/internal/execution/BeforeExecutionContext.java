@@ -16,6 +16,7 @@
 
 package org.gradle.internal.execution;
 
+import org.gradle.internal.execution.caching.CachingState;
 import org.gradle.internal.execution.history.BeforeExecutionState;
 
 import java.util.Optional;
@@ -26,4 +27,12 @@ public interface BeforeExecutionContext extends AfterPreviousExecutionContext {
      * Empty if execution state was not observed before execution.
      */
     Optional<BeforeExecutionState> getBeforeExecutionState();
+
+    /**
+     * Returns the caching state determined before the outputs were snapshotted, which does not take overlapping outputs into account.
+     * Empty if the caching state was not needed that early.
+     */
+    default Optional<CachingState> getCachingStateBeforeOutputs() {
+        return Optional.empty();
+    }
 }
@@ -18,13 +18,17 @@
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Maps;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.caching.internal.controller.NoOpBuildCacheController;
 import org.gradle.internal.execution.AfterPreviousExecutionContext;
 import org.gradle.internal.execution.BeforeExecutionContext;
 import org.gradle.internal.execution.CachingResult;
 import org.gradle.internal.execution.Step;
 import org.gradle.internal.execution.UnitOfWork;
+import org.gradle.internal.execution.caching.CachingState;
 import org.gradle.internal.execution.history.AfterPreviousExecutionState;
 import org.gradle.internal.execution.history.BeforeExecutionState;
 import org.gradle.internal.execution.history.ExecutionState;
@@ -47,6 +51,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Optional;
 
@@ -56,6 +61,7 @@ public class CaptureStateBeforeExecutionStep extends BuildOperationStep<AfterPre
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
     private final ValueSnapshotter valueSnapshotter;
     private final OverlappingOutputDetector overlappingOutputDetector;
+    private final BuildCacheController buildCache;
     private final Step<? super BeforeExecutionContext, ? extends CachingResult> delegate;
 
     public CaptureStateBeforeExecutionStep(
@@ -64,24 +70,47 @@ public CaptureStateBeforeExecutionStep(
         ValueSnapshotter valueSnapshotter,
         OverlappingOutputDetector overlappingOutputDetector,
         Step<? super BeforeExecutionContext, ? extends CachingResult> delegate
+    ) {
+        this(buildOperationExecutor, classLoaderHierarchyHasher, valueSnapshotter, overlappingOutputDetector, NoOpBuildCacheController.INSTANCE, delegate);
+    }
+
+    /**
+     * Creates a step that asks the given build cache to prefetch the entry for the work as soon as the inputs have been fingerprinted,
+     * so that the download overlaps with snapshotting the outputs and the rest of the up-to-date check.
+     */
+    public CaptureStateBeforeExecutionStep(
+        BuildOperationExecutor buildOperationExecutor,
+        ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
+        ValueSnapshotter valueSnapshotter,
+        OverlappingOutputDetector overlappingOutputDetector,
+        BuildCacheController buildCache,
+        Step<? super BeforeExecutionContext, ? extends CachingResult> delegate
     ) {
         super(buildOperationExecutor);
         this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
         this.valueSnapshotter = valueSnapshotter;
         this.overlappingOutputDetector = overlappingOutputDetector;
+        this.buildCache = buildCache;
         this.delegate = delegate;
     }
 
     @Override
     public CachingResult execute(AfterPreviousExecutionContext context) {
-        Optional<BeforeExecutionState> beforeExecutionState = context.getWork().getExecutionHistoryStore()
+        Optional<CapturedState> capturedState = context.getWork().getExecutionHistoryStore()
             .map(executionHistoryStore -> captureExecutionStateOp(context));
+        Optional<BeforeExecutionState> beforeExecutionState = capturedState.map(CapturedState::getBeforeExecutionState);
+        Optional<CachingState> cachingStateBeforeOutputs = capturedState.flatMap(CapturedState::getCachingStateBeforeOutputs);
         return delegate.execute(new BeforeExecutionContext() {
             @Override
             public Optional<BeforeExecutionState> getBeforeExecutionState() {
                 return beforeExecutionState;
             }
 
+            @Override
+            public Optional<CachingState> getCachingStateBeforeOutputs() {
+                return cachingStateBeforeOutputs;
+            }
+
             @Override
             public Optional<String> getRebuildReason() {
                 return context.getRebuildReason();
@@ -99,11 +128,11 @@ public UnitOfWork getWork() {
         });
     }
 
-    private BeforeExecutionState captureExecutionStateOp(AfterPreviousExecutionContext executionContext) {
+    private CapturedState captureExecutionStateOp(AfterPreviousExecutionContext executionContext) {
         return operation(operationContext -> {
-                BeforeExecutionState beforeExecutionState = captureExecutionState(executionContext);
+                CapturedState capturedState = captureExecutionState(executionContext);
                 operationContext.setResult(Operation.Result.INSTANCE);
-                return beforeExecutionState;
+                return capturedState;
             },
             BuildOperationDescriptor
                 .displayName("Snapshot inputs and outputs before executing " + executionContext.getWork().getDisplayName())
@@ -111,7 +140,7 @@ private BeforeExecutionState captureExecutionStateOp(AfterPreviousExecutionConte
         );
     }
 
-    private BeforeExecutionState captureExecutionState(AfterPreviousExecutionContext context) {
+    private CapturedState captureExecutionState(AfterPreviousExecutionContext context) {
         Optional<AfterPreviousExecutionState> afterPreviousExecutionState = context.getAfterPreviousExecutionState();
         UnitOfWork work = context.getWork();
 
@@ -132,6 +161,14 @@ private BeforeExecutionState captureExecutionState(AfterPreviousExecutionContext
             .map(AfterPreviousExecutionState::getOutputFileProperties)
             .orElse(ImmutableSortedMap.of());
 
+        ImmutableSortedMap<String, ValueSnapshot> inputProperties = fingerprintInputProperties(work, previousInputProperties, valueSnapshotter);
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileFingerprints = fingerprintInputFiles(work);
+
+        CachingState cachingStateBeforeOutputs = null;
+        if (buildCache.isPrefetchEnabled() && isLoadFromCacheExpected(context)) {
+            cachingStateBeforeOutputs = prefetchFromBuildCache(work, implementation, additionalImplementations, inputProperties, inputFileFingerprints);
+        }
+
         ImmutableSortedMap<String, FileSystemSnapshot> outputFileSnapshots = work.snapshotOutputsBeforeExecution();
 
         OverlappingOutputs overlappingOutputs;
@@ -146,14 +183,12 @@ private BeforeExecutionState captureExecutionState(AfterPreviousExecutionContext
                 throw new AssertionError();
         }
 
-        ImmutableSortedMap<String, ValueSnapshot> inputProperties = fingerprintInputProperties(work, previousInputProperties, valueSnapshotter);
-        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileFingerprints = fingerprintInputFiles(work);
         ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileFingerprints = fingerprintOutputFiles(
             outputSnapshotsAfterPreviousExecution,
             outputFileSnapshots,
             overlappingOutputs != null);
 
-        return new DefaultBeforeExecutionState(
+        BeforeExecutionState beforeExecutionState = new DefaultBeforeExecutionState(
             implementation,
             additionalImplementations,
             inputProperties,
@@ -162,6 +197,45 @@ private BeforeExecutionState captureExecutionState(AfterPreviousExecutionContext
             outputFileSnapshots,
             overlappingOutputs
         );
+        return new CapturedState(beforeExecutionState, cachingStateBeforeOutputs);
+    }
+
+    /**
+     * Work that was never executed before or that has to be rebuilt cannot be up-to-date, so it will try to load from the cache
+     * once it gets past the up-to-date check.
+     */
+    private static boolean isLoadFromCacheExpected(AfterPreviousExecutionContext context) {
+        return context.getWork().isAllowedToLoadFromCache()
+            && (context.getRebuildReason().isPresent() || !context.getAfterPreviousExecutionState().isPresent());
+    }
+
+    /**
+     * Calculates the caching state of the work, which only needs the outputs to check for overlaps, and prefetches the entry when the work is cacheable.
+     * {@link ResolveCachingStateStep} uses the returned state unless overlapping outputs are detected, so the work's caching conditions are only evaluated once.
+     */
+    private CachingState prefetchFromBuildCache(
+        UnitOfWork work,
+        ImplementationSnapshot implementation,
+        ImmutableList<ImplementationSnapshot> additionalImplementations,
+        ImmutableSortedMap<String, ValueSnapshot> inputProperties,
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileFingerprints
+    ) {
+        ImmutableSortedSet.Builder<String> outputPropertyNames = ImmutableSortedSet.naturalOrder();
+        work.visitOutputProperties((propertyName, type, roots) -> outputPropertyNames.add(propertyName));
+
+        CachingState cachingState = ResolveCachingStateStep.calculateCachingState(
+            buildCache,
+            work.shouldDisableCaching(null),
+            implementation,
+            additionalImplementations,
+            inputProperties,
+            inputFileFingerprints,
+            outputPropertyNames.build()
+        );
+        if (cachingState.getDisabledReasons().isEmpty()) {
+            cachingState.getKey().ifPresent(buildCache::prefetch);
+        }
+        return cachingState;
     }
 
     private static ImmutableSortedMap<String, ValueSnapshot> fingerprintInputProperties(UnitOfWork work, ImmutableSortedMap<String, ValueSnapshot> previousSnapshots, ValueSnapshotter valueSnapshotter) {
@@ -219,6 +293,24 @@ private static CurrentFileCollectionFingerprint fingerprintOutputSnapshot(FileSy
         return DefaultCurrentFileCollectionFingerprint.from(roots, AbsolutePathFingerprintingStrategy.IGNORE_MISSING);
     }
 
+    private static class CapturedState {
+        private final BeforeExecutionState beforeExecutionState;
+        private final CachingState cachingStateBeforeOutputs;
+
+        CapturedState(BeforeExecutionState beforeExecutionState, @Nullable CachingState cachingStateBeforeOutputs) {
+            this.beforeExecutionState = beforeExecutionState;
+            this.cachingStateBeforeOutputs = cachingStateBeforeOutputs;
+        }
+
+        BeforeExecutionState getBeforeExecutionState() {
+            return beforeExecutionState;
+        }
+
+        Optional<CachingState> getCachingStateBeforeOutputs() {
+            return Optional.ofNullable(cachingStateBeforeOutputs);
+        }
+    }
+
     private static class ImplementationsBuilder implements UnitOfWork.ImplementationVisitor {
         private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
         private ImplementationSnapshot implementation;
@@ -37,8 +37,11 @@
 import org.gradle.internal.execution.caching.impl.LoggingCachingStateBuilder;
 import org.gradle.internal.execution.history.AfterPreviousExecutionState;
 import org.gradle.internal.execution.history.BeforeExecutionState;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
 import org.gradle.internal.fingerprint.overlap.OverlappingOutputs;
+import org.gradle.internal.snapshot.ValueSnapshot;
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,7 +76,7 @@ public CachingResult execute(BeforeExecutionContext context) {
             cachingState = BUILD_CACHE_DISABLED_STATE;
         } else {
             cachingState = context.getBeforeExecutionState()
-                .map(beforeExecutionState -> calculateCachingState(beforeExecutionState, work))
+                .map(beforeExecutionState -> calculateCachingState(context, beforeExecutionState, work))
                 .orElseGet(() -> (buildCache.isEnabled()
                         ? work.shouldDisableCaching(null)
                         : Optional.of(BUILD_CACHE_DISABLED_REASON)
@@ -145,7 +148,39 @@ public Try<ExecutionOutcome> getOutcome() {
         };
     }
 
-    private CachingState calculateCachingState(BeforeExecutionState executionState, UnitOfWork work) {
+    private CachingState calculateCachingState(BeforeExecutionContext context, BeforeExecutionState executionState, UnitOfWork work) {
+        OverlappingOutputs detectedOverlappingOutputs = executionState.getDetectedOverlappingOutputs()
+            .orElse(null);
+        if (detectedOverlappingOutputs == null) {
+            // Without overlapping outputs, a caching state determined before the outputs were snapshotted is complete
+            Optional<CachingState> cachingStateBeforeOutputs = context.getCachingStateBeforeOutputs();
+            if (cachingStateBeforeOutputs.isPresent()) {
+                return cachingStateBeforeOutputs.get();
+            }
+        }
+        return calculateCachingState(
+            buildCache,
+            work.shouldDisableCaching(detectedOverlappingOutputs),
+            executionState.getImplementation(),
+            executionState.getAdditionalImplementations(),
+            executionState.getInputProperties(),
+            executionState.getInputFileProperties(),
+            executionState.getOutputFileProperties().keySet()
+        );
+    }
+
+    /**
+     * Calculates the caching state of work from the fingerprints of its inputs and the names of its outputs.
+     */
+    static CachingState calculateCachingState(
+        BuildCacheController buildCache,
+        Optional<CachingDisabledReason> disabledReason,
+        ImplementationSnapshot implementation,
+        ImmutableList<ImplementationSnapshot> additionalImplementations,
+        ImmutableSortedMap<String, ValueSnapshot> inputProperties,
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties,
+        Iterable<String> outputPropertyNames
+    ) {
         CachingStateBuilder builder = buildCache.isEmitDebugLogging()
             ? new LoggingCachingStateBuilder()
             : new DefaultCachingStateBuilder();
@@ -153,16 +188,13 @@ private CachingState calculateCachingState(BeforeExecutionState executionState,
         if (!buildCache.isEnabled()) {
             builder.markNotCacheable(BUILD_CACHE_DISABLED_REASON);
         }
-        OverlappingOutputs detectedOverlappingOutputs = executionState.getDetectedOverlappingOutputs()
-            .orElse(null);
-        work.shouldDisableCaching(detectedOverlappingOutputs)
-            .ifPresent(builder::markNotCacheable);
-
-        builder.withImplementation(executionState.getImplementation());
-        builder.withAdditionalImplementations(executionState.getAdditionalImplementations());
-        builder.withInputValueFingerprints(executionState.getInputProperties());
-        builder.withInputFilePropertyFingerprints(executionState.getInputFileProperties());
-        builder.withOutputPropertyNames(executionState.getOutputFileProperties().keySet());
+        disabledReason.ifPresent(builder::markNotCacheable);
+
+        builder.withImplementation(implementation);
+        builder.withAdditionalImplementations(additionalImplementations);
+        builder.withInputValueFingerprints(inputProperties);
+        builder.withInputFilePropertyFingerprints(inputFileProperties);
+        builder.withOutputPropertyNames(outputPropertyNames);
 
         return builder.build();
     }
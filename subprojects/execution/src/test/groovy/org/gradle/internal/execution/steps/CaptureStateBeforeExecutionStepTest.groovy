@@ -17,11 +17,16 @@
 package org.gradle.internal.execution.steps
 
 import com.google.common.collect.ImmutableSortedMap
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.internal.controller.BuildCacheController
 import org.gradle.internal.execution.AfterPreviousExecutionContext
 import org.gradle.internal.execution.BeforeExecutionContext
 import org.gradle.internal.execution.UnitOfWork
+import org.gradle.internal.execution.caching.CachingDisabledReason
+import org.gradle.internal.execution.caching.CachingDisabledReasonCategory
 import org.gradle.internal.execution.history.AfterPreviousExecutionState
 import org.gradle.internal.execution.history.ExecutionHistoryStore
+import org.gradle.internal.file.TreeType
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint
 import org.gradle.internal.fingerprint.FileCollectionFingerprint
 import org.gradle.internal.fingerprint.impl.AbsolutePathFingerprintingStrategy
@@ -271,6 +276,87 @@ class CaptureStateBeforeExecutionStepTest extends StepSpec<AfterPreviousExecutio
         assertOperationForInputsBeforeExecution()
     }
 
+    def "prefetches the build cache entry before snapshotting outputs when loading from the cache is expected"() {
+        def buildCache = Mock(BuildCacheController)
+        def step = new CaptureStateBeforeExecutionStep(buildOperationExecutor, classloaderHierarchyHasher, valueSnapshotter, overlappingOutputDetector, buildCache, delegate)
+        def events = []
+
+        when:
+        step.execute(context)
+
+        then:
+        _ * buildCache.prefetchEnabled >> true
+        _ * buildCache.enabled >> true
+        _ * buildCache.emitDebugLogging >> false
+        _ * context.rebuildReason >> Optional.empty()
+        _ * work.allowedToLoadFromCache >> true
+        _ * work.shouldDisableCaching(null) >> Optional.empty()
+        _ * work.visitOutputProperties(_) >> { UnitOfWork.OutputPropertyVisitor visitor ->
+            visitor.visitOutputProperty("outputDir", TreeType.DIRECTORY, [])
+        }
+        1 * buildCache.prefetch(_ as BuildCacheKey) >> { events << "prefetch" }
+        _ * work.snapshotOutputsBeforeExecution() >> {
+            events << "snapshot outputs"
+            ImmutableSortedMap.of()
+        }
+        interaction { fingerprintInputs() }
+        1 * delegate.execute(_) >> { BeforeExecutionContext beforeExecution ->
+            def cachingState = beforeExecution.cachingStateBeforeOutputs.get()
+            assert cachingState.disabledReasons.empty
+            assert cachingState.key.present
+        }
+        0 * _
+
+        events == ["prefetch", "snapshot outputs"]
+    }
+
+    def "does not prefetch the build cache entry when the work is not cacheable"() {
+        def buildCache = Mock(BuildCacheController)
+        def disabledReason = new CachingDisabledReason(CachingDisabledReasonCategory.DISABLE_CONDITION_SATISFIED, "Something disabled")
+        def step = new CaptureStateBeforeExecutionStep(buildOperationExecutor, classloaderHierarchyHasher, valueSnapshotter, overlappingOutputDetector, buildCache, delegate)
+
+        when:
+        step.execute(context)
+
+        then:
+        _ * buildCache.prefetchEnabled >> true
+        _ * buildCache.enabled >> true
+        _ * buildCache.emitDebugLogging >> false
+        _ * context.rebuildReason >> Optional.empty()
+        _ * work.allowedToLoadFromCache >> true
+        _ * work.shouldDisableCaching(null) >> Optional.of(disabledReason)
+        0 * buildCache.prefetch(_)
+        interaction { fingerprintInputs() }
+        1 * delegate.execute(_) >> { BeforeExecutionContext beforeExecution ->
+            assert beforeExecution.cachingStateBeforeOutputs.get().disabledReasons == [disabledReason]
+        }
+        0 * _
+    }
+
+    def "does not check whether the work is cacheable when prefetching is disabled"() {
+        def buildCache = Mock(BuildCacheController)
+        def step = new CaptureStateBeforeExecutionStep(buildOperationExecutor, classloaderHierarchyHasher, valueSnapshotter, overlappingOutputDetector, buildCache, delegate)
+        def cacheabilityChecked = false
+
+        when:
+        step.execute(context)
+
+        then:
+        _ * buildCache.prefetchEnabled >> false
+        _ * work.shouldDisableCaching(_) >> {
+            cacheabilityChecked = true
+            Optional.empty()
+        }
+        0 * buildCache.prefetch(_)
+        interaction { fingerprintInputs() }
+        1 * delegate.execute(_) >> { BeforeExecutionContext beforeExecution ->
+            assert !beforeExecution.cachingStateBeforeOutputs.present
+        }
+        0 * _
+
+        !cacheabilityChecked
+    }
+
     void fingerprintInputs() {
         _ * context.afterPreviousExecutionState >> Optional.empty()
         _ * work.visitImplementations(_ as UnitOfWork.ImplementationVisitor) >> { UnitOfWork.ImplementationVisitor visitor ->
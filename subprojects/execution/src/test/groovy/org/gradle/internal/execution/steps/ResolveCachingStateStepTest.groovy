@@ -16,11 +16,18 @@
 
 package org.gradle.internal.execution.steps
 
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
 import org.gradle.caching.internal.controller.BuildCacheController
 import org.gradle.internal.execution.BeforeExecutionContext
 import org.gradle.internal.execution.CachingContext
 import org.gradle.internal.execution.caching.CachingDisabledReason
 import org.gradle.internal.execution.caching.CachingDisabledReasonCategory
+import org.gradle.internal.execution.caching.CachingState
+import org.gradle.internal.execution.history.BeforeExecutionState
+import org.gradle.internal.fingerprint.overlap.OverlappingOutputs
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot
 
 class ResolveCachingStateStepTest extends StepSpec<BeforeExecutionContext> {
 
@@ -56,4 +63,53 @@ class ResolveCachingStateStepTest extends StepSpec<BeforeExecutionContext> {
             assert context.cachingState.disabledReasons.get(0) == disabledReason
         }
     }
+
+    def "uses caching state determined before snapshotting outputs when there are no overlapping outputs"() {
+        def disabledReason = new CachingDisabledReason(CachingDisabledReasonCategory.DISABLE_CONDITION_SATISFIED, "Something disabled")
+        def cachingState = CachingState.disabledWithoutInputs(disabledReason)
+        def beforeExecutionState = Stub(BeforeExecutionState) {
+            getDetectedOverlappingOutputs() >> Optional.empty()
+        }
+        def cacheabilityChecked = false
+
+        when:
+        step.execute(context)
+        then:
+        _ * buildCache.enabled >> true
+        _ * context.beforeExecutionState >> Optional.of(beforeExecutionState)
+        _ * context.cachingStateBeforeOutputs >> Optional.of(cachingState)
+        _ * work.shouldDisableCaching(_) >> {
+            cacheabilityChecked = true
+            Optional.empty()
+        }
+        1 * delegate.execute(_) >> { CachingContext context ->
+            assert context.cachingState == cachingState
+        }
+
+        !cacheabilityChecked
+    }
+
+    def "determines caching state again when there are overlapping outputs"() {
+        def overlappingOutputs = new OverlappingOutputs("outputDir", "overlapping/path")
+        def disabledReason = new CachingDisabledReason(CachingDisabledReasonCategory.OVERLAPPING_OUTPUTS, "Overlapping outputs")
+        def beforeExecutionState = Stub(BeforeExecutionState) {
+            getImplementation() >> ImplementationSnapshot.of("Work", HashCode.fromInt(1234))
+            getAdditionalImplementations() >> ImmutableList.of()
+            getInputProperties() >> ImmutableSortedMap.of()
+            getInputFileProperties() >> ImmutableSortedMap.of()
+            getOutputFileProperties() >> ImmutableSortedMap.of()
+            getDetectedOverlappingOutputs() >> Optional.of(overlappingOutputs)
+        }
+
+        when:
+        step.execute(context)
+        then:
+        _ * buildCache.enabled >> true
+        _ * context.beforeExecutionState >> Optional.of(beforeExecutionState)
+        _ * context.cachingStateBeforeOutputs >> Optional.of(CachingState.NOT_DETERMINED)
+        _ * work.shouldDisableCaching(overlappingOutputs) >> Optional.of(disabledReason)
+        1 * delegate.execute(_) >> { CachingContext context ->
+            assert context.cachingState.disabledReasons == [disabledReason]
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast the available hash functions hash file content.
+ *
+ * Each operation hashes 1 GiB of content in chunks of {@code fileSize} bytes, so the score is the throughput in GiB per second.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FileContentHashingBenchmark {
+    private static final int GIGABYTE = 1024 * 1024 * 1024;
+
+    private static final Map<String, HashFunction> HASH_FUNCTIONS = ImmutableMap.of(
+        "md5", Hashing.md5(),
+        "sha1", Hashing.sha1(),
+        "murmur3", Hashing.murmur3()
+    );
+
+    @Param({"md5", "murmur3"})
+    String hashFunction;
+
+    @Param({"4096", "1048576"})
+    int fileSize;
+
+    byte[] content;
+    HashFunction function;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        content = new byte[fileSize];
+        new Random(1234L).nextBytes(content);
+        function = HASH_FUNCTIONS.get(hashFunction);
+    }
+
+    @Benchmark
+    public HashCode hashGigabyte() {
+        HashCode hash = null;
+        for (int hashed = 0; hashed < GIGABYTE; hashed += fileSize) {
+            PrimitiveHasher hasher = function.newPrimitiveHasher();
+            hasher.putBytes(content);
+            hash = hasher.hash();
+        }
+        return hash;
+    }
+}
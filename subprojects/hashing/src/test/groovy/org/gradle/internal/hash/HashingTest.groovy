@@ -17,6 +17,7 @@
 package org.gradle.internal.hash
 
 import spock.lang.Specification
+import spock.lang.Unroll
 
 import static java.lang.Thread.currentThread
 import static java.util.concurrent.CompletableFuture.supplyAsync
@@ -109,6 +110,65 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    @Unroll
+    def 'murmur3 hash of #length bytes matches reference implementation'() {
+        def bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+
+        when:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        // Feed the bytes in uneven pieces to exercise buffering
+        int offset = 0
+        while (offset < length) {
+            int count = Math.min(length - offset, offset % 7 + 1)
+            if (count == 1) {
+                hasher.putByte(bytes[offset])
+            } else {
+                hasher.putBytes(bytes, offset, count)
+            }
+            offset += count
+        }
+
+        then:
+        hasher.hash().toString() == com.google.common.hash.Hashing.murmur3_128().hashBytes(bytes).toString()
+        Hashing.murmur3().hashBytes(bytes).toString() == com.google.common.hash.Hashing.murmur3_128().hashBytes(bytes).toString()
+
+        where:
+        length << [0, 1, 7, 8, 9, 15, 16, 17, 31, 32, 33, 1000, 65537]
+    }
+
+    def 'murmur3 hashes primitives in little-endian order'() {
+        when:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        hasher.putInt(42)
+        hasher.putLong(7L)
+        hasher.putDouble(1.5d)
+        hasher.putBoolean(true)
+        hasher.putString("abc")
+
+        then:
+        hasher.hash().toString() == com.google.common.hash.Hashing.murmur3_128().newHasher()
+            .putInt(42)
+            .putLong(7L)
+            .putDouble(1.5d)
+            .putBoolean(true)
+            .putBytes("abc".bytes)
+            .hash().toString()
+    }
+
+    def 'cannot call murmur3 hash multiple times'() {
+        given:
+        def hasher = Hashing.murmur3().newHasher()
+        hasher.putInt(1)
+        hasher.hash()
+
+        when:
+        hasher.hash()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
     def hashStrings(List<String> strings) {
         def hasher = Hashing.newHasher()
         strings.each { hasher.putString(it) }
@@ -72,9 +72,24 @@ class DefaultWriteContext(
         }
     }
 
-    // TODO: consider interning strings
-    override fun writeString(string: CharSequence) =
-        encoder.writeString(string)
+    private
+    val strings = hashMapOf<String, Int>()
+
+    /**
+     * Writes each distinct string once, and refers to it by id after that.
+     */
+    override fun writeString(string: CharSequence) {
+        val key = string.toString()
+        val id = strings[key]
+        if (id != null) {
+            writeSmallInt(id)
+        } else {
+            val newId = strings.size
+            strings[key] = newId
+            writeSmallInt(newId)
+            encoder.writeString(key)
+        }
+    }
 
     override fun newIsolate(owner: IsolateOwner): WriteIsolate =
         DefaultWriteIsolate(owner)
@@ -135,6 +150,19 @@ class DefaultReadContext(
     override fun beanStateReaderFor(beanType: Class<*>): BeanStateReader =
         beanStateReaders.computeIfAbsent(beanType) { type -> BeanPropertyReader(type) }
 
+    private
+    val strings = ArrayList<String>()
+
+    override fun readString(): String {
+        val id = readSmallInt()
+        if (id < strings.size) {
+            return strings[id]
+        }
+        val newString = decoder.readString()
+        strings.add(newString)
+        return newString
+    }
+
     override fun readClass(): Class<*> {
         val id = readSmallInt()
         val type = classes[id]
@@ -68,10 +68,27 @@ class BeanPropertyReader(
     override suspend fun ReadContext.newBean() =
         constructorForSerialization.newInstance()
 
+    /**
+     * The setters for the fields in the order they are written, read along with the state of the first bean of the type.
+     */
+    private
+    var fieldSetters: List<Pair<String, ReadContext.(Any, Any?) -> Unit>>? = null
+
     override suspend fun ReadContext.readStateOf(bean: Any) {
-        readEachProperty(PropertyKind.Field) { fieldName, fieldValue ->
-            val setter = setterByFieldName.getValue(fieldName)
-            setter(bean, fieldValue)
+        val setters = fieldSetters ?: readSchema().also { fieldSetters = it }
+        for ((fieldName, setter) in setters) {
+            readPropertyValue(PropertyKind.Field, fieldName) { fieldValue ->
+                setter(bean, fieldValue)
+            }
+        }
+    }
+
+    private
+    fun ReadContext.readSchema(): List<Pair<String, ReadContext.(Any, Any?) -> Unit>> {
+        val fieldCount = readSmallInt()
+        return (0 until fieldCount).map {
+            val fieldName = readString()
+            fieldName to setterByFieldName.getValue(fieldName)
         }
     }
 
@@ -126,25 +143,35 @@ suspend fun ReadContext.readEachProperty(kind: PropertyKind, action: (String, An
             break
         }
 
-        withPropertyTrace(kind, name) {
-            val value =
-                try {
-                    read().also {
-                        logPropertyInfo("deserialize", it)
-                    }
-                } catch (passThrough: IOException) {
-                    throw passThrough
-                } catch (passThrough: GradleException) {
-                    throw passThrough
-                } catch (e: Exception) {
-                    throw GradleException("Could not load the value of $trace.", e)
-                }
+        readPropertyValue(kind, name) { value ->
             action(name, value)
         }
     }
 }
 
 
+/**
+ * Reads the value of a property, without its name.
+ */
+suspend fun ReadContext.readPropertyValue(kind: PropertyKind, name: String, action: (Any?) -> Unit) {
+    withPropertyTrace(kind, name) {
+        val value =
+            try {
+                read().also {
+                    logPropertyInfo("deserialize", it)
+                }
+            } catch (passThrough: IOException) {
+                throw passThrough
+            } catch (passThrough: GradleException) {
+                throw passThrough
+            } catch (e: Exception) {
+                throw GradleException("Could not load the value of $trace.", e)
+            }
+        action(value)
+    }
+}
+
+
 internal
 inline fun <T : IsolateContext, R> T.withPropertyTrace(kind: PropertyKind, name: String, action: () -> R): R =
     withPropertyTrace(PropertyTrace.Property(kind, name, trace)) {
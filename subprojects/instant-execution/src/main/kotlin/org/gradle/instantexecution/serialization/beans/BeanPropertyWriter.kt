@@ -38,16 +38,31 @@ class BeanPropertyWriter(
     private
     val relevantFields = relevantStateOf(beanType).toList()
 
+    private
+    var schemaWritten = false
+
     /**
      * Serializes a bean by serializing the value of each of its fields.
+     *
+     * The field names are only written for the first bean of the type, see [BeanPropertyReader.readStateOf].
      */
     override suspend fun WriteContext.writeStateOf(bean: Any) {
-        writingProperties {
-            for (field in relevantFields) {
-                val fieldName = field.name
-                val fieldValue = valueOrConvention(field.get(bean), bean, fieldName)
-                writeNextProperty(fieldName, fieldValue, PropertyKind.Field)
-            }
+        if (!schemaWritten) {
+            writeSchema()
+            schemaWritten = true
+        }
+        for (field in relevantFields) {
+            val fieldName = field.name
+            val fieldValue = valueOrConvention(field.get(bean), bean, fieldName)
+            writePropertyValue(fieldName, fieldValue, PropertyKind.Field)
+        }
+    }
+
+    private
+    fun WriteContext.writeSchema() {
+        writeSmallInt(relevantFields.size)
+        for (field in relevantFields) {
+            writeString(field.name)
         }
     }
 
@@ -84,8 +99,16 @@ class BeanPropertyWriter(
  * a suitable [Codec] for its [value].
  */
 suspend fun WriteContext.writeNextProperty(name: String, value: Any?, kind: PropertyKind): Boolean {
+    writeString(name)
+    return writePropertyValue(name, value, kind)
+}
+
+
+/**
+ * Writes the value of a property, without its name.
+ */
+suspend fun WriteContext.writePropertyValue(name: String, value: Any?, kind: PropertyKind): Boolean {
     withPropertyTrace(kind, name) {
-        writeString(name)
         try {
             write(value)
         } catch (passThrough: IOException) {
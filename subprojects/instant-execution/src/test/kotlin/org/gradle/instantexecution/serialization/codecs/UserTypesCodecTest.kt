@@ -106,6 +106,25 @@ class UserTypesCodecTest {
         )
     }
 
+    @Test
+    fun `writes field names and repeated strings once`() {
+
+        val repeated = "a string value that is shared by all beans"
+        val beans = ArrayList((1..100).map { Pair(StringBuilder(repeated).toString(), it) })
+
+        val bytes = writeToByteArray(beans)
+
+        assertThat(
+            bytes.size < repeated.length * beans.size / 2,
+            equalTo(true)
+        )
+
+        assertThat(
+            readFromByteArray(bytes),
+            equalTo<Any>(beans)
+        )
+    }
+
     @Test
     fun `can handle Serializable writeReplace readResolve`() {
         assertThat(
@@ -58,4 +58,30 @@ class ParallelBuildPerformanceTest extends AbstractCrossBuildPerformanceTest {
         LARGE_JAVA_MULTI_PROJECT      | 2          | 3
     }
 
+    @Unroll
+    def "up-to-date assemble on #testProject with increasing number of parallel workers"() {
+        given:
+        runner.testGroup = "parallel builds"
+        workerCounts.each { workers ->
+            runner.buildSpec {
+                warmUpCount = warmUpRuns
+                invocationCount = runs
+                projectName(testProject.projectName).displayName("${workers} workers").invocation {
+                    tasksToRun("assemble").args("-Dorg.gradle.parallel=true", "--max-workers=${workers}").gradleOpts("-Xms${testProject.daemonMemory}", "-Xmx${testProject.daemonMemory}")
+                }
+            }
+        }
+
+        when:
+        def results = runner.run()
+
+        then:
+        results
+
+        where:
+        testProject                   | workerCounts   | warmUpRuns | runs
+        LARGE_MONOLITHIC_JAVA_PROJECT | [1, 4, 16, 64] | 5          | 10
+        LARGE_JAVA_MULTI_PROJECT      | [1, 4, 16, 64] | 5          | 10
+    }
+
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.FileAccess;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares looking up a batch of keys one at a time with looking them up using {@link org.gradle.cache.PersistentIndexedCache#getAll(Iterable)},
+ * counting the number of times the file lock is taken.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BatchedIndexedCacheLookupBenchmark {
+    @Param({"100000"})
+    int entries;
+
+    @Param({"10", "100"})
+    int batchSize;
+
+    File tempDir;
+    BTreePersistentIndexedCache<String, String> store;
+    DefaultMultiProcessSafePersistentIndexedCache<String, String> cache;
+    LockingFileAccess fileAccess;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("indexed-cache").toFile();
+        store = new BTreePersistentIndexedCache<String, String>(new File(tempDir, "cache.bin"), BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER);
+        for (int i = 0; i < entries; i++) {
+            store.put(key(i), value(i));
+        }
+        fileAccess = new LockingFileAccess();
+        cache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(new Factory<PersistentIndexedCacheStore<String, String>>() {
+            @Override
+            public PersistentIndexedCacheStore<String, String> create() {
+                return store;
+            }
+        }, fileAccess);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        tempDir.delete();
+    }
+
+    @Benchmark
+    public int getOneAtATime(LockCounters counters) {
+        int found = 0;
+        for (String key : randomKeys()) {
+            if (cache.get(key) != null) {
+                found++;
+            }
+        }
+        counters.lockAcquisitions += fileAccess.takeAcquisitions();
+        return found;
+    }
+
+    @Benchmark
+    public int getAll(LockCounters counters) {
+        Map<String, String> values = cache.getAll(randomKeys());
+        counters.lockAcquisitions += fileAccess.takeAcquisitions();
+        return values.size();
+    }
+
+    private List<String> randomKeys() {
+        List<String> keys = new ArrayList<String>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            keys.add(key(ThreadLocalRandom.current().nextInt(entries)));
+        }
+        return keys;
+    }
+
+    private static String key(int index) {
+        return "org.gradle:some-module-" + index + ":1.0@repository";
+    }
+
+    private static String value(int index) {
+        return "0123456789abcdef0123456789abcdef-" + index;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class LockCounters {
+        public long lockAcquisitions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lockAcquisitions = 0;
+        }
+    }
+
+    private static class LockingFileAccess implements FileAccess {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int acquisitions;
+
+        int takeAcquisitions() {
+            int result = acquisitions;
+            acquisitions = 0;
+            return result;
+        }
+
+        @Override
+        public <T> T readFile(Callable<? extends T> action) {
+            lock.lock();
+            try {
+                acquisitions++;
+                return action.call();
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public <T> T readFile(Factory<? extends T> action) {
+            lock.lock();
+            try {
+                acquisitions++;
+                return action.create();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void updateFile(Runnable action) {
+            writeFile(action);
+        }
+
+        @Override
+        public void writeFile(Runnable action) {
+            lock.lock();
+            try {
+                acquisitions++;
+                action.run();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
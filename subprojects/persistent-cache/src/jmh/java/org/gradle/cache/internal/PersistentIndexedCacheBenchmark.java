@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lookups and updates of the B-tree and the log-structured indexed cache implementations, and the cost of giving up the cache file between
+ * lookups, as happens whenever the file lock is released.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class PersistentIndexedCacheBenchmark {
+    @Param({"btree", "log-structured"})
+    String implementation;
+
+    @Param({"100000", "1000000"})
+    int entries;
+
+    File tempDir;
+    File cacheFile;
+    PersistentIndexedCacheStore<String, String> cache;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("indexed-cache").toFile();
+        cacheFile = new File(tempDir, "cache.bin");
+        cache = createCache();
+        for (int i = 0; i < entries; i++) {
+            cache.put(key(i), value(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.close();
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        tempDir.delete();
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(key(ThreadLocalRandom.current().nextInt(entries)));
+    }
+
+    @Benchmark
+    public void put() {
+        int index = ThreadLocalRandom.current().nextInt(entries);
+        cache.put(key(index), value(index));
+    }
+
+    /**
+     * Releases the cache file and opens it again before a lookup, the way the cache is used when the file lock is released after each unit of work.
+     */
+    @Benchmark
+    public String releaseReopenAndGet() {
+        if (cache instanceof ReopenablePersistentIndexedCacheStore) {
+            ReopenablePersistentIndexedCacheStore<?, ?> reopenable = (ReopenablePersistentIndexedCacheStore<?, ?>) cache;
+            reopenable.release();
+            reopenable.reopen();
+        } else {
+            cache.close();
+            cache = createCache();
+        }
+        return get();
+    }
+
+    private PersistentIndexedCacheStore<String, String> createCache() {
+        if (implementation.equals("btree")) {
+            return new BTreePersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER);
+        }
+        return new LogStructuredPersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER);
+    }
+
+    private static String key(int index) {
+        return "/some/path/to/a/file/in/the/build-" + index;
+    }
+
+    private static String value(int index) {
+        return "0123456789abcdef0123456789abcdef-" + index;
+    }
+}
@@ -18,6 +18,8 @@
 import org.gradle.api.Transformer;
 
 import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A persistent store of objects of type V indexed by a key of type K.
@@ -33,6 +35,24 @@
     @Nullable
     V get(K key);
 
+    /**
+     * Fetches the values mapped to the given keys from this cache, blocking until they are available.
+     *
+     * Implementations should hold a file lock once for all keys, rather than once for each key.
+     *
+     * @return The keys that have a value associated, with their values.
+     */
+    default Map<K, V> getAll(Iterable<? extends K> keys) {
+        Map<K, V> values = new LinkedHashMap<K, V>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
     /**
      * Returns the value mapped to the given key, producing the value if not present.
      *
@@ -53,6 +73,17 @@
      */
     void put(K key, V value);
 
+    /**
+     * Maps each of the given values to its key, replacing any existing values.
+     *
+     * Implementations should hold a file lock once for all entries, rather than once for each entry.
+     */
+    default void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Removes a key-value mapping from this cache. A shared lock is held while updating the value.
      *
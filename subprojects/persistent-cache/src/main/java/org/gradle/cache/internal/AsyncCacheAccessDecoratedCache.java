@@ -23,6 +23,8 @@
 import org.gradle.internal.Factory;
 
 import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final AsyncCacheAccess asyncCacheAccess;
@@ -49,6 +51,16 @@ public V create() {
         });
     }
 
+    @Override
+    public Map<K, V> getAll(final Iterable<? extends K> keys) {
+        return asyncCacheAccess.read(new Factory<Map<K, V>>() {
+            @Override
+            public Map<K, V> create() {
+                return persistentCache.getAll(keys);
+            }
+        });
+    }
+
     @Override
     public V get(K key, Transformer<? extends V, ? super K> producer, Runnable completion) {
         throw new UnsupportedOperationException();
@@ -73,6 +85,26 @@ public void run() {
         }
     }
 
+    @Override
+    public void putAllLater(Map<? extends K, ? extends V> entries, final Runnable completion) {
+        final Map<K, V> copy = new LinkedHashMap<K, V>(entries);
+        try {
+            asyncCacheAccess.enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        persistentCache.putAll(copy);
+                    } finally {
+                        completion.run();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            completion.run();
+            throw e;
+        }
+    }
+
     @Override
     public void removeLater(final K key, final Runnable completion) {
         try {
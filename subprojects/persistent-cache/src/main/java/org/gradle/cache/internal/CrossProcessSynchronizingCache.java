@@ -23,6 +23,7 @@
 import org.gradle.internal.Factory;
 
 import javax.annotation.Nullable;
+import java.util.Map;
 
 /**
  * Applies cross-process file locking to a backing cache, to ensure that any in-memory and on file state is kept in sync while this process is read from or writing to the cache.
@@ -52,6 +53,16 @@ public V create() {
         });
     }
 
+    @Override
+    public Map<K, V> getAll(final Iterable<? extends K> keys) {
+        return cacheAccess.withFileLock(new Factory<Map<K, V>>() {
+            @Override
+            public Map<K, V> create() {
+                return target.getAll(keys);
+            }
+        });
+    }
+
     @Override
     public V get(final K key, final Transformer<? extends V, ? super K> producer) {
         Runnable runnable = cacheAccess.acquireFileLock();
@@ -64,6 +75,12 @@ public void put(K key, V value) {
         target.putLater(key, value, runnable);
     }
 
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        Runnable runnable = cacheAccess.acquireFileLock();
+        target.putAllLater(entries, runnable);
+    }
+
     @Override
     public void remove(K key) {
         Runnable runnable = cacheAccess.acquireFileLock();
@@ -31,6 +31,7 @@
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
@@ -58,6 +59,11 @@
 @ThreadSafe
 public class DefaultCacheAccess implements CacheCoordinator {
     private final static Logger LOG = LoggerFactory.getLogger(DefaultCacheAccess.class);
+
+    /**
+     * When set, indexed caches are stored in an append-only log instead of a B-tree. The two formats are kept in separate files.
+     */
+    public static final String LOG_STRUCTURED_PROPERTY = "org.gradle.internal.cache.log-structured";
     private final static Runnable NO_OP = new Runnable() {
         @Override
         public void run() {
@@ -283,11 +289,11 @@ public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final Persis
         IndexedCacheEntry<K, V> entry = Cast.uncheckedCast(caches.get(parameters.getCacheName()));
         try {
             if (entry == null) {
-                final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+                final File cacheFile = new File(baseDir, parameters.getCacheName() + (isLogStructured() ? ".log" : ".bin"));
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
+                Factory<PersistentIndexedCacheStore<K, V>> indexedCacheFactory = new Factory<PersistentIndexedCacheStore<K, V>>() {
                     @Override
-                    public BTreePersistentIndexedCache<K, V> create() {
+                    public PersistentIndexedCacheStore<K, V> create() {
                         return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
                     }
                 };
@@ -314,10 +320,17 @@ public BTreePersistentIndexedCache<K, V> create() {
         }
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+    <K, V> PersistentIndexedCacheStore<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        if (isLogStructured()) {
+            return new LogStructuredPersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+        }
         return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
     }
 
+    private static boolean isLogStructured() {
+        return Boolean.getBoolean(LOG_STRUCTURED_PROPERTY);
+    }
+
     /**
      * Called just after the file lock has been acquired.
      */
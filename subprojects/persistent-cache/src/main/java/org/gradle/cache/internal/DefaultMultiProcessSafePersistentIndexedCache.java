@@ -20,15 +20,18 @@
 import org.gradle.cache.FileIntegrityViolationException;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
+import java.util.Collections;
+import java.util.Map;
+
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<? extends PersistentIndexedCacheStore<K, V>> factory;
+    private volatile PersistentIndexedCacheStore<K, V> cache;
+    private volatile boolean released;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<? extends PersistentIndexedCacheStore<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
         this.fileAccess = fileAccess;
     }
@@ -40,7 +43,7 @@ public String toString() {
 
     @Override
     public V get(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedCacheStore<K, V> cache = getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
                 @Override
@@ -53,6 +56,21 @@ public V create() {
         }
     }
 
+    @Override
+    public Map<K, V> getAll(final Iterable<? extends K> keys) {
+        final PersistentIndexedCacheStore<K, V> cache = getCache();
+        try {
+            return fileAccess.readFile(new Factory<Map<K, V>>() {
+                @Override
+                public Map<K, V> create() {
+                    return cache.getAll(keys);
+                }
+            });
+        } catch (FileIntegrityViolationException e) {
+            return Collections.emptyMap();
+        }
+    }
+
     @Override
     public V get(K key, Transformer<? extends V, ? super K> producer) {
         V value = get(key);
@@ -65,7 +83,7 @@ public V get(K key, Transformer<? extends V, ? super K> producer) {
 
     @Override
     public void put(final K key, final V value) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedCacheStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -76,9 +94,24 @@ public void run() {
         });
     }
 
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> entries) {
+        final PersistentIndexedCacheStore<K, V> cache = getCache();
+        // Use writeFile because the cache can internally recover from datafile
+        // corruption, so we don't care at this level if it's corrupt
+        fileAccess.writeFile(new Runnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                    cache.put(entry.getKey(), entry.getValue());
+                }
+            }
+        });
+    }
+
     @Override
     public void remove(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedCacheStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -94,17 +127,24 @@ public void afterLockAcquire(FileLock.State currentCacheState) {
     }
 
     @Override
-    public void finishWork() {
-        if (cache != null) {
+    public synchronized void finishWork() {
+        if (cache != null && !released) {
             try {
                 fileAccess.writeFile(new Runnable() {
                     @Override
                     public void run() {
-                        cache.close();
+                        if (cache instanceof ReopenablePersistentIndexedCacheStore) {
+                            ((ReopenablePersistentIndexedCacheStore<?, ?>) cache).release();
+                            released = true;
+                        } else {
+                            cache.close();
+                        }
                     }
                 });
             } finally {
-                cache = null;
+                if (!released) {
+                    cache = null;
+                }
             }
         }
     }
@@ -113,17 +153,33 @@ public void run() {
     public void beforeLockRelease(FileLock.State currentCacheState) {
     }
 
-    private BTreePersistentIndexedCache<K, V> getCache() {
-        if (cache == null) {
+    private PersistentIndexedCacheStore<K, V> getCache() {
+        if (cache == null || released) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
             fileAccess.writeFile(new Runnable() {
                 @Override
                 public void run() {
-                    cache = factory.create();
+                    openCache();
                 }
             });
         }
         return cache;
     }
+
+    private synchronized void openCache() {
+        // Another thread may have opened the cache in the meantime
+        if (cache == null) {
+            cache = factory.create();
+        } else if (released) {
+            try {
+                ((ReopenablePersistentIndexedCacheStore<?, ?>) cache).reopen();
+            } catch (RuntimeException e) {
+                cache = null;
+                throw e;
+            } finally {
+                released = false;
+            }
+        }
+    }
 }
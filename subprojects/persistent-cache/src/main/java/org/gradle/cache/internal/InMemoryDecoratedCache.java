@@ -26,6 +26,10 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -71,6 +75,36 @@ public Object call() throws Exception {
         }
     }
 
+    @Override
+    public Map<K, V> getAll(Iterable<? extends K> keys) {
+        Map<K, V> values = new LinkedHashMap<K, V>();
+        List<K> missing = new ArrayList<K>();
+        for (K key : keys) {
+            Object value = inMemoryCache.getIfPresent(key);
+            if (value == null) {
+                missing.add(key);
+            } else if (value != NULL) {
+                values.put(key, Cast.<V>uncheckedCast(value));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<K, V> loaded = delegate.getAll(missing);
+            for (K key : missing) {
+                V loadedValue = loaded.get(key);
+                Object value = loadedValue == null ? NULL : loadedValue;
+                // Keep a value added or removed in the meantime, as it is newer than the one read from the delegate
+                Object current = inMemoryCache.asMap().putIfAbsent(key, value);
+                if (current != null) {
+                    value = current;
+                }
+                if (value != NULL) {
+                    values.put(key, Cast.<V>uncheckedCast(value));
+                }
+            }
+        }
+        return values;
+    }
+
     @Override
     public V get(final K key, final Transformer<? extends V, ? super K> producer, final Runnable completion) {
         final AtomicReference<Runnable> completionRef = new AtomicReference<Runnable>(completion);
@@ -116,6 +150,12 @@ public void putLater(K key, V value, Runnable completion) {
         delegate.putLater(key, value, completion);
     }
 
+    @Override
+    public void putAllLater(Map<? extends K, ? extends V> entries, Runnable completion) {
+        inMemoryCache.putAll(entries);
+        delegate.putAllLater(entries, completion);
+    }
+
     @Override
     public void removeLater(K key, Runnable completion) {
         inMemoryCache.put(key, NULL);
@@ -19,6 +19,7 @@
 import org.gradle.cache.UnitOfWorkParticipant;
 
 import javax.annotation.Nullable;
+import java.util.Map;
 
 /**
  * An indexed cache that may perform updates asynchronously.
@@ -30,6 +31,13 @@
     @Nullable
     V get(K key);
 
+    /**
+     * Fetches the given entries, blocking until the result is available.
+     *
+     * @return The keys that have a value associated, with their values.
+     */
+    Map<K, V> getAll(Iterable<? extends K> keys);
+
     /**
      * Fetches the given entry, producing if necessary, blocking until the result is available. This method may or may not block until any updates have completed and will invoke the given completion action when the operation is complete.
      */
@@ -40,6 +48,11 @@
      */
     void putLater(K key, V value, Runnable completion);
 
+    /**
+     * Submits updates to be applied later. This method may or may not block, and will invoke the given completion action once when all updates are complete.
+     */
+    void putAllLater(Map<? extends K, ? extends V> entries, Runnable completion);
+
     /**
      * Submits a removal to be applied later. This method may or may not block, and will invoke the given completion action when the operation is complete.
      */
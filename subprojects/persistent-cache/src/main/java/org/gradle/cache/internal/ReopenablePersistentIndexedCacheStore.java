@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+/**
+ * A {@link PersistentIndexedCacheStore} that keeps state which stays valid while other processes change the cache file, so that it does not need to be
+ * opened again from scratch every time the file lock is acquired.
+ */
+public interface ReopenablePersistentIndexedCacheStore<K, V> extends PersistentIndexedCacheStore<K, V> {
+    /**
+     * Closes the cache file before the file lock is released, keeping the state that can be reused by {@link #reopen()}.
+     */
+    void release();
+
+    /**
+     * Opens the cache file again after the file lock has been acquired, bringing the kept state up to date with the changes made to the file since
+     * {@link #release()}.
+     */
+    void reopen();
+}
@@ -17,6 +17,7 @@
 
 import com.google.common.collect.ImmutableSet;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.PersistentIndexedCacheStore;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.io.StreamByteBuffer;
 import org.gradle.internal.serialize.Serializer;
@@ -33,7 +34,9 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 // todo - stream serialised value to file
 // todo - handle hash collisions (properly, this time)
@@ -47,7 +50,7 @@
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
 @SuppressWarnings("unchecked")
-public class BTreePersistentIndexedCache<K, V> {
+public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCacheStore<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
     private final File cacheFile;
     private final KeyHasher<K> keyHasher;
@@ -121,6 +124,7 @@ public void run() {
         header = store.readFirst(HeaderBlock.class);
     }
 
+    @Override
     public V get(K key) {
         try {
             try {
@@ -138,6 +142,35 @@ public V get(K key) {
         }
     }
 
+    @Override
+    public Map<K, V> getAll(Iterable<? extends K> keys) {
+        try {
+            // Look up the keys in the order of their hashes, which is the order of the index, so that consecutive lookups visit the same index blocks
+            List<HashedKey<K>> hashedKeys = new ArrayList<HashedKey<K>>();
+            for (K key : keys) {
+                hashedKeys.add(new HashedKey<K>(keyHasher.getHashCode(key), key));
+            }
+            Collections.sort(hashedKeys);
+            Map<K, V> values = new LinkedHashMap<K, V>();
+            try {
+                for (HashedKey<K> hashedKey : hashedKeys) {
+                    Lookup lookup = header.getRoot().find(hashedKey.hashCode);
+                    if (lookup.entry != null) {
+                        DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+                        values.put(hashedKey.key, block.getValue());
+                    }
+                }
+            } catch (CorruptedCacheException e) {
+                rebuild();
+                return Collections.emptyMap();
+            }
+            return values;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entries from %s.", this), e);
+        }
+    }
+
+    @Override
     public void put(K key, V value) {
         try {
             long hashCode = keyHasher.getHashCode(key);
@@ -163,6 +196,7 @@ public void put(K key, V value) {
         }
     }
 
+    @Override
     public void remove(K key) {
         try {
             Lookup lookup = header.getRoot().find(key);
@@ -195,6 +229,7 @@ public void reset() {
         }
     }
 
+    @Override
     public void close() {
         LOGGER.debug("Closing {}", this);
         try {
@@ -615,6 +650,21 @@ private IndexBlock findHighestLeaf() throws Exception {
         }
     }
 
+    private static class HashedKey<K> implements Comparable<HashedKey<K>> {
+        final long hashCode;
+        final K key;
+
+        HashedKey(long hashCode, K key) {
+            this.hashCode = hashCode;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(HashedKey<K> o) {
+            return Long.compare(hashCode, o.hashCode);
+        }
+    }
+
     private static class IndexEntry implements Comparable<IndexEntry> {
         long hashCode;
         BlockPointer dataBlock;
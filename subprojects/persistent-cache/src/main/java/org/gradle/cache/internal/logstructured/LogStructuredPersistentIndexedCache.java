@@ -0,0 +1,561 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import com.google.common.hash.Hashing;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.PersistentIndexedCacheStore;
+import org.gradle.cache.internal.ReopenablePersistentIndexedCacheStore;
+import org.gradle.internal.IoActions;
+import org.gradle.internal.os.OperatingSystem;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link PersistentIndexedCacheStore} that appends every update to a log file and keeps an index from keys to their latest record in memory.
+ *
+ * <p>Each record holds the serialized key, the serialized value (or a marker for a removed entry) and a checksum. The index is built by reading the log
+ * when the cache is opened; a truncated or corrupt tail, as left behind by a crash, is discarded at that point. The index only keeps a hash of each key, and
+ * the key stored in the record is compared on lookup, so a hash collision between two keys causes a cache miss rather than a wrong value.</p>
+ *
+ * <p>The index is kept when the cache is {@linkplain #release() released}. Other processes only ever append to the log, or replace it with a compacted
+ * log that has a new id in its header. When the cache is {@linkplain #reopen() reopened}, only records appended since the release are read, unless the
+ * log was replaced, in which case the index is built again.</p>
+ *
+ * <p>The index is split into stripes with their own read-write lock, so that lookups don't block each other. Complete segments of the log are memory mapped
+ * for reading, except on Windows, where a mapped file cannot be replaced. When more than half of the log is taken up by overwritten or removed records, the
+ * live records are copied to a new log when the cache is released or closed.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements ReopenablePersistentIndexedCacheStore<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAGIC = 0x474c4f47;
+    private static final int FORMAT_VERSION = 2;
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final int REMOVED = -1;
+    private static final int STRIPE_COUNT = 16;
+    private static final long MIN_GARBAGE_TO_COMPACT = 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final File cacheFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int segmentSize;
+    private final boolean memoryMapped;
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    private final Object appendLock = new Object();
+
+    private FileChannel channel;
+    private long logId;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long end;
+    private long liveBytes;
+
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(cacheFile, keySerializer, valueSerializer, DEFAULT_SEGMENT_SIZE, !OperatingSystem.current().isWindows());
+    }
+
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, int segmentSize, boolean memoryMapped) {
+        this.cacheFile = cacheFile;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.segmentSize = segmentSize;
+        this.memoryMapped = memoryMapped;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + cacheFile.getName() + " (" + cacheFile + ")";
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        channel = new RandomAccessFile(cacheFile, "rw").getChannel();
+        readLog();
+        mapCompleteSegments();
+    }
+
+    /**
+     * Builds the index from the whole log, starting a new log when the file does not contain one.
+     */
+    private void readLog() throws IOException {
+        for (Stripe stripe : stripes) {
+            stripe.index = new LongLongHashMap();
+        }
+        liveBytes = 0;
+        long fileSize = channel.size();
+        long id = fileSize < FILE_HEADER_SIZE ? 0 : readLogId();
+        if (id == 0) {
+            if (fileSize > 0) {
+                LOGGER.warn("{} is corrupt. Discarding.", this);
+            }
+            channel.truncate(0);
+            logId = newLogId();
+            writeFully(header(logId), 0);
+            end = FILE_HEADER_SIZE;
+        } else {
+            logId = id;
+            readRecords(FILE_HEADER_SIZE, fileSize);
+        }
+    }
+
+    /**
+     * Adds the records from the given position on to the index, discarding an incomplete tail.
+     */
+    private void readRecords(long start, long fileSize) throws IOException {
+        end = scan(start, fileSize);
+        if (end < fileSize) {
+            LOGGER.debug("Discarding incomplete records at the end of {}", this);
+            channel.truncate(end);
+        }
+    }
+
+    /**
+     * Returns the id of the log in the file, or {@code 0} when the file does not start with a valid header.
+     */
+    private long readLogId() throws IOException {
+        ByteBuffer header = readFully(0, FILE_HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            return 0;
+        }
+        return header.getLong();
+    }
+
+    private static ByteBuffer header(long logId) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(logId).flip();
+        return header;
+    }
+
+    private static long newLogId() {
+        long id = ThreadLocalRandom.current().nextLong();
+        return id == 0 ? 1 : id;
+    }
+
+    /**
+     * Reads the records from the given position on, adding them to the index, and returns the end of the last valid record.
+     */
+    private long scan(long start, long fileSize) throws IOException {
+        ScanningReader reader = new ScanningReader(start, fileSize);
+        long position = start;
+        while (position + RECORD_HEADER_SIZE <= fileSize) {
+            ByteBuffer header = reader.read(position, RECORD_HEADER_SIZE);
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            int checksum = header.getInt();
+            if (keyLength <= 0 || valueLength < REMOVED) {
+                break;
+            }
+            long recordSize = recordSize(keyLength, valueLength);
+            if (position + recordSize > fileSize) {
+                break;
+            }
+            ByteBuffer payload = reader.read(position + RECORD_HEADER_SIZE, keyLength + Math.max(valueLength, 0));
+            byte[] keyBytes = new byte[keyLength];
+            payload.get(keyBytes);
+            if (checksum(keyBytes, payload, Math.max(valueLength, 0)) != checksum) {
+                break;
+            }
+            long keyHash = hash(keyBytes);
+            Stripe stripe = stripeFor(keyHash);
+            long previous = valueLength == REMOVED ? stripe.index.remove(keyHash) : stripe.index.put(keyHash, position);
+            if (previous != 0) {
+                liveBytes -= recordSizeAt(previous);
+            }
+            if (valueLength != REMOVED) {
+                liveBytes += recordSize;
+            }
+            position += recordSize;
+        }
+        return position;
+    }
+
+    @Nullable
+    @Override
+    public V get(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            long keyHash = hash(keyBytes);
+            Stripe stripe = stripeFor(keyHash);
+            long position;
+            stripe.lock.readLock().lock();
+            try {
+                position = stripe.index.get(keyHash);
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+            if (position == 0) {
+                return null;
+            }
+            ByteBuffer header = readFully(position, RECORD_HEADER_SIZE);
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            ByteBuffer payload = readFully(position + RECORD_HEADER_SIZE, keyLength + valueLength);
+            byte[] storedKey = new byte[keyLength];
+            payload.get(storedKey);
+            if (!Arrays.equals(keyBytes, storedKey)) {
+                // Another key with the same hash replaced this one
+                return null;
+            }
+            byte[] valueBytes = new byte[valueLength];
+            payload.get(valueBytes);
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(valueBytes)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            append(keyBytes, valueBytes);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            append(serialize(keySerializer, key), null);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    private void append(byte[] keyBytes, @Nullable byte[] valueBytes) throws IOException {
+        long keyHash = hash(keyBytes);
+        Stripe stripe = stripeFor(keyHash);
+        int valueLength = valueBytes == null ? REMOVED : valueBytes.length;
+        ByteBuffer record = ByteBuffer.allocate((int) recordSize(keyBytes.length, valueLength));
+        record.putInt(keyBytes.length);
+        record.putInt(valueLength);
+        record.putInt(checksum(keyBytes, valueBytes == null ? null : ByteBuffer.wrap(valueBytes), Math.max(valueLength, 0)));
+        record.put(keyBytes);
+        if (valueBytes != null) {
+            record.put(valueBytes);
+        }
+        record.flip();
+
+        // Hold the stripe lock while appending, so that the index always points to the latest record for a key
+        stripe.lock.writeLock().lock();
+        try {
+            synchronized (appendLock) {
+                if (valueBytes == null && stripe.index.get(keyHash) == 0) {
+                    return;
+                }
+                long position = end;
+                writeFully(record, position);
+                end = position + record.capacity();
+                long previous = valueBytes == null ? stripe.index.remove(keyHash) : stripe.index.put(keyHash, position);
+                if (previous != 0) {
+                    liveBytes -= recordSizeAt(previous);
+                }
+                if (valueBytes != null) {
+                    liveBytes += record.capacity();
+                }
+                mapCompleteSegments();
+            }
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compacts the log when needed and closes the file, but keeps the index.
+     */
+    @Override
+    public void release() {
+        LOGGER.debug("Releasing {}", this);
+        lockAllStripes();
+        try {
+            synchronized (appendLock) {
+                closeLog();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    @Override
+    public void reopen() {
+        LOGGER.debug("Reopening {}", this);
+        // The index is rebuilt or extended from the log, so no lookup may run meanwhile
+        lockAllStripes();
+        try {
+            synchronized (appendLock) {
+                channel = new RandomAccessFile(cacheFile, "rw").getChannel();
+                long fileSize = channel.size();
+                if (fileSize >= end && readLogId() == logId) {
+                    // Other processes may have appended records since the cache was released
+                    readRecords(end, fileSize);
+                } else {
+                    LOGGER.debug("{} was replaced. Reading it again.", this);
+                    readLog();
+                }
+                mapCompleteSegments();
+            }
+        } catch (IOException e) {
+            IoActions.closeQuietly(channel);
+            throw new UncheckedIOException(String.format("Could not reopen %s.", this), e);
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        lockAllStripes();
+        try {
+            synchronized (appendLock) {
+                closeLog();
+                for (Stripe stripe : stripes) {
+                    stripe.index = new LongLongHashMap();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    /**
+     * Takes the write lock of every stripe. Stripe locks are always taken before the append lock.
+     */
+    private void lockAllStripes() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+        }
+    }
+
+    private void unlockAllStripes() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    private void closeLog() throws IOException {
+        long garbage = end - FILE_HEADER_SIZE - liveBytes;
+        if (garbage > MIN_GARBAGE_TO_COMPACT && garbage > liveBytes) {
+            compact();
+        }
+        channel.close();
+        segments = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Copies the live records to a new log with a new id, which then replaces the current one. Leaves the log closed.
+     * The caller must hold the write lock of every stripe.
+     */
+    private void compact() throws IOException {
+        LOGGER.debug("Compacting {}", this);
+        File compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compacting");
+        long compactedLogId = newLogId();
+        try (FileChannel compacted = new RandomAccessFile(compactedFile, "rw").getChannel()) {
+            compacted.truncate(0);
+            ByteBuffer header = header(compactedLogId);
+            while (header.hasRemaining()) {
+                compacted.write(header);
+            }
+            for (Stripe stripe : stripes) {
+                LongLongHashMap compactedIndex = new LongLongHashMap();
+                IOException[] failure = new IOException[1];
+                stripe.index.forEachValue(position -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        ByteBuffer recordHeader = readFully(position, RECORD_HEADER_SIZE);
+                        int keyLength = recordHeader.getInt();
+                        int valueLength = recordHeader.getInt();
+                        ByteBuffer record = readFully(position, (int) recordSize(keyLength, valueLength));
+                        byte[] keyBytes = new byte[keyLength];
+                        record.position(RECORD_HEADER_SIZE);
+                        record.get(keyBytes);
+                        record.position(0);
+                        compactedIndex.put(hash(keyBytes), compacted.position());
+                        while (record.hasRemaining()) {
+                            compacted.write(record);
+                        }
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                stripe.index = compactedIndex;
+            }
+            compacted.force(false);
+            end = compacted.position();
+            liveBytes = end - FILE_HEADER_SIZE;
+        }
+        channel.close();
+        segments = new MappedByteBuffer[0];
+        Files.move(compactedFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logId = compactedLogId;
+    }
+
+    private void mapCompleteSegments() throws IOException {
+        if (!memoryMapped) {
+            return;
+        }
+        int completeSegments = (int) (end / segmentSize);
+        MappedByteBuffer[] current = segments;
+        if (current.length < completeSegments) {
+            MappedByteBuffer[] updated = Arrays.copyOf(current, completeSegments);
+            for (int i = current.length; i < completeSegments; i++) {
+                updated[i] = channel.map(FileChannel.MapMode.READ_ONLY, (long) i * segmentSize, segmentSize);
+            }
+            segments = updated;
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        int segment = (int) (position / segmentSize);
+        int offsetInSegment = (int) (position % segmentSize);
+        if (segment < mapped.length && offsetInSegment + length <= segmentSize) {
+            ByteBuffer slice = mapped[segment].duplicate();
+            slice.position(offsetInSegment);
+            slice.limit(offsetInSegment + length);
+            return slice.slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(String.format("Unexpected end of %s.", this));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        buffer.rewind();
+    }
+
+    private long recordSizeAt(long position) throws IOException {
+        ByteBuffer header = readFully(position, RECORD_HEADER_SIZE);
+        return recordSize(header.getInt(), header.getInt());
+    }
+
+    private static long recordSize(int keyLength, int valueLength) {
+        return RECORD_HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+    }
+
+    private Stripe stripeFor(long keyHash) {
+        return stripes[(int) (keyHash >>> 60)];
+    }
+
+    private static long hash(byte[] keyBytes) {
+        long hash = Hashing.murmur3_128().hashBytes(keyBytes).asLong();
+        // 0 marks an empty slot in the index
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int checksum(byte[] keyBytes, @Nullable ByteBuffer value, int valueLength) {
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes, 0, keyBytes.length);
+        if (value != null && valueLength > 0) {
+            ByteBuffer valueBytes = value.duplicate();
+            valueBytes.limit(valueBytes.position() + valueLength);
+            crc.update(valueBytes);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(bytes);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return bytes.toByteArray();
+    }
+
+    private static class Stripe {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private LongLongHashMap index = new LongLongHashMap();
+    }
+
+    /**
+     * Reads the log sequentially through a buffer, to avoid a read from the file for every record when building the index.
+     */
+    private class ScanningReader {
+        private final long fileSize;
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+        private long bufferStart;
+
+        ScanningReader(long start, long fileSize) {
+            this.bufferStart = start;
+            this.fileSize = fileSize;
+        }
+
+        ByteBuffer read(long position, int length) throws IOException {
+            if (position < bufferStart || position + length > bufferStart + buffer.limit()) {
+                int size = (int) Math.min(Math.max(length, SCAN_BUFFER_SIZE), fileSize - position);
+                buffer = LogStructuredPersistentIndexedCache.this.readFully(position, size);
+                bufferStart = position;
+            }
+            ByteBuffer result = buffer.duplicate();
+            result.position((int) (position - bufferStart));
+            result.limit((int) (position - bufferStart) + length);
+            return result.slice();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import java.util.function.LongConsumer;
+
+/**
+ * An open addressing hash map from {@code long} keys to {@code long} values, which avoids boxing and per-entry objects.
+ *
+ * The key {@code 0} is reserved to mark empty slots, and the value {@code 0} is returned for missing keys. Not thread-safe.
+ */
+class LongLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    LongLongHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value for the given key, or {@code 0} when there is none.
+     */
+    public long get(long key) {
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == 0) {
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Maps the given key to the given value, returning the previous value or {@code 0} when there was none.
+     */
+    public long put(long key, long value) {
+        checkKey(key);
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (current == 0) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeThreshold) {
+                    resize();
+                }
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes the given key, returning the previous value or {@code 0} when there was none.
+     */
+    public long remove(long key) {
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == 0) {
+                return 0;
+            }
+            if (current == key) {
+                long previous = values[slot];
+                deleteSlot(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void forEachValue(LongConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Empties the given slot and shifts back entries that were displaced past it, so that lookups never stop early at the emptied slot.
+     */
+    private void deleteSlot(int emptied) {
+        int current = emptied;
+        while (true) {
+            current = (current + 1) & mask;
+            long key = keys[current];
+            if (key == 0) {
+                break;
+            }
+            int home = slot(key);
+            boolean homeBetweenEmptiedAndCurrent = emptied <= current
+                ? emptied < home && home <= current
+                : emptied < home || home <= current;
+            if (!homeBetweenEmptiedAndCurrent) {
+                keys[emptied] = key;
+                values[emptied] = values[current];
+                emptied = current;
+            }
+        }
+        keys[emptied] = 0;
+        values[emptied] = 0;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 4 * 3;
+    }
+
+    private int slot(long key) {
+        long mixed = key * 0x9e3779b97f4a7c15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    private static void checkKey(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+}
@@ -61,6 +61,51 @@ class InMemoryDecoratedCacheTest extends ConcurrentSpec {
         0 * _
     }
 
+    def "gets values that are not present in memory from backing cache in a single batch"() {
+        given:
+        cache.putLater("a", "1", Stub(Runnable))
+
+        when:
+        def result = cache.getAll(["a", "b", "c"])
+
+        then:
+        result == [a: "1", b: "2"]
+
+        and:
+        1 * target.getAll(["b", "c"]) >> [b: "2"]
+        0 * _
+
+        when:
+        result = cache.getAll(["a", "b", "c"])
+
+        then:
+        result == [a: "1", b: "2"]
+        0 * _
+    }
+
+    def "keeps value stored while reading values from backing cache"() {
+        when:
+        def result = cache.getAll(["a"])
+
+        then:
+        result == [a: "new"]
+
+        and:
+        1 * target.getAll(["a"]) >> {
+            cache.putLater("a", "new", Stub(Runnable))
+            [a: "old"]
+        }
+        1 * target.putLater("a", "new", _)
+        0 * _
+
+        when:
+        result = cache.get("a")
+
+        then:
+        result == "new"
+        0 * _
+    }
+
     def "produces value and stores in backing cache later when not present"() {
         def producer = Mock(Transformer)
         def completion = Mock(Runnable)
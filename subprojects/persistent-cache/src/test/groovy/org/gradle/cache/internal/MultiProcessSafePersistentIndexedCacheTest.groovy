@@ -51,6 +51,36 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "holds read lock once while getting entries from cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        def result = cache.getAll(["a", "b"])
+
+        then:
+        result == [a: "1"]
+
+        and:
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.getAll(["a", "b"]) >> [a: "1"]
+        0 * _._
+    }
+
+    def "holds write lock once while putting entries into cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        cache.putAll([a: "1", b: "2"])
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.put("a", "1")
+        1 * backingCache.put("b", "2")
+        0 * _._
+    }
+
     def "holds write lock while putting entry into cache"() {
         given:
         cacheOpened()
@@ -129,6 +159,42 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "keeps reopenable cache when work is finished and reopens it on next access"() {
+        given:
+        def reopenableCache = Mock(ReopenablePersistentIndexedCacheStore)
+        def indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> reopenableCache
+        indexedCache.get("something")
+
+        when:
+        indexedCache.finishWork()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * reopenableCache.release()
+        0 * _._
+
+        when:
+        indexedCache.finishWork()
+
+        then:
+        0 * _._
+
+        when:
+        def result = indexedCache.get("value")
+
+        then:
+        result == "result"
+
+        and:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * reopenableCache.reopen()
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * reopenableCache.get("value") >> "result"
+        0 * _._
+    }
+
     def cacheOpened() {
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.create() >> backingCache
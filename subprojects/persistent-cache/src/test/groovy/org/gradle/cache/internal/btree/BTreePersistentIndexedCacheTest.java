@@ -90,6 +90,17 @@ public void persistsAddedEntriesOverMultipleIndexBlocks() {
         verifyAndCloseCache();
     }
 
+    @Test
+    public void getsEntriesInBatchOverMultipleIndexBlocks() {
+        createCache();
+        Map<String, Integer> added = checkAdds(Arrays.asList(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0));
+
+        List<String> keys = new ArrayList<String>(added.keySet());
+        keys.add("unknown");
+        assertThat(cache.getAll(keys), equalTo(added));
+        verifyAndCloseCache();
+    }
+
     @Test
     public void persistsUpdates() {
         createCache();
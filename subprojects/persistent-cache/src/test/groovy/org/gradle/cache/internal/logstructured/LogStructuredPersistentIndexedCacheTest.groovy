@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Unroll
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.log")
+
+    def "persists added, updated and removed entries (memory mapped: #memoryMapped)"() {
+        when:
+        def cache = createCache(memoryMapped)
+        1000.times { cache.put("key" + it, "value" + it) }
+        500.times { cache.put("key" + it, "updated" + it) }
+        cache.remove("key0")
+        cache.remove("unknown")
+
+        then:
+        cache.get("key0") == null
+        cache.get("key1") == "updated1"
+        cache.get("key999") == "value999"
+        cache.get("unknown") == null
+
+        when:
+        cache.close()
+        cache = createCache(memoryMapped)
+
+        then:
+        cache.get("key0") == null
+        cache.get("key1") == "updated1"
+        cache.get("key999") == "value999"
+
+        cleanup:
+        cache?.close()
+
+        where:
+        memoryMapped << [true, false]
+    }
+
+    def "discards incomplete record at the end of the log"() {
+        def cache = createCache(true)
+        cache.put("key1", "value1")
+        cache.put("key2", "value2")
+        cache.close()
+
+        when:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.length = file.length() - 1
+        file.close()
+        cache = createCache(true)
+
+        then:
+        cache.get("key1") == "value1"
+        cache.get("key2") == null
+
+        when:
+        cache.put("key3", "value3")
+        cache.close()
+        cache = createCache(true)
+
+        then:
+        cache.get("key1") == "value1"
+        cache.get("key3") == "value3"
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "discards content of file with an unknown format"() {
+        cacheFile.text = "not a log"
+
+        when:
+        def cache = createCache(true)
+        cache.put("key", "value")
+
+        then:
+        cache.get("key") == "value"
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "compacts log on close when most of it is garbage"() {
+        def cache = createCache(true)
+        def value = "x" * 1000
+        10.times { round ->
+            1000.times { cache.put("key" + it, value + round) }
+        }
+        def sizeBeforeClose = cacheFile.length()
+
+        when:
+        cache.close()
+
+        then:
+        cacheFile.length() < sizeBeforeClose / 5
+        !new File(cacheFile.parentFile, cacheFile.name + ".compacting").exists()
+
+        when:
+        cache = createCache(true)
+
+        then:
+        cache.get("key0") == value + 9
+        cache.get("key999") == value + 9
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "reads only records appended by another process when reopened"() {
+        def cache = createCache(true)
+        cache.put("key1", "value1")
+        cache.put("key2", "value2")
+        cache.release()
+
+        when:
+        def other = createCache(true)
+        other.put("key2", "updated2")
+        other.put("key3", "value3")
+        other.remove("key1")
+        other.close()
+        cache.reopen()
+
+        then:
+        cache.get("key1") == null
+        cache.get("key2") == "updated2"
+        cache.get("key3") == "value3"
+
+        when:
+        cache.put("key4", "value4")
+        cache.close()
+        cache = createCache(true)
+
+        then:
+        cache.get("key2") == "updated2"
+        cache.get("key4") == "value4"
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "reads log again when reopened after another process compacted it"() {
+        def cache = createCache(true)
+        cache.put("key", "value")
+        cache.release()
+
+        when:
+        def other = createCache(true)
+        def value = "x" * 1000
+        10.times { round ->
+            1000.times { other.put("key" + it, value + round) }
+        }
+        other.close()
+        cache.reopen()
+
+        then:
+        cache.get("key") == "value"
+        cache.get("key0") == value + 9
+        cache.get("key999") == value + 9
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "reads log again when reopened after the file was deleted"() {
+        def cache = createCache(true)
+        cache.put("key", "value")
+        cache.release()
+
+        when:
+        cacheFile.delete()
+        cache.reopen()
+
+        then:
+        cache.get("key") == null
+
+        when:
+        cache.put("key", "updated")
+
+        then:
+        cache.get("key") == "updated"
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "can read and write concurrently"() {
+        def cache = createCache(true)
+        def threads = (0..<4).collect { thread ->
+            Thread.start {
+                1000.times {
+                    def key = "key" + thread + "-" + it
+                    cache.put(key, "value" + it)
+                    assert cache.get(key) == "value" + it
+                }
+            }
+        }
+
+        when:
+        threads*.join()
+
+        then:
+        (0..<4).every { thread -> (0..<1000).every { cache.get("key" + thread + "-" + it) == "value" + it } }
+
+        cleanup:
+        cache?.close()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, String> createCache(boolean memoryMapped) {
+        new LogStructuredPersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER, 4096, memoryMapped)
+    }
+}
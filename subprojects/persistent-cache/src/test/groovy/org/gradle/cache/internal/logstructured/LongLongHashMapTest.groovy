@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import spock.lang.Specification
+
+class LongLongHashMapTest extends Specification {
+    def map = new LongLongHashMap()
+
+    def "can add, update and remove entries"() {
+        expect:
+        map.put(1, 10) == 0
+        map.put(2, 20) == 0
+        map.put(1, 11) == 10
+        map.get(1) == 11
+        map.get(2) == 20
+        map.get(3) == 0
+        map.size() == 2
+
+        map.remove(1) == 11
+        map.remove(1) == 0
+        map.get(1) == 0
+        map.get(2) == 20
+        map.size() == 1
+    }
+
+    def "keeps entries reachable when growing and removing"() {
+        def random = new Random(42)
+        def keys = (0..<10000).collect { random.nextLong() | 1L } as Set
+
+        when:
+        keys.each { map.put(it, it * 3) }
+        def removed = keys.findAll { it % 3 == 0 }
+        removed.each { map.remove(it) }
+
+        then:
+        map.size() == keys.size() - removed.size()
+        keys.every { map.get(it) == (it in removed ? 0 : it * 3) }
+    }
+
+    def "visits all values"() {
+        def values = []
+        map.put(1, 10)
+        map.put(2, 20)
+        map.put(3, 30)
+        map.remove(2)
+
+        when:
+        map.forEachValue { values << it }
+
+        then:
+        values.sort() == [10, 30]
+    }
+}
@@ -114,7 +114,7 @@ public Builder withAuthenticationSettings(Collection<Authentication> authenticat
 
         public Builder withSslContextFactory(SslContextFactory sslContextFactory) {
             this.sslContextFactory = sslContextFactory;
-            this.hostnameVerifier = new DefaultHostnameVerifier(null);
+            this.hostnameVerifier = DEFAULT_HOSTNAME_VERIFIER;
             return this;
         }
 
@@ -134,6 +134,8 @@ public HttpSettings build() {
         }
     }
 
+    private static final HostnameVerifier DEFAULT_HOSTNAME_VERIFIER = new DefaultHostnameVerifier(null);
+
     private static final HostnameVerifier ALL_TRUSTING_HOSTNAME_VERIFIER = new HostnameVerifier() {
         @Override
         public boolean verify(String hostname, SSLSession session) {
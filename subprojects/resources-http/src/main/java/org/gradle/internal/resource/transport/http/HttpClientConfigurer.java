@@ -73,7 +73,9 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
 import java.net.ProxySelector;
 import java.util.Collection;
 import java.util.Collections;
@@ -97,14 +99,21 @@ public class HttpClientConfigurer {
     }
 
     private final HttpSettings httpSettings;
+    private final HttpConnectionPool connectionPool;
 
     public HttpClientConfigurer(HttpSettings httpSettings) {
+        this(httpSettings, null);
+    }
+
+    public HttpClientConfigurer(HttpSettings httpSettings, @Nullable HttpConnectionPool connectionPool) {
         this.httpSettings = httpSettings;
+        this.connectionPool = connectionPool;
     }
 
     public void configure(HttpClientBuilder builder) {
         SystemDefaultCredentialsProvider credentialsProvider = new SystemDefaultCredentialsProvider();
-        configureSslSocketConnectionFactory(builder, httpSettings.getSslContextFactory(), httpSettings.getHostnameVerifier());
+        SSLContext sslContext = httpSettings.getSslContextFactory().createSslContext();
+        configureSslSocketConnectionFactory(builder, sslContext, httpSettings.getHostnameVerifier());
         configureAuthSchemeRegistry(builder);
         configureCredentials(builder, credentialsProvider, httpSettings.getAuthenticationSettings());
         configureProxy(builder, credentialsProvider, httpSettings);
@@ -116,10 +125,23 @@ public void configure(HttpClientBuilder builder) {
         builder.setDefaultCredentialsProvider(credentialsProvider);
         builder.setMaxConnTotal(MAX_HTTP_CONNECTIONS);
         builder.setMaxConnPerRoute(MAX_HTTP_CONNECTIONS);
+        configureConnectionManager(builder, sslContext, httpSettings.getHostnameVerifier());
     }
 
-    private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
-        builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslContextFactory.createSslContext(), SSL_PROTOCOLS, null, hostnameVerifier));
+    private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+        builder.setSSLSocketFactory(createSslSocketFactory(sslContext, hostnameVerifier));
+    }
+
+    private static SSLConnectionSocketFactory createSslSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+        return new SSLConnectionSocketFactory(sslContext, SSL_PROTOCOLS, null, hostnameVerifier);
+    }
+
+    private void configureConnectionManager(HttpClientBuilder builder, SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+        if (connectionPool != null) {
+            // The socket factory and socket config set above only apply to a connection manager created by the builder, so hand them to the shared one
+            builder.setConnectionManager(connectionPool.getConnectionManager(sslContext, hostnameVerifier, createSslSocketFactory(sslContext, hostnameVerifier), createSocketConfig()));
+            builder.setConnectionManagerShared(true);
+        }
     }
 
     private void configureAuthSchemeRegistry(HttpClientBuilder builder) {
@@ -260,8 +282,12 @@ private void configureRequestConfig(HttpClientBuilder builder) {
     }
 
     private void configureSocketConfig(HttpClientBuilder builder) {
+        builder.setDefaultSocketConfig(createSocketConfig());
+    }
+
+    private SocketConfig createSocketConfig() {
         HttpTimeoutSettings timeoutSettings = httpSettings.getTimeoutSettings();
-        builder.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(timeoutSettings.getSocketTimeoutMs()).setSoKeepAlive(true).build());
+        return SocketConfig.custom().setSoTimeout(timeoutSettings.getSocketTimeoutMs()).setSoKeepAlive(true).build();
     }
 
     private void configureRedirectStrategy(HttpClientBuilder builder) {
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import com.google.common.base.Objects;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.gradle.internal.concurrent.Stoppable;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pools that are shared by all HTTP clients that use the same SSL and socket configuration, and that outlive a single build.
+ *
+ * Without sharing, each repository gets its own client with its own pool, so every repository declared in every project opens its own connections
+ * to the same host, paying for a TCP and TLS handshake on each, and those connections are discarded at the end of the build. With sharing, requests
+ * for different repositories on the same host are sent over the same few kept-alive connections, including in later builds run by the same daemon.
+ *
+ * Credentials and proxy settings stay with each client: the pool is keyed by route, which includes the proxy, and connections that carry
+ * authentication state, such as NTLM, are only handed out again to requests made with the same state.
+ *
+ * Sharing is enabled by setting the {@value #ENABLED_PROPERTY} system property.
+ */
+public class HttpConnectionPool implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.http.shared-connection-pool";
+
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final int MAX_CONNECTIONS = 100;
+    private static final long MAX_IDLE_SECONDS = 60;
+
+    private final Map<PoolKey, PoolingHttpClientConnectionManager> connectionManagers = new HashMap<PoolKey, PoolingHttpClientConnectionManager>();
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns the connection manager to use for a client with the given configuration. The client must not shut down the returned manager.
+     */
+    public synchronized HttpClientConnectionManager getConnectionManager(SSLContext sslContext, HostnameVerifier hostnameVerifier, SSLConnectionSocketFactory sslSocketFactory, SocketConfig socketConfig) {
+        closeIdleConnections();
+        PoolKey key = new PoolKey(sslContext, hostnameVerifier, socketConfig.getSoTimeout());
+        PoolingHttpClientConnectionManager connectionManager = connectionManagers.get(key);
+        if (connectionManager == null) {
+            Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslSocketFactory)
+                .build();
+            connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+            connectionManager.setDefaultSocketConfig(socketConfig);
+            connectionManager.setMaxTotal(MAX_CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+            connectionManagers.put(key, connectionManager);
+        }
+        return connectionManager;
+    }
+
+    synchronized int getPoolCount() {
+        return connectionManagers.size();
+    }
+
+    private void closeIdleConnections() {
+        // Shared managers are not covered by the idle connection evictor of the clients, so evict whenever a new client is created instead
+        for (PoolingHttpClientConnectionManager connectionManager : connectionManagers.values()) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        for (PoolingHttpClientConnectionManager connectionManager : connectionManagers.values()) {
+            connectionManager.shutdown();
+        }
+        connectionManagers.clear();
+    }
+
+    private static class PoolKey {
+        private final SSLContext sslContext;
+        private final HostnameVerifier hostnameVerifier;
+        private final int socketTimeoutMs;
+
+        PoolKey(SSLContext sslContext, HostnameVerifier hostnameVerifier, int socketTimeoutMs) {
+            this.sslContext = sslContext;
+            this.hostnameVerifier = hostnameVerifier;
+            this.socketTimeoutMs = socketTimeoutMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PoolKey other = (PoolKey) o;
+            return sslContext == other.sslContext && hostnameVerifier == other.hostnameVerifier && socketTimeoutMs == other.socketTimeoutMs;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(System.identityHashCode(sslContext), System.identityHashCode(hostnameVerifier), socketTimeoutMs);
+        }
+    }
+}
@@ -39,9 +39,15 @@ public class HttpConnectorFactory implements ResourceConnectorFactory {
     );
 
     private SslContextFactory sslContextFactory;
+    private final HttpConnectionPool connectionPool;
 
     public HttpConnectorFactory(SslContextFactory sslContextFactory) {
+        this(sslContextFactory, new HttpConnectionPool());
+    }
+
+    public HttpConnectorFactory(SslContextFactory sslContextFactory, HttpConnectionPool connectionPool) {
         this.sslContextFactory = sslContextFactory;
+        this.connectionPool = connectionPool;
     }
 
     @Override
@@ -59,7 +65,8 @@ public ExternalResourceConnector createResourceConnector(ResourceConnectorSpecif
         HttpClientHelper http = new HttpClientHelper(DefaultHttpSettings.builder()
             .withAuthenticationSettings(connectionDetails.getAuthentications())
             .withSslContextFactory(sslContextFactory)
-            .build()
+            .build(),
+            HttpConnectionPool.isEnabled() ? connectionPool : null
         );
         HttpResourceAccessor accessor = new HttpResourceAccessor(http);
         HttpResourceLister lister = new HttpResourceLister(accessor);
@@ -48,6 +48,25 @@ public HttpResponseResource openResource(final URI uri, boolean revalidate) {
         return null;
     }
 
+    @Override
+    @Nullable
+    public HttpResponseResource openResourceIfModified(URI uri, ExternalResourceMetaData cached) {
+        String location = uri.toString();
+        LOGGER.debug("Constructing external resource, unless not modified: {}", location);
+
+        HttpClientResponse response = http.performConditionalGet(location, cached.getEtag(), cached.getLastModified());
+        if (response != null) {
+            return wrapResponse(uri, response);
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean isConditionalRequestSupported() {
+        return true;
+    }
+
     /**
      * Same as #getResource except that it always gives access to the response body,
      * irrespective of the returned HTTP status code. Never returns {@code null}.
@@ -97,6 +97,11 @@ public String getContentType() {
         return response.getHeader(HttpHeaders.CONTENT_TYPE);
     }
 
+    @Override
+    public boolean isNotModified() {
+        return response.wasNotModified();
+    }
+
     public boolean isLocal() {
         return false;
     }
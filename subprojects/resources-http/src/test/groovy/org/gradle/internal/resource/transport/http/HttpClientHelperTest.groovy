@@ -16,9 +16,12 @@
 
 package org.gradle.internal.resource.transport.http
 
+import org.apache.http.ProtocolVersion
+import org.apache.http.client.methods.CloseableHttpResponse
 import org.apache.http.client.methods.HttpGet
 import org.apache.http.client.methods.HttpRequestBase
 import org.apache.http.impl.client.CloseableHttpClient
+import org.apache.http.message.BasicStatusLine
 import org.apache.http.ssl.SSLContexts
 import org.gradle.util.SetSystemProperties
 import org.junit.Rule
@@ -74,6 +77,29 @@ class HttpClientHelperTest extends AbstractHttpClientTest {
         request.getHeaders("Cache-Control")[0].value == "max-age=0"
     }
 
+    def "conditional get adds validators and returns not modified response"() {
+        HttpRequestBase request = null
+        def response = Mock(CloseableHttpResponse) {
+            getStatusLine() >> new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), 304, "Not Modified")
+        }
+        def client = new HttpClientHelper(httpSettings) {
+            @Override
+            protected HttpClientResponse executeGetOrHead(HttpRequestBase method) {
+                request = method
+                return new HttpClientResponse(method.method, method.URI, response)
+            }
+        }
+
+        when:
+        def result = client.performConditionalGet("http://gradle.org", '"686897696a7c876b7e"', new Date(0))
+
+        then:
+        result.wasNotModified()
+        request.getFirstHeader("If-None-Match").value == '"686897696a7c876b7e"'
+        request.getFirstHeader("If-Modified-Since").value == "Thu, 01 Jan 1970 00:00:00 GMT"
+        request.getFirstHeader("Cache-Control").value == "max-age=0"
+    }
+
     private HttpSettings getHttpSettings() {
         return Stub(HttpSettings) {
             getProxySettings() >> Mock(HttpProxySettings)
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.config.SocketConfig
+import org.apache.http.conn.ssl.DefaultHostnameVerifier
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager
+import org.apache.http.ssl.SSLContexts
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.test.fixtures.server.http.HttpServer
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.net.ssl.HostnameVerifier
+import javax.net.ssl.SSLContext
+
+class HttpConnectionPoolTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule HttpServer httpServer = new HttpServer()
+
+    def sslContext = SSLContexts.createDefault()
+    def hostnameVerifier = new DefaultHostnameVerifier(null)
+    def pool = new HttpConnectionPool()
+
+    def cleanup() {
+        pool.stop()
+    }
+
+    def "shares connection manager between clients with the same configuration"() {
+        expect:
+        def manager = connectionManager(sslContext, hostnameVerifier, 1000)
+        connectionManager(sslContext, hostnameVerifier, 1000).is(manager)
+        !connectionManager(SSLContexts.createDefault(), hostnameVerifier, 1000).is(manager)
+        !connectionManager(sslContext, new DefaultHostnameVerifier(null), 1000).is(manager)
+        !connectionManager(sslContext, hostnameVerifier, 2000).is(manager)
+        pool.poolCount == 4
+    }
+
+    def "requests made by different clients reuse the same connection"() {
+        def file = tmpDir.createFile("file.txt") << "content"
+        httpServer.expectHead("/one", file)
+        httpServer.expectHead("/two", file)
+        httpServer.start()
+        def first = new HttpClientHelper(httpSettings, pool)
+        def second = new HttpClientHelper(httpSettings, pool)
+
+        when:
+        first.performHead("${httpServer.uri}/one", false).close()
+        second.performHead("${httpServer.uri}/two", false).close()
+
+        then:
+        pool.poolCount == 1
+        def stats = connectionManager(sslContext, hostnameVerifier, new JavaSystemPropertiesHttpTimeoutSettings().socketTimeoutMs).totalStats
+        stats.available == 1
+        stats.leased == 0
+
+        when:
+        first.close()
+        second.close()
+
+        then:
+        connectionManager(sslContext, hostnameVerifier, new JavaSystemPropertiesHttpTimeoutSettings().socketTimeoutMs).totalStats.available == 1
+    }
+
+    def "closes pooled connections when stopped"() {
+        def manager = connectionManager(sslContext, hostnameVerifier, 1000)
+
+        when:
+        pool.stop()
+
+        then:
+        pool.poolCount == 0
+        !connectionManager(sslContext, hostnameVerifier, 1000).is(manager)
+    }
+
+    private PoolingHttpClientConnectionManager connectionManager(SSLContext sslContext, HostnameVerifier hostnameVerifier, int socketTimeoutMs) {
+        def socketConfig = SocketConfig.custom().setSoTimeout(socketTimeoutMs).build()
+        return pool.getConnectionManager(sslContext, hostnameVerifier, new SSLConnectionSocketFactory(sslContext, hostnameVerifier), socketConfig) as PoolingHttpClientConnectionManager
+    }
+
+    private HttpSettings getHttpSettings() {
+        Stub(HttpSettings) {
+            getProxySettings() >> Mock(HttpProxySettings)
+            getSecureProxySettings() >> Mock(HttpProxySettings)
+            getTimeoutSettings() >> new JavaSystemPropertiesHttpTimeoutSettings()
+            getAuthenticationSettings() >> []
+            getHostnameVerifier() >> hostnameVerifier
+            getSslContextFactory() >> Mock(SslContextFactory) {
+                createSslContext() >> sslContext
+            }
+        }
+    }
+}
@@ -108,6 +108,17 @@ public interface ExternalResource extends Resource {
     @Nullable
     <T> ExternalResourceReadResult<T> withContentIfPresent(ContentAction<? extends T> readAction) throws ResourceException;
 
+    /**
+     * Executes the given action against the binary contents and meta-data of this resource, unless the resource is unchanged when compared to the given meta-data
+     * of a previously obtained copy. When the resource is unchanged, the action is not executed and the result is {@link ExternalResourceReadResult#isNotModified() not modified}.
+     * Not all resources are able to tell whether they have changed without reading the content, in which case the action is always executed.
+     *
+     * @throws ResourceException on failure to read the content.
+     * @return null if the resource does not exist.
+     */
+    @Nullable
+    <T> ExternalResourceReadResult<T> withContentIfModified(ExternalResourceMetaData cached, ContentAction<? extends T> readAction) throws ResourceException;
+
     /**
      * Copies the given content to this resource.
      *
@@ -25,18 +25,27 @@
 
     private final long bytesRead;
     private final T result;
+    private final boolean notModified;
 
-    private ExternalResourceReadResult(long bytesRead, T result) {
+    private ExternalResourceReadResult(long bytesRead, T result, boolean notModified) {
         this.bytesRead = bytesRead;
         this.result = result;
+        this.notModified = notModified;
     }
 
     public static ExternalResourceReadResult<Void> of(long bytesRead) {
-        return new ExternalResourceReadResult<Void>(bytesRead, null);
+        return new ExternalResourceReadResult<Void>(bytesRead, null, false);
     }
 
     public static <T> ExternalResourceReadResult<T> of(long bytesRead, T t) {
-        return new ExternalResourceReadResult<T>(bytesRead, t);
+        return new ExternalResourceReadResult<T>(bytesRead, t, false);
+    }
+
+    /**
+     * The result of a conditional read of a resource that has not changed, and whose content was not read.
+     */
+    public static <T> ExternalResourceReadResult<T> notModified() {
+        return new ExternalResourceReadResult<T>(0, null, true);
     }
 
     /**
@@ -62,4 +71,11 @@ public long getBytesRead() {
     public T getResult() {
         return result;
     }
+
+    /**
+     * Whether the read was skipped because the resource has not changed.
+     */
+    public boolean isNotModified() {
+        return notModified;
+    }
 }
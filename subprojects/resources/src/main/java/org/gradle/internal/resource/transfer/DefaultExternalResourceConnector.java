@@ -56,6 +56,18 @@ public ExternalResourceReadResponse openResource(URI location, boolean revalidat
         return accessor.openResource(location, revalidate);
     }
 
+    @Nullable
+    @Override
+    public ExternalResourceReadResponse openResourceIfModified(URI location, ExternalResourceMetaData cached) {
+        STATS.resource(location);
+        return accessor.openResourceIfModified(location, cached);
+    }
+
+    @Override
+    public boolean isConditionalRequestSupported() {
+        return accessor.isConditionalRequestSupported();
+    }
+
     @Nullable
     @Override
     public ExternalResourceMetaData getMetaData(URI location, boolean revalidate) {
@@ -40,6 +40,30 @@ public interface ExternalResourceAccessor {
     @Nullable
     ExternalResourceReadResponse openResource(URI location, boolean revalidate) throws ResourceException;
 
+    /**
+     * Read the resource at the given location, unless it is unchanged when compared to the given meta-data of a previously obtained copy.
+     * The resource is always revalidated.
+     *
+     * Implementations that are able to make a conditional request return a response for which {@link ExternalResourceReadResponse#isNotModified()} is true
+     * when the resource is unchanged. The default implementation always reads the resource.
+     *
+     * @param location The address of the resource to obtain
+     * @param cached The meta-data of the previously obtained copy of the resource
+     * @return The resource if it exists, otherwise null. Caller is responsible for closing the result.
+     * @throws ResourceException If the resource may exist, but not could be obtained for some reason.
+     */
+    @Nullable
+    default ExternalResourceReadResponse openResourceIfModified(URI location, ExternalResourceMetaData cached) throws ResourceException {
+        return openResource(location, true);
+    }
+
+    /**
+     * Returns true when {@link #openResourceIfModified(URI, ExternalResourceMetaData)} makes a conditional request, rather than always reading the resource.
+     */
+    default boolean isConditionalRequestSupported() {
+        return false;
+    }
+
     /**
      * Obtains only the metadata about the resource.
      *
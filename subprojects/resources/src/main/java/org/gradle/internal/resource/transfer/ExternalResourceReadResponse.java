@@ -29,4 +29,12 @@ public interface ExternalResourceReadResponse extends Closeable {
     InputStream openStream() throws IOException;
 
     ExternalResourceMetaData getMetaData();
+
+    /**
+     * Returns true when this is the response to a conditional request, and the resource has not changed since the meta-data the request was made with was obtained.
+     * Such a response has no content, and its meta-data may be incomplete.
+     */
+    default boolean isNotModified() {
+        return false;
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import com.google.common.collect.Interners;
+import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares snapshotting a directory sequentially and in parallel.
+ *
+ * The wide tree has all of its files in a single directory, the deep tree spreads the same number of files over nested directories.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DirectorySnapshotterBenchmark {
+    private static final int FILE_COUNT = 20000;
+    private static final int FILES_PER_DIRECTORY = 20;
+    private static final int SUBDIRECTORIES_PER_DIRECTORY = 4;
+
+    @Param({"wide", "deep"})
+    String tree;
+
+    @Param({"sequential", "parallel"})
+    String walk;
+
+    Path root;
+    DirectoryWalkerPool walkerPool;
+    DirectorySnapshotter snapshotter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("snapshot-benchmark");
+        if (tree.equals("wide")) {
+            createFiles(root, FILE_COUNT);
+        } else {
+            createDeepTree(root, FILE_COUNT);
+        }
+        walkerPool = new DirectoryWalkerPool(walk.equals("parallel") ? Runtime.getRuntime().availableProcessors() : 0);
+        snapshotter = new DirectorySnapshotter(new DefaultFileHasher(new DefaultStreamHasher()), Interners.newWeakInterner(), walkerPool.getPool());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        walkerPool.close();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Benchmark
+    public FileSystemLocationSnapshot snapshot() {
+        return snapshotter.snapshot(root.toString(), null, new AtomicBoolean());
+    }
+
+    private static void createDeepTree(Path dir, int fileCount) throws IOException {
+        int filesHere = Math.min(fileCount, FILES_PER_DIRECTORY);
+        createFiles(dir, filesHere);
+        int remaining = fileCount - filesHere;
+        for (int i = 0; i < SUBDIRECTORIES_PER_DIRECTORY && remaining > 0; i++) {
+            int filesInSubdirectory = (remaining + SUBDIRECTORIES_PER_DIRECTORY - 1 - i) / (SUBDIRECTORIES_PER_DIRECTORY - i);
+            createDeepTree(Files.createDirectory(dir.resolve("dir" + i)), filesInSubdirectory);
+            remaining -= filesInSubdirectory;
+        }
+    }
+
+    private static void createFiles(Path dir, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            Files.write(dir.resolve("file" + i + ".txt"), ("content of file " + i + " in " + dir).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -22,18 +22,26 @@
 import org.gradle.internal.snapshot.WellKnownFileLocations;
 
 import javax.annotation.Nullable;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * See {@link DefaultFileSystemSnapshotter} for some more details
+ *
+ * State for files that do not live in an append-only cache is kept in a {@link PathHierarchy}, so that a change to a file also discards
+ * the state of the directories containing it. This state can optionally be retained between builds, provided something invalidates it
+ * as the file system changes.
  */
 public class DefaultFileSystemMirror implements FileSystemMirror {
+    // Tree from absolute path for a file to metadata for the file.
+    private final PathHierarchy<FileMetadataSnapshot> metadata = new PathHierarchy<FileMetadataSnapshot>();
     // Maps from interned absolute path for a file to metadata for the file.
-    private final Map<String, FileMetadataSnapshot> metadata = new ConcurrentHashMap<String, FileMetadataSnapshot>();
     private final Map<String, FileMetadataSnapshot> cacheMetadata = new ConcurrentHashMap<String, FileMetadataSnapshot>();
+    // Tree from absolute path for a file to snapshot for the file.
+    private final PathHierarchy<FileSystemLocationSnapshot> files = new PathHierarchy<FileSystemLocationSnapshot>();
     // Maps from interned absolute path for a file to snapshot for the file.
-    private final Map<String, FileSystemLocationSnapshot> files = new ConcurrentHashMap<String, FileSystemLocationSnapshot>();
     private final Map<String, FileSystemLocationSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSystemLocationSnapshot>();
 
     private final WellKnownFileLocations wellKnownFileLocations;
@@ -83,24 +91,57 @@ public void putMetadata(String absolutePath, FileMetadataSnapshot metadata) {
     public void beforeOutputChange() {
         // When the outputs are generated, throw away all state for files that do not live in an append-only cache.
         // This is intentionally very simple, to be improved later
-        metadata.clear();
-        files.clear();
+        invalidateAll();
     }
 
     public void beforeBuildFinished() {
-        // We throw away all state between builds
-        metadata.clear();
+        beforeBuildFinished(false);
+    }
+
+    /**
+     * Called before the build finishes. When {@code retainState} is true, the state for files that do not live in an append-only cache is kept
+     * for the next build, and the caller is responsible for invalidating it when the file system changes.
+     */
+    public void beforeBuildFinished(boolean retainState) {
+        if (!retainState) {
+            invalidateAll();
+        }
+        // The caches may be cleaned up between builds
         cacheMetadata.clear();
-        files.clear();
         cacheFiles.clear();
     }
 
     public void beforeOutputChange(Iterable<String> affectedOutputPaths) {
         for (String affectedOutputPath : affectedOutputPaths) {
-            metadata.remove(affectedOutputPath);
-            files.remove(affectedOutputPath);
-            cacheMetadata.remove(affectedOutputPath);
-            cacheFiles.remove(affectedOutputPath);
+            invalidate(affectedOutputPath);
         }
     }
+
+    /**
+     * Discards all state for the given path, its descendants and its ancestors.
+     */
+    public void invalidate(String absolutePath) {
+        metadata.invalidate(absolutePath);
+        files.invalidate(absolutePath);
+        cacheMetadata.remove(absolutePath);
+        cacheFiles.remove(absolutePath);
+    }
+
+    /**
+     * Discards all state for files that do not live in an append-only cache.
+     */
+    public void invalidateAll() {
+        metadata.clear();
+        files.clear();
+    }
+
+    /**
+     * Returns the topmost paths for which state for files that do not live in an append-only cache is kept.
+     * Watching these paths for changes is sufficient to invalidate all of the state.
+     */
+    public Set<String> getRetainedRoots() {
+        Set<String> roots = new LinkedHashSet<String>(files.getRootPaths());
+        roots.addAll(metadata.getRootPaths());
+        return roots;
+    }
 }
@@ -35,6 +35,7 @@
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Supplier;
@@ -59,11 +60,18 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
     private final DirectorySnapshotter directorySnapshotter;
 
     public DefaultFileSystemSnapshotter(FileHasher hasher, Interner<String> stringInterner, Stat stat, FileSystemMirror fileSystemMirror, String... defaultExcludes) {
+        this(hasher, stringInterner, stat, fileSystemMirror, (ForkJoinPool) null, defaultExcludes);
+    }
+
+    /**
+     * Creates a snapshotter that walks directories in parallel using the given pool, or sequentially when no pool is given.
+     */
+    public DefaultFileSystemSnapshotter(FileHasher hasher, Interner<String> stringInterner, Stat stat, FileSystemMirror fileSystemMirror, @Nullable ForkJoinPool walkerPool, String... defaultExcludes) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.stat = stat;
         this.fileSystemMirror = fileSystemMirror;
-        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, defaultExcludes);
+        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, walkerPool, defaultExcludes);
     }
 
     @Override
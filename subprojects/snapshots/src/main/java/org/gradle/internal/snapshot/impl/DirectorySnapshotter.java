@@ -17,6 +17,7 @@
 package org.gradle.internal.snapshot.impl;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
 import com.google.common.collect.Lists;
@@ -41,29 +42,57 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 
 public class DirectorySnapshotter {
+    /**
+     * When set, directories are snapshotted in parallel using the pool of a {@link DirectoryWalkerPool}.
+     */
+    public static final String PARALLEL_WALK_PROPERTY = "org.gradle.internal.snapshot.parallel-directory-walk";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DirectorySnapshotter.class);
+    private static final int FILES_PER_TASK = 32;
 
     private final FileHasher hasher;
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
+    private final ForkJoinPool walkerPool;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, String... defaultExcludes) {
+        this(hasher, stringInterner, (ForkJoinPool) null, defaultExcludes);
+    }
+
+    /**
+     * Creates a snapshotter that walks directories and hashes files in parallel using the given pool, or sequentially when no pool is given.
+     * Both produce the same snapshots.
+     */
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, @Nullable ForkJoinPool walkerPool, String... defaultExcludes) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
+        this.walkerPool = walkerPool;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
     }
 
     public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, final AtomicBoolean hasBeenFiltered) {
         try {
             Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes);
+            if (walkerPool != null) {
+                BasicFileAttributes rootAttributes = readDirectoryAttributes(rootPath);
+                if (rootAttributes != null) {
+                    SnapshottingContext context = new SnapshottingContext(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, true);
+                    return walkerPool.invoke(new DirectorySnapshotTask(context, rootPath, null, ImmutableList.of(), rootAttributes.fileKey()));
+                }
+            }
+            PathVisitor visitor = new PathVisitor(new SnapshottingContext(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, false));
             Files.walkFileTree(rootPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
             return visitor.getResult();
         } catch (IOException e) {
@@ -71,6 +100,20 @@ public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable Snapsh
         }
     }
 
+    /**
+     * Returns the attributes of the given path when it is a readable directory, so that the parallel walk can start from it.
+     * The sequential walk is used for anything else, as there is nothing to walk in parallel.
+     */
+    @Nullable
+    private static BasicFileAttributes readDirectoryAttributes(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.isDirectory() ? attributes : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     @VisibleForTesting
     static class DefaultExcludes {
         private final ImmutableSet<String> excludeFileNames;
@@ -144,57 +187,31 @@ public boolean test(String element) {
         }
     }
 
-    private static class PathVisitor implements java.nio.file.FileVisitor<Path> {
-        private final MerkleDirectorySnapshotBuilder builder;
+    private static class SnapshottingContext {
         private final SnapshottingFilter.DirectoryWalkerPredicate predicate;
         private final AtomicBoolean hasBeenFiltered;
         private final FileHasher hasher;
         private final Interner<String> stringInterner;
         private final DefaultExcludes defaultExcludes;
+        private final boolean concurrent;
 
-        public PathVisitor(
+        SnapshottingContext(
             @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
             AtomicBoolean hasBeenFiltered,
             FileHasher hasher,
             Interner<String> stringInterner,
-            DefaultExcludes defaultExcludes
+            DefaultExcludes defaultExcludes,
+            boolean concurrent
         ) {
-            this.builder = MerkleDirectorySnapshotBuilder.sortingRequired();
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
             this.hasher = hasher;
             this.stringInterner = stringInterner;
             this.defaultExcludes = defaultExcludes;
+            this.concurrent = concurrent;
         }
 
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-            String fileName = getFilename(dir);
-            String internedName = intern(fileName);
-            if (builder.isRoot() || shouldVisit(dir, internedName, true, attrs, builder.getRelativePath())) {
-                builder.preVisitDirectory(intern(dir.toString()), internedName);
-                return FileVisitResult.CONTINUE;
-            } else {
-                return FileVisitResult.SKIP_SUBTREE;
-            }
-        }
-
-        private String getFilename(Path dir) {
-            return Optional.ofNullable(dir.getFileName())
-                .map(Object::toString)
-                .orElse("");
-        }
-
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-            String internedName = intern(file.getFileName().toString());
-            if (shouldVisit(file, internedName, false, attrs, builder.getRelativePath())) {
-                builder.visitFile(snapshotFile(file, internedName, attrs));
-            }
-            return FileVisitResult.CONTINUE;
-        }
-
-        private FileSystemLocationSnapshot snapshotFile(Path absoluteFilePath, String internedName, BasicFileAttributes attrs) {
+        FileSystemLocationSnapshot snapshotFile(Path absoluteFilePath, String internedName, BasicFileAttributes attrs) {
             String internedAbsoluteFilePath = intern(absoluteFilePath.toString());
             if (attrs.isRegularFile()) {
                 try {
@@ -208,41 +225,40 @@ private FileSystemLocationSnapshot snapshotFile(Path absoluteFilePath, String in
             return new MissingFileSnapshot(internedAbsoluteFilePath, internedName);
         }
 
-        /** unlistable directories (and maybe some locked files) will stop here */
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        /**
+         * Returns the snapshot for a file or directory that could not be read, or {@code null} when it should be ignored.
+         */
+        @Nullable
+        FileSystemLocationSnapshot snapshotFailedFile(Path file, IOException exc, Iterable<String> relativePath) {
             // File loop exceptions are ignored. When we encounter a loop (via symbolic links), we continue
             // so we include all the other files apart from the loop.
             // This way, we include each file only once.
             if (isNotFileSystemLoopException(exc)) {
                 String internedName = intern(file.getFileName().toString());
                 boolean isDirectory = Files.isDirectory(file);
-                if (shouldVisit(file, internedName, isDirectory, null, builder.getRelativePath())) {
+                if (shouldVisit(file, internedName, isDirectory, null, relativePath)) {
                     LOGGER.info("Could not read file path '{}'.", file);
                     String internedAbsolutePath = intern(file.toString());
-                    builder.visitFile(new MissingFileSnapshot(internedAbsolutePath, internedName));
+                    return new MissingFileSnapshot(internedAbsolutePath, internedName);
                 }
             }
-            return FileVisitResult.CONTINUE;
+            return null;
         }
 
-        @Override
-        public FileVisitResult postVisitDirectory(Path dir, @Nullable IOException exc) {
+        void checkDirectoryWasRead(Path dir, @Nullable IOException exc) {
             // File loop exceptions are ignored. When we encounter a loop (via symbolic links), we continue
             // so we include all the other files apart from the loop.
             // This way, we include each file only once.
             if (isNotFileSystemLoopException(exc)) {
                 throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), exc);
             }
-            builder.postVisitDirectory();
-            return FileVisitResult.CONTINUE;
         }
 
-        private boolean isNotFileSystemLoopException(@Nullable IOException e) {
+        private static boolean isNotFileSystemLoopException(@Nullable IOException e) {
             return e != null && !(e instanceof FileSystemLoopException);
         }
 
-        private String intern(String string) {
+        String intern(String string) {
             return stringInterner.intern(string);
         }
 
@@ -251,7 +267,7 @@ private String intern(String string) {
          * based on the directory/file excludes or the provided filtering predicate.
          * Excludes won't mark this walk as `filtered`, only if the `predicate` rejects any entry.
          **/
-        private boolean shouldVisit(Path path, String internedName, boolean isDirectory, @Nullable BasicFileAttributes attrs, Iterable<String> relativePath) {
+        boolean shouldVisit(Path path, String internedName, boolean isDirectory, @Nullable BasicFileAttributes attrs, Iterable<String> relativePath) {
             if (isDirectory) {
                 if (defaultExcludes.excludeDir(internedName)) {
                     return false;
@@ -263,15 +279,259 @@ private boolean shouldVisit(Path path, String internedName, boolean isDirectory,
             if (predicate == null) {
                 return true;
             }
-            boolean allowed = predicate.test(path, internedName, isDirectory, attrs, relativePath);
+            boolean allowed;
+            if (concurrent) {
+                // The predicate is not required to be thread-safe
+                synchronized (predicate) {
+                    allowed = predicate.test(path, internedName, isDirectory, attrs, relativePath);
+                }
+            } else {
+                allowed = predicate.test(path, internedName, isDirectory, attrs, relativePath);
+            }
             if (!allowed) {
                 hasBeenFiltered.set(true);
             }
             return allowed;
         }
+    }
+
+    private static String getFilename(Path dir) {
+        return Optional.ofNullable(dir.getFileName())
+            .map(Object::toString)
+            .orElse("");
+    }
+
+    private static class PathVisitor implements java.nio.file.FileVisitor<Path> {
+        private final MerkleDirectorySnapshotBuilder builder;
+        private final SnapshottingContext context;
+
+        public PathVisitor(SnapshottingContext context) {
+            this.builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+            this.context = context;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            String fileName = getFilename(dir);
+            String internedName = context.intern(fileName);
+            if (builder.isRoot() || context.shouldVisit(dir, internedName, true, attrs, builder.getRelativePath())) {
+                builder.preVisitDirectory(context.intern(dir.toString()), internedName);
+                return FileVisitResult.CONTINUE;
+            } else {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            String internedName = context.intern(file.getFileName().toString());
+            if (context.shouldVisit(file, internedName, false, attrs, builder.getRelativePath())) {
+                builder.visitFile(context.snapshotFile(file, internedName, attrs));
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        /** unlistable directories (and maybe some locked files) will stop here */
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            FileSystemLocationSnapshot snapshot = context.snapshotFailedFile(file, exc, builder.getRelativePath());
+            if (snapshot != null) {
+                builder.visitFile(snapshot);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, @Nullable IOException exc) {
+            context.checkDirectoryWasRead(dir, exc);
+            builder.postVisitDirectory();
+            return FileVisitResult.CONTINUE;
+        }
 
         public FileSystemLocationSnapshot getResult() {
             return builder.getResult();
         }
     }
+
+    /**
+     * Snapshots a directory, forking a task for each of its subdirectories and for each batch of its files.
+     *
+     * The contents of each directory are listed with a walk that does not descend into subdirectories,
+     * so that excludes, filtering and error handling are the same as for the sequential walk.
+     * As the walk does not detect loops created by symbolic links, the task checks for them itself in the same way.
+     */
+    private static class DirectorySnapshotTask extends RecursiveTask<FileSystemLocationSnapshot> {
+        private final SnapshottingContext context;
+        private final Path dir;
+        @Nullable
+        private final DirectorySnapshotTask parent;
+        private final ImmutableList<String> parentRelativePath;
+        @Nullable
+        private final Object fileKey;
+
+        DirectorySnapshotTask(SnapshottingContext context, Path dir, @Nullable DirectorySnapshotTask parent, ImmutableList<String> parentRelativePath, @Nullable Object fileKey) {
+            this.context = context;
+            this.dir = dir;
+            this.parent = parent;
+            this.parentRelativePath = parentRelativePath;
+            this.fileKey = fileKey;
+        }
+
+        @Override
+        @Nullable
+        protected FileSystemLocationSnapshot compute() {
+            if (wouldLoop()) {
+                return null;
+            }
+            DirectoryListingVisitor listing = new DirectoryListingVisitor();
+            try {
+                Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, listing);
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", dir), e);
+            }
+            if (!listing.visited) {
+                return listing.failedSnapshot;
+            }
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(listing.subdirectories.size() + listing.files.size() / FILES_PER_TASK + 1);
+            tasks.addAll(listing.subdirectories);
+            FileSystemLocationSnapshot[] fileSnapshots = new FileSystemLocationSnapshot[listing.files.size()];
+            for (int start = 0; start < fileSnapshots.length; start += FILES_PER_TASK) {
+                tasks.add(new FileSnapshotTask(context, listing.files, fileSnapshots, start, Math.min(start + FILES_PER_TASK, fileSnapshots.length)));
+            }
+            invokeAll(tasks);
+
+            MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+            builder.preVisitDirectory(listing.absolutePath, listing.name);
+            for (FileSystemLocationSnapshot snapshot : listing.failedEntries) {
+                builder.visitFile(snapshot);
+            }
+            for (FileSystemLocationSnapshot snapshot : fileSnapshots) {
+                builder.visitFile(snapshot);
+            }
+            for (DirectorySnapshotTask subdirectory : listing.subdirectories) {
+                FileSystemLocationSnapshot snapshot = subdirectory.getRawResult();
+                if (snapshot != null) {
+                    builder.visitFile(snapshot);
+                }
+            }
+            builder.postVisitDirectory();
+            return builder.getResult();
+        }
+
+        private boolean wouldLoop() {
+            for (DirectorySnapshotTask ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+                if (fileKey != null && ancestor.fileKey != null) {
+                    if (fileKey.equals(ancestor.fileKey)) {
+                        return true;
+                    }
+                } else {
+                    try {
+                        if (Files.isSameFile(dir, ancestor.dir)) {
+                            return true;
+                        }
+                    } catch (IOException | SecurityException e) {
+                        // Not the same file
+                    }
+                }
+            }
+            return false;
+        }
+
+        private class DirectoryListingVisitor implements java.nio.file.FileVisitor<Path> {
+            private final List<DirectorySnapshotTask> subdirectories = new ArrayList<>();
+            private final List<FileEntry> files = new ArrayList<>();
+            private final List<FileSystemLocationSnapshot> failedEntries = new ArrayList<>();
+            private boolean visited;
+            private FileSystemLocationSnapshot failedSnapshot;
+            private String absolutePath;
+            private String name;
+            private ImmutableList<String> relativePath;
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String internedName = context.intern(getFilename(dir));
+                if (parent == null || context.shouldVisit(dir, internedName, true, attrs, parentRelativePath)) {
+                    visited = true;
+                    absolutePath = context.intern(dir.toString());
+                    name = internedName;
+                    relativePath = parent == null
+                        ? parentRelativePath
+                        : ImmutableList.<String>builderWithExpectedSize(parentRelativePath.size() + 1).addAll(parentRelativePath).add(internedName).build();
+                    return FileVisitResult.CONTINUE;
+                } else {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isDirectory()) {
+                    subdirectories.add(new DirectorySnapshotTask(context, file, DirectorySnapshotTask.this, relativePath, attrs.fileKey()));
+                    return FileVisitResult.CONTINUE;
+                }
+                String internedName = context.intern(file.getFileName().toString());
+                if (context.shouldVisit(file, internedName, false, attrs, relativePath)) {
+                    files.add(new FileEntry(file, internedName, attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                if (visited) {
+                    FileSystemLocationSnapshot snapshot = context.snapshotFailedFile(file, exc, relativePath);
+                    if (snapshot != null) {
+                        failedEntries.add(snapshot);
+                    }
+                } else {
+                    // The directory itself could not be read
+                    failedSnapshot = context.snapshotFailedFile(file, exc, parentRelativePath);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, @Nullable IOException exc) {
+                context.checkDirectoryWasRead(dir, exc);
+                return FileVisitResult.CONTINUE;
+            }
+        }
+    }
+
+    private static class FileSnapshotTask extends RecursiveAction {
+        private final SnapshottingContext context;
+        private final List<FileEntry> files;
+        private final FileSystemLocationSnapshot[] snapshots;
+        private final int start;
+        private final int end;
+
+        FileSnapshotTask(SnapshottingContext context, List<FileEntry> files, FileSystemLocationSnapshot[] snapshots, int start, int end) {
+            this.context = context;
+            this.files = files;
+            this.snapshots = snapshots;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = start; i < end; i++) {
+                FileEntry file = files.get(i);
+                snapshots[i] = context.snapshotFile(file.path, file.internedName, file.attrs);
+            }
+        }
+    }
+
+    private static class FileEntry {
+        private final Path path;
+        private final String internedName;
+        private final BasicFileAttributes attrs;
+
+        FileEntry(Path path, String internedName, BasicFileAttributes attrs) {
+            this.path = path;
+            this.internedName = internedName;
+            this.attrs = attrs;
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Owns the fork-join pool used to snapshot directories in parallel, when parallel directory walking is enabled.
+ *
+ * The pool is dedicated to snapshotting, so that it neither competes with nor is held up by other users of the common pool.
+ * It is shut down when this is closed.
+ */
+public class DirectoryWalkerPool implements Closeable {
+    @Nullable
+    private final ForkJoinPool pool;
+
+    public DirectoryWalkerPool() {
+        this(Boolean.getBoolean(DirectorySnapshotter.PARALLEL_WALK_PROPERTY) ? Runtime.getRuntime().availableProcessors() : 0);
+    }
+
+    /**
+     * Creates a pool with the given number of workers, or no pool at all when the parallelism is 0.
+     */
+    public DirectoryWalkerPool(int parallelism) {
+        this.pool = parallelism > 0 ? new ForkJoinPool(parallelism, DirectoryWalkerPool::newWorker, null, false) : null;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("Directory walker " + worker.getPoolIndex());
+        return worker;
+    }
+
+    /**
+     * Returns the pool to walk directories with, or {@code null} when directories should be walked sequentially.
+     */
+    @Nullable
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A tree of values keyed by absolute path, where each node represents a single path segment.
+ *
+ * Invalidating a path discards the value for the path itself, for all of its descendants and for all of its ancestors,
+ * as the state of an ancestor directory includes the state of the invalidated path.
+ */
+@ThreadSafe
+class PathHierarchy<T> {
+    private final Node<T> root = new Node<T>("");
+
+    @Nullable
+    public T get(String absolutePath) {
+        Node<T> current = root;
+        for (String segment : segments(absolutePath)) {
+            current = current.children.get(segment);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current.value;
+    }
+
+    public void put(String absolutePath, T value) {
+        Node<T> current = root;
+        int length = absolutePath.length();
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || isSeparator(absolutePath.charAt(i))) {
+                if (i > start) {
+                    current = current.getOrCreateChild(absolutePath.substring(start, i), absolutePath.substring(0, i));
+                }
+                start = i + 1;
+            }
+        }
+        current.value = value;
+    }
+
+    public void invalidate(String absolutePath) {
+        List<String> segments = segments(absolutePath);
+        if (segments.isEmpty()) {
+            clear();
+            return;
+        }
+        Node<T> current = root;
+        current.value = null;
+        int last = segments.size() - 1;
+        for (int i = 0; i < last; i++) {
+            current = current.children.get(segments.get(i));
+            if (current == null) {
+                return;
+            }
+            current.value = null;
+        }
+        current.children.remove(segments.get(last));
+    }
+
+    public void clear() {
+        root.value = null;
+        root.children.clear();
+    }
+
+    /**
+     * Returns the paths which have a value and no ancestor with a value.
+     */
+    public List<String> getRootPaths() {
+        List<String> rootPaths = new ArrayList<String>();
+        collectRootPaths(root, rootPaths);
+        return rootPaths;
+    }
+
+    private static <T> void collectRootPaths(Node<T> node, List<String> rootPaths) {
+        for (Node<T> child : node.children.values()) {
+            if (child.value != null) {
+                rootPaths.add(child.path);
+            } else {
+                collectRootPaths(child, rootPaths);
+            }
+        }
+    }
+
+    private static List<String> segments(String absolutePath) {
+        List<String> segments = new ArrayList<String>();
+        int length = absolutePath.length();
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || isSeparator(absolutePath.charAt(i))) {
+                if (i > start) {
+                    segments.add(absolutePath.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    private static boolean isSeparator(char ch) {
+        return ch == '/' || ch == '\\';
+    }
+
+    private static class Node<T> {
+        private final String path;
+        private final Map<String, Node<T>> children = new ConcurrentHashMap<String, Node<T>>();
+        private volatile T value;
+
+        Node(String path) {
+            this.path = path;
+        }
+
+        Node<T> getOrCreateChild(String segment, String childPath) {
+            Node<T> child = children.get(segment);
+            if (child == null) {
+                Node<T> newChild = new Node<T>(childPath);
+                child = children.putIfAbsent(segment, newChild);
+                if (child == null) {
+                    child = newChild;
+                }
+            }
+            return child;
+        }
+    }
+}
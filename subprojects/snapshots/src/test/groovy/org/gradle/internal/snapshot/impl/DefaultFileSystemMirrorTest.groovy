@@ -132,4 +132,71 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getMetadata(file.path) == null
         mirror.getSnapshot(file.path) == null
     }
+
+    def "discards state about ancestors and descendants of a changed file"() {
+        def dir = tmpDir.file("dir")
+        def file = dir.file("sub/a")
+        def sibling = tmpDir.file("other")
+        def dirSnapshot = Stub(FileSystemLocationSnapshot)
+        def fileSnapshot = Stub(RegularFileSnapshot)
+        def siblingSnapshot = Stub(RegularFileSnapshot)
+
+        given:
+        _ * dirSnapshot.absolutePath >> dir.path
+        _ * fileSnapshot.absolutePath >> file.path
+        _ * siblingSnapshot.absolutePath >> sibling.path
+
+        mirror.putSnapshot(dirSnapshot)
+        mirror.putSnapshot(fileSnapshot)
+        mirror.putSnapshot(siblingSnapshot)
+
+        expect:
+        mirror.retainedRoots == [dir.path, sibling.path] as Set
+        mirror.getSnapshot(dir.path) == dirSnapshot
+
+        when:
+        mirror.invalidate(file.path)
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+        mirror.getSnapshot(file.path) == null
+        mirror.getSnapshot(sibling.path) == siblingSnapshot
+
+        when:
+        mirror.putSnapshot(dirSnapshot)
+        mirror.putSnapshot(fileSnapshot)
+        mirror.invalidate(dir.path)
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+        mirror.getSnapshot(file.path) == null
+        mirror.getSnapshot(sibling.path) == siblingSnapshot
+    }
+
+    def "can retain state about a file between builds"() {
+        def file = tmpDir.file("a")
+        def cacheFile = cacheDir.file("some/dir/a")
+        def fileSnapshot = Stub(RegularFileSnapshot)
+        def cacheFileSnapshot = Stub(RegularFileSnapshot)
+
+        given:
+        _ * fileSnapshot.absolutePath >> file.path
+        _ * cacheFileSnapshot.absolutePath >> cacheFile.path
+
+        mirror.putSnapshot(fileSnapshot)
+        mirror.putSnapshot(cacheFileSnapshot)
+
+        when:
+        mirror.beforeBuildFinished(true)
+
+        then:
+        mirror.getSnapshot(file.path) == fileSnapshot
+        mirror.getSnapshot(cacheFile.path) == null
+
+        when:
+        mirror.invalidateAll()
+
+        then:
+        mirror.getSnapshot(file.path) == null
+    }
 }
@@ -37,6 +37,7 @@ import spock.lang.Issue
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.ForkJoinPool
 import java.util.concurrent.atomic.AtomicBoolean
 
 @UsesNativeServices
@@ -216,6 +217,119 @@ class DirectorySnapshotterTest extends Specification {
         pipe.delete()
     }
 
+    def "parallel walk produces the same snapshot as the sequential walk"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        10.times { dir ->
+            10.times { file ->
+                rootDir.file("dir${dir}/file${file}.txt").text = "content ${dir} ${file}"
+                rootDir.file("dir${dir}/nested/file${file}.html").text = "nested ${dir} ${file}"
+            }
+        }
+        rootDir.file("dir0/.git/config").createFile()
+        rootDir.file("dir1/empty").createDir()
+        def patterns = new PatternSet()
+        patterns.exclude("dir2/**", "**/*.html")
+        def predicate = directoryWalkerPredicate(patterns)
+        def walkerPool = new DirectoryWalkerPool(4)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), walkerPool.pool, DirectoryScanner.getDefaultExcludes())
+        def sequentialSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), (ForkJoinPool) null, DirectoryScanner.getDefaultExcludes())
+
+        when:
+        def sequentialFiltered = new AtomicBoolean(false)
+        def sequential = sequentialSnapshotter.snapshot(rootDir.absolutePath, filter ? predicate : null, sequentialFiltered)
+        def parallelFiltered = new AtomicBoolean(false)
+        def parallel = parallelSnapshotter.snapshot(rootDir.absolutePath, filter ? predicate : null, parallelFiltered)
+
+        then:
+        parallel.hash == sequential.hash
+        parallelFiltered.get() == sequentialFiltered.get()
+        visitedPaths(parallel) == visitedPaths(sequential)
+
+        cleanup:
+        walkerPool.close()
+
+        where:
+        filter << [false, true]
+    }
+
+    @Requires(TestPrecondition.SYMLINKS)
+    def "parallel walk ignores symbolic link loops"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        rootDir.file("a/file.txt").text = "content"
+        rootDir.file("a/b/file.txt").text = "nested content"
+        rootDir.file("a/b/toRoot").createLink(rootDir)
+        rootDir.file("a/toSelf").createLink(rootDir.file("a"))
+        def walkerPool = new DirectoryWalkerPool(4)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), walkerPool.pool)
+
+        when:
+        def sequential = directorySnapshotter.snapshot(rootDir.absolutePath, null, new AtomicBoolean(false))
+        def parallel = parallelSnapshotter.snapshot(rootDir.absolutePath, null, new AtomicBoolean(false))
+
+        then:
+        visitedPaths(parallel) == visitedPaths(sequential)
+        visitedPaths(parallel) == [
+            rootDir,
+            rootDir.file("a"),
+            rootDir.file("a/b"),
+            rootDir.file("a/b/file.txt"),
+            rootDir.file("a/file.txt")
+        ]*.absolutePath
+        parallel.hash == sequential.hash
+
+        cleanup:
+        walkerPool.close()
+    }
+
+    @Requires(TestPrecondition.FILE_PERMISSIONS)
+    def "parallel walk snapshots unreadable files and directories as missing"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        rootDir.file('readableFile').createFile()
+        rootDir.file('readableDirectory/file').createFile()
+        def unreadableFile = rootDir.file('unreadableFile').createFile().makeUnreadable()
+        def unreadableDirectory = rootDir.file('unreadableDirectory').createDir().makeUnreadable()
+        def nestedUnreadableDirectory = rootDir.file('readableDirectory/unreadableDirectory').createDir().makeUnreadable()
+        def walkerPool = new DirectoryWalkerPool(4)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), walkerPool.pool)
+
+        when:
+        def sequential = directorySnapshotter.snapshot(rootDir.absolutePath, null, new AtomicBoolean(false))
+        def snapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, null, new AtomicBoolean(false))
+
+        then:
+        assert snapshot instanceof DirectorySnapshot
+        snapshot.children.collectEntries { [it.name, it.class] } == [
+            readableDirectory: DirectorySnapshot,
+            readableFile: RegularFileSnapshot,
+            unreadableDirectory: MissingFileSnapshot,
+            unreadableFile: MissingFileSnapshot
+        ]
+        def readableDirectory = snapshot.children.find { it.name == 'readableDirectory' } as DirectorySnapshot
+        readableDirectory.children.collectEntries { [it.name, it.class] } == [
+            file: RegularFileSnapshot,
+            unreadableDirectory: MissingFileSnapshot
+        ]
+        snapshot.hash == sequential.hash
+
+        cleanup:
+        [unreadableFile, unreadableDirectory, nestedUnreadableDirectory]*.makeReadable()
+        walkerPool.close()
+    }
+
+    private static List<String> visitedPaths(FileSystemLocationSnapshot snapshot) {
+        def visited = []
+        snapshot.accept(new RelativePathTrackingVisitor() {
+            @Override
+            void visit(String absolutePath, Deque<String> relativePath) {
+                visited << absolutePath
+            }
+        })
+        return visited
+    }
+
     def "default excludes are correctly parsed"() {
         def defaultExcludes = new DirectorySnapshotter.DefaultExcludes(DirectoryScanner.getDefaultExcludes())
 
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.report;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
+import org.gradle.api.internal.tasks.testing.junit.result.BinaryResultBackedTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputAssociation;
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.api.tasks.testing.TestResult;
+import org.gradle.internal.operations.TestBuildOperationExecutor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time and the peak heap usage of generating the HTML and JUnit XML test reports from the binary results of a large test run.
+ *
+ * The synthetic results contain 500k tests spread over 5000 classes, where every hundredth test fails and every tenth test writes some output.
+ * {@code generateReportsLikeTestTask} generates both reports from one provider backed by the binary results, the way a test task does.
+ * The peak heap usage during report generation is reported as the {@code peakHeapBytes} secondary result, and should stay roughly the same
+ * when the number of tests grows.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TestReportGenerationBenchmark {
+
+    @Param({"5000"})
+    int classes;
+
+    @Param({"100"})
+    int testsPerClass;
+
+    private File tmpDir;
+    private File resultsDir;
+    private File reportDir;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PeakHeap {
+        public long peakHeapBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void createResults() throws IOException {
+        tmpDir = Files.createTempDirectory("test-report").toFile();
+        resultsDir = new File(tmpDir, "results");
+        reportDir = new File(tmpDir, "report");
+        resultsDir.mkdirs();
+        reportDir.mkdirs();
+
+        List<TestClassResult> results = new ArrayList<TestClassResult>(classes);
+        TestOutputStore.Writer outputWriter = new TestOutputStore(resultsDir).writer();
+        long id = 0;
+        for (int i = 0; i < classes; i++) {
+            long classId = ++id;
+            TestClassResult classResult = new TestClassResult(classId, "org.gradle.package" + i % 50 + ".SomeTest" + i, 0);
+            for (int j = 0; j < testsPerClass; j++) {
+                long testId = ++id;
+                boolean failed = j % 100 == 99;
+                TestMethodResult methodResult = new TestMethodResult(testId, "test" + j, failed ? TestResult.ResultType.FAILURE : TestResult.ResultType.SUCCESS, 10, 10);
+                if (failed) {
+                    methodResult.addFailure("expected: <1> but was: <2>", "java.lang.AssertionError: expected: <1> but was: <2>\n\tat SomeTest.test" + j + "(SomeTest.java:" + j + ")", "java.lang.AssertionError");
+                }
+                if (j % 10 == 0) {
+                    outputWriter.onOutput(classId, testId, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "output of test " + j + "\n"));
+                }
+                classResult.add(methodResult);
+            }
+            results.add(classResult);
+        }
+        outputWriter.close();
+        new TestResultSerializer(resultsDir).write(results);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteResults() throws IOException {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Benchmark
+    public void generateHtmlReport(PeakHeap peakHeap) {
+        List<MemoryPoolMXBean> pools = resetPeakHeap();
+        new DefaultTestReport(new TestBuildOperationExecutor()).generateReport(new BinaryResultBackedTestResultsProvider(resultsDir), reportDir);
+        peakHeap.peakHeapBytes = peakHeap(pools);
+    }
+
+    @Benchmark
+    public void generateXmlReport(PeakHeap peakHeap) {
+        List<MemoryPoolMXBean> pools = resetPeakHeap();
+        new Binary2JUnitXmlReportGenerator(reportDir, new BinaryResultBackedTestResultsProvider(resultsDir), TestOutputAssociation.WITH_SUITE, new TestBuildOperationExecutor(), "localhost").generate();
+        peakHeap.peakHeapBytes = peakHeap(pools);
+    }
+
+    @Benchmark
+    public void generateReportsLikeTestTask(PeakHeap peakHeap) throws IOException {
+        List<MemoryPoolMXBean> pools = resetPeakHeap();
+        TestBuildOperationExecutor buildOperationExecutor = new TestBuildOperationExecutor();
+        BinaryResultBackedTestResultsProvider resultsProvider = new BinaryResultBackedTestResultsProvider(resultsDir);
+        try {
+            new Binary2JUnitXmlReportGenerator(reportDir, resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationExecutor, "localhost").generate();
+            new DefaultTestReport(buildOperationExecutor).generateReport(resultsProvider, reportDir);
+        } finally {
+            resultsProvider.close();
+        }
+        peakHeap.peakHeapBytes = peakHeap(pools);
+    }
+
+    private static List<MemoryPoolMXBean> resetPeakHeap() {
+        System.gc();
+        List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private static long peakHeap(List<MemoryPoolMXBean> pools) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
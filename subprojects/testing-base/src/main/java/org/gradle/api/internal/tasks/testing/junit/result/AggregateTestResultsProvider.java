@@ -63,6 +63,7 @@ public void execute(final TestClassResult classResult) {
                 }
             });
         }
+        // All classes are collected before visiting any, so the output of each class can be located while the visit is in progress
         for (OverlaidIdProxyingTestClassResult classResult : aggregatedTestResults.values()) {
             visitor.execute(classResult);
         }
@@ -34,9 +34,16 @@
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Binary2JUnitXmlReportGenerator {
 
+    /**
+     * The number of classes whose XML files are written together, which bounds the number of class results held in memory.
+     */
+    private static final int CLASS_BATCH_SIZE = 100;
+
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
     private JUnitXmlResultWriter xmlWriter;
@@ -74,22 +81,38 @@ public BuildOperationDescriptor.Builder description() {
             }
         });
 
-        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
+        // Write the files in batches while the results are read, so that only a bounded number of classes is held in memory at a time
+        final List<TestClassResult> batch = new ArrayList<TestClassResult>(CLASS_BATCH_SIZE);
+        testResultsProvider.visitClasses(new Action<TestClassResult>() {
             @Override
-            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
-                testResultsProvider.visitClasses(new Action<TestClassResult>() {
-                    @Override
-                    public void execute(final TestClassResult result) {
-                        final File reportFile = new File(testResultsDir, getReportFileName(result));
-                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
-                    }
-                });
+            public void execute(final TestClassResult result) {
+                batch.add(result);
+                if (batch.size() == CLASS_BATCH_SIZE) {
+                    writeReportFiles(batch);
+                }
             }
         });
+        writeReportFiles(batch);
 
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
     }
 
+    private void writeReportFiles(final List<TestClassResult> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
+            @Override
+            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
+                for (TestClassResult result : batch) {
+                    final File reportFile = new File(testResultsDir, getReportFileName(result));
+                    queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
+                }
+            }
+        });
+        batch.clear();
+    }
+
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
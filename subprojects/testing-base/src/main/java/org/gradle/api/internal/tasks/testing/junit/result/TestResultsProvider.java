@@ -24,7 +24,8 @@
 
 public interface TestResultsProvider extends Closeable {
     /**
-     * Writes the output of the given test to the given writer. This method must be called only after {@link #visitClasses(org.gradle.api.Action)}.
+     * Writes the output of the given test to the given writer. This method must be called only after the class has been visited by {@link #visitClasses(org.gradle.api.Action)}.
+     * It may be called while the visit is still in progress, including from the visitor itself and from other threads.
      *
      * Writes all output for the test class.
      */
@@ -33,14 +34,15 @@ public interface TestResultsProvider extends Closeable {
     void writeNonTestOutput(long id, TestOutputEvent.Destination destination, Writer writer);
 
     /**
-     * Writes the output of the given test to the given writer. This method must be called only after {@link #visitClasses(org.gradle.api.Action)}.
+     * Writes the output of the given test to the given writer. This method must be called only after the class has been visited by {@link #visitClasses(org.gradle.api.Action)}.
+     * It may be called while the visit is still in progress, including from the visitor itself and from other threads.
      *
      * Write all output for the given test case name of the test class.
      */
     void writeTestOutput(long classId, long testId, TestOutputEvent.Destination destination, Writer writer);
 
     /**
-     * Visits the results of each test class, in no specific order. Each class is visited exactly once.
+     * Visits the results of each test class, in no specific order. Each class is visited exactly once, and its output can be read as soon as it is visited.
      */
     void visitClasses(Action<? super TestClassResult> visitor);
 
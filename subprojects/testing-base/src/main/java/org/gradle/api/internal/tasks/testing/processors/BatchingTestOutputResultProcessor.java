@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+
+/**
+ * A {@link TestResultProcessor} which coalesces consecutive output events of the same test and destination into a single event,
+ * so that tests which log heavily do not produce one message per line. Pending output is forwarded before any other event,
+ * when it grows beyond a fixed size and whenever {@link #flush()} is called. This processor is thread-safe.
+ */
+public class BatchingTestOutputResultProcessor implements TestResultProcessor {
+    static final int MAX_BATCH_LENGTH = 32 * 1024;
+
+    private final TestResultProcessor delegate;
+    private final StringBuilder pendingOutput = new StringBuilder();
+    private Object pendingTestId;
+    private TestOutputEvent.Destination pendingDestination;
+
+    public BatchingTestOutputResultProcessor(TestResultProcessor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void started(TestDescriptorInternal test, TestStartEvent event) {
+        flushPending();
+        delegate.started(test, event);
+    }
+
+    @Override
+    public synchronized void completed(Object testId, TestCompleteEvent event) {
+        flushPending();
+        delegate.completed(testId, event);
+    }
+
+    @Override
+    public synchronized void output(Object testId, TestOutputEvent event) {
+        String message = event.getMessage();
+        if (pendingTestId != null && (!pendingTestId.equals(testId) || pendingDestination != event.getDestination() || pendingOutput.length() + message.length() > MAX_BATCH_LENGTH)) {
+            flushPending();
+        }
+        if (message.length() >= MAX_BATCH_LENGTH) {
+            delegate.output(testId, event);
+            return;
+        }
+        pendingTestId = testId;
+        pendingDestination = event.getDestination();
+        pendingOutput.append(message);
+    }
+
+    @Override
+    public synchronized void failure(Object testId, Throwable result) {
+        flushPending();
+        delegate.failure(testId, result);
+    }
+
+    /**
+     * Forwards any output that has been received but not yet forwarded.
+     */
+    public synchronized void flush() {
+        flushPending();
+    }
+
+    private void flushPending() {
+        if (pendingTestId == null) {
+            return;
+        }
+        DefaultTestOutputEvent event = new DefaultTestOutputEvent(pendingDestination, pendingOutput.toString());
+        Object testId = pendingTestId;
+        pendingTestId = null;
+        pendingDestination = null;
+        pendingOutput.setLength(0);
+        delegate.output(testId, event);
+    }
+}
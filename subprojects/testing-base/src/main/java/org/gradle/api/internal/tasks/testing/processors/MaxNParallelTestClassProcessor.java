@@ -27,16 +27,29 @@
 import org.gradle.internal.dispatch.DispatchException;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
  * processors.
+ *
+ * When durations of test classes from a previous run are available, the test classes are instead collected until this processor is stopped, and
+ * then assigned longest first to the processor with the least total duration assigned so far. Each processor receives its test classes in the
+ * order in which they were given to this processor. Test classes without a previous duration are assumed to take the average duration.
+ *
+ * When started eagerly, the first processor is created and started when processing starts, so that it can get ready while test classes are being detected.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
+    private final boolean startEagerly;
+    private final List<TestClassRunInfo> pendingTestClasses = new ArrayList<TestClassRunInfo>();
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
@@ -46,9 +59,15 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private volatile boolean stoppedNow;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap(), false);
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousDurations, boolean startEagerly) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
+        this.startEagerly = startEagerly;
     }
 
     @Override
@@ -56,6 +75,9 @@ public void startProcessing(TestResultProcessor resultProcessor) {
         // Create a processor that processes events in its own thread
         resultProcessorActor = actorFactory.createActor(resultProcessor);
         this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+        if (startEagerly) {
+            startProcessor();
+        }
     }
 
     @Override
@@ -64,24 +86,84 @@ public void processTestClass(TestClassRunInfo testClass) {
             return;
         }
 
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            rawProcessors.add(processor);
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
+        if (!previousDurations.isEmpty()) {
+            pendingTestClasses.add(testClass);
+            return;
+        }
+
+        if (pos == processors.size()) {
+            startProcessor();
         }
+        TestClassProcessor processor = processors.get(pos);
+        pos = (pos + 1) % maxProcessors;
         processor.processTestClass(testClass);
     }
 
+    private void startProcessor() {
+        TestClassProcessor processor = factory.create();
+        rawProcessors.add(processor);
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+    }
+
+    private void processPendingTestClasses() {
+        final long averageDuration = averagePreviousDuration();
+        List<TestClassRunInfo> longestFirst = new ArrayList<TestClassRunInfo>(pendingTestClasses);
+        Collections.sort(longestFirst, new Comparator<TestClassRunInfo>() {
+            @Override
+            public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+                return Long.compare(estimateDuration(o2, averageDuration), estimateDuration(o1, averageDuration));
+            }
+        });
+
+        int processorCount = Math.min(maxProcessors, pendingTestClasses.size());
+        long[] assignedDurations = new long[processorCount];
+        Map<TestClassRunInfo, Integer> assignments = new IdentityHashMap<TestClassRunInfo, Integer>();
+        for (TestClassRunInfo testClass : longestFirst) {
+            int leastBusy = 0;
+            for (int i = 1; i < processorCount; i++) {
+                if (assignedDurations[i] < assignedDurations[leastBusy]) {
+                    leastBusy = i;
+                }
+            }
+            assignedDurations[leastBusy] += estimateDuration(testClass, averageDuration);
+            assignments.put(testClass, leastBusy);
+        }
+
+        while (processors.size() < processorCount) {
+            startProcessor();
+        }
+        for (TestClassRunInfo testClass : pendingTestClasses) {
+            if (stoppedNow) {
+                return;
+            }
+            processors.get(assignments.get(testClass)).processTestClass(testClass);
+        }
+        pendingTestClasses.clear();
+    }
+
+    private long estimateDuration(TestClassRunInfo testClass, long averageDuration) {
+        Long duration = previousDurations.get(testClass.getTestClassName());
+        // Count every test class, so that test classes without a duration are still spread over the processors
+        return Math.max(1, duration == null ? averageDuration : duration);
+    }
+
+    private long averagePreviousDuration() {
+        long total = 0;
+        for (Long duration : previousDurations.values()) {
+            total += duration;
+        }
+        return total / previousDurations.size();
+    }
+
     @Override
     public void stop() {
+        if (!pendingTestClasses.isEmpty() && !stoppedNow) {
+            processPendingTestClasses();
+        }
         try {
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
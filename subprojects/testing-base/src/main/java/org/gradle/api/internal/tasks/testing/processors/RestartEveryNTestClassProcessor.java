@@ -24,19 +24,32 @@
 public class RestartEveryNTestClassProcessor implements TestClassProcessor {
     private final Factory<TestClassProcessor> factory;
     private final long restartEvery;
+    private final boolean startEagerly;
     private long testCount;
     private TestResultProcessor resultProcessor;
     private volatile boolean stoppedNow;
     private volatile TestClassProcessor processor;
 
     public RestartEveryNTestClassProcessor(Factory<TestClassProcessor> factory, long restartEvery) {
+        this(factory, restartEvery, false);
+    }
+
+    /**
+     * @param startEagerly whether to create the first processor when processing starts, rather than when the first test class is received.
+     */
+    public RestartEveryNTestClassProcessor(Factory<TestClassProcessor> factory, long restartEvery, boolean startEagerly) {
         this.factory = factory;
         this.restartEvery = restartEvery;
+        this.startEagerly = startEagerly;
     }
 
     @Override
     public void startProcessing(TestResultProcessor resultProcessor) {
         this.resultProcessor = resultProcessor;
+        if (startEagerly) {
+            processor = factory.create();
+            processor.startProcessing(resultProcessor);
+        }
     }
 
     @Override
@@ -96,4 +96,11 @@ public TestResult addTest(String testName, String testDisplayName, long duration
         results.add(test);
         return addTest(test);
     }
+
+    /**
+     * Drops the individual test results once the page for this class has been rendered. Failed and ignored tests are still referenced by the summary.
+     */
+    void discardTestResults() {
+        results.clear();
+    }
 }
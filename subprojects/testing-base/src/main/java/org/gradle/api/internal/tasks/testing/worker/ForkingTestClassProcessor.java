@@ -52,9 +52,17 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private TestResultProcessor resultProcessor;
     private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
     private DocumentationRegistry documentationRegistry;
+    private final boolean startEagerly;
     private boolean stoppedNow;
 
     public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry) {
+        this(parentWorkerLease, workerFactory, processorFactory, options, classPath, buildConfigAction, moduleRegistry, documentationRegistry, false);
+    }
+
+    /**
+     * @param startEagerly whether to start the worker process when processing starts, rather than when the first test class is received.
+     */
+    public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry, boolean startEagerly) {
         this.currentWorkerLease = parentWorkerLease;
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
@@ -63,11 +71,22 @@ public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLea
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.documentationRegistry = documentationRegistry;
+        this.startEagerly = startEagerly;
     }
 
     @Override
     public void startProcessing(TestResultProcessor resultProcessor) {
         this.resultProcessor = resultProcessor;
+        if (startEagerly) {
+            lock.lock();
+            try {
+                if (!stoppedNow) {
+                    startWorkerProcess();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
     @Override
@@ -78,25 +97,28 @@ public void processTestClass(TestClassRunInfo testClass) {
                 return;
             }
 
-            if (remoteProcessor == null) {
-                completion = currentWorkerLease.startChild();
-                try {
-                    remoteProcessor = forkProcess();
-                } catch (RuntimeException e) {
-                    completion.leaseFinish();
-                    completion = null;
-                    throw e;
-                }
-            }
-
+            startWorkerProcess();
             remoteProcessor.processTestClass(testClass);
         } finally {
             lock.unlock();
         }
     }
 
+    private void startWorkerProcess() {
+        if (remoteProcessor == null) {
+            completion = currentWorkerLease.startChild();
+            try {
+                remoteProcessor = forkProcess();
+            } catch (RuntimeException e) {
+                completion.leaseFinish();
+                completion = null;
+                throw e;
+            }
+        }
+    }
+
     RemoteTestClassProcessor forkProcess() {
-        WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory));
+        WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory, Boolean.getBoolean(TestWorker.BATCH_OUTPUT_EVENTS_PROPERTY)));
         builder.setBaseName("Gradle Test Executor");
         builder.setImplementationClasspath(getTestWorkerImplementationClasspath());
         builder.applicationClasspath(classPath);
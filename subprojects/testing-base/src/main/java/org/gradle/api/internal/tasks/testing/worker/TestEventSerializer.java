@@ -200,9 +200,9 @@ private static class DefaultTestDescriptorSerializer implements Serializer<Defau
         public DefaultTestDescriptor read(Decoder decoder) throws Exception {
             Object id = idSerializer.read(decoder);
             String className = decoder.readString();
-            String classDisplayName = decoder.readString();
+            String classDisplayName = readDisplayName(decoder, className);
             String name = decoder.readString();
-            String displayName = decoder.readString();
+            String displayName = readDisplayName(decoder, name);
             return new DefaultTestDescriptor(id, className, name, classDisplayName, displayName);
         }
 
@@ -210,9 +210,25 @@ public DefaultTestDescriptor read(Decoder decoder) throws Exception {
         public void write(Encoder encoder, DefaultTestDescriptor value) throws Exception {
             idSerializer.write(encoder, (CompositeIdGenerator.CompositeId) value.getId());
             encoder.writeString(value.getClassName());
-            encoder.writeString(value.getClassDisplayName());
+            writeDisplayName(encoder, value.getClassDisplayName(), value.getClassName());
             encoder.writeString(value.getName());
-            encoder.writeString(value.getDisplayName());
+            writeDisplayName(encoder, value.getDisplayName(), value.getName());
+        }
+
+        // Display names usually equal the names they describe, so only send them when they differ
+        private static String readDisplayName(Decoder decoder, String name) throws Exception {
+            if (decoder.readBoolean()) {
+                return name;
+            }
+            return decoder.readString();
+        }
+
+        private static void writeDisplayName(Encoder encoder, String displayName, String name) throws Exception {
+            boolean sameAsName = displayName != null && displayName.equals(name);
+            encoder.writeBoolean(sameAsName);
+            if (!sameAsName) {
+                encoder.writeString(displayName);
+            }
         }
     }
 
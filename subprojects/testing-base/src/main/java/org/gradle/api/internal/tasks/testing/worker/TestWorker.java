@@ -21,11 +21,13 @@
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.processors.BatchingTestOutputResultProcessor;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.actor.ActorFactory;
 import org.gradle.internal.actor.internal.DefaultActorFactory;
 import org.gradle.internal.concurrent.DefaultExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedScheduledExecutor;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.dispatch.ContextClassLoaderProxy;
 import org.gradle.internal.id.CompositeIdGenerator;
@@ -42,17 +44,34 @@
 import java.io.Serializable;
 import java.security.AccessControlException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable, Stoppable {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
+    /**
+     * When set to {@code true}, consecutive output events of a test are sent to the build process as a single message.
+     */
+    public static final String BATCH_OUTPUT_EVENTS_PROPERTY = "org.gradle.internal.testing.batch-output-events";
+    private static final long OUTPUT_FLUSH_INTERVAL_MILLIS = 100;
     private final WorkerTestClassProcessorFactory factory;
+    private final boolean batchOutputEvents;
     private CountDownLatch completed;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private BatchingTestOutputResultProcessor batchingResultProcessor;
+    private ManagedScheduledExecutor outputFlusher;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
+        this(factory, false);
+    }
+
+    /**
+     * @param batchOutputEvents whether to coalesce consecutive output events of a test before sending them to the build process.
+     */
+    public TestWorker(WorkerTestClassProcessorFactory factory, boolean batchOutputEvents) {
         this.factory = factory;
+        this.batchOutputEvents = batchOutputEvents;
     }
 
     @Override
@@ -84,6 +103,9 @@ public void execute(final WorkerProcessContext workerProcessContext) {
                     LOGGER.warn("Unable to reset SecurityManager. Continuing anyway...", e);
                 }
             }
+            if (outputFlusher != null) {
+                outputFlusher.stop();
+            }
             testServices.close();
         }
     }
@@ -100,7 +122,21 @@ private void startReceivingTests(WorkerProcessContext workerProcessContext, Serv
 
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializers(TestEventSerializer.create());
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        TestResultProcessor remoteResultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        if (batchOutputEvents) {
+            final BatchingTestOutputResultProcessor batchingResultProcessor = new BatchingTestOutputResultProcessor(remoteResultProcessor);
+            this.batchingResultProcessor = batchingResultProcessor;
+            outputFlusher = testServices.get(ExecutorFactory.class).createScheduled("Test output flusher", 1);
+            outputFlusher.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    batchingResultProcessor.flush();
+                }
+            }, OUTPUT_FLUSH_INTERVAL_MILLIS, OUTPUT_FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            this.resultProcessor = batchingResultProcessor;
+        } else {
+            this.resultProcessor = remoteResultProcessor;
+        }
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
@@ -129,7 +165,14 @@ public void processTestClass(final TestClassRunInfo testClass) {
     public void stop() {
         Thread.currentThread().setName("Test worker");
         try {
-            processor.stop();
+            try {
+                processor.stop();
+            } finally {
+                if (batchingResultProcessor != null) {
+                    // Forward output produced after the last test event, e.g. by shutdown code
+                    batchingResultProcessor.flush();
+                }
+            }
         } finally {
             completed.countDown();
             // Clean the interrupted status
@@ -41,7 +41,7 @@
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
-import org.gradle.api.internal.tasks.testing.junit.result.InMemoryTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.BinaryResultBackedTestResultsProvider;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputAssociation;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
@@ -494,8 +494,10 @@ public void executeTests() {
         }
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
+        // The reports are generated from the binary results, so don't keep the results of all test classes in memory while generating them
+        results.clear();
 
-        createReporting(results, testOutputStore);
+        createReporting(binaryResultsDir);
 
         if (testCountLogger.hadFailures()) {
             handleTestFailures();
@@ -525,8 +527,8 @@ protected List<String> getNoMatchingTestErrorReasons() {
         return reasons;
     }
 
-    private void createReporting(Map<String, TestClassResult> results, TestOutputStore testOutputStore) {
-        TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore);
+    private void createReporting(File binaryResultsDir) {
+        TestResultsProvider testResultsProvider = new BinaryResultBackedTestResultsProvider(binaryResultsDir);
 
         try {
             if (testReporter == null) {
@@ -92,6 +92,27 @@ class AggregateTestResultsProviderTest extends Specification {
         1 * provider2.writeAllOutput(12, TestOutputEvent.Destination.StdOut, writer)
     }
 
+    def "maps class id to original id when fetching test output while visiting classes"() {
+        def writer = Stub(Writer)
+        def class1 = Stub(TestClassResult) {
+            getId() >> 12
+            getClassName() >> 'class-1'
+        }
+        def class2 = Stub(TestClassResult) {
+            getId() >> 13
+            getClassName() >> 'class-2'
+        }
+
+        when:
+        provider.visitClasses({ TestClassResult r -> provider.writeAllOutput(r.id, TestOutputEvent.Destination.StdOut, writer) } as Action)
+
+        then:
+        1 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
+        1 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
+        1 * provider1.writeAllOutput(12, TestOutputEvent.Destination.StdOut, writer)
+        1 * provider2.writeAllOutput(13, TestOutputEvent.Destination.StdOut, writer)
+    }
+
     def "processes duplicate classes"() {
         def action = Mock(Action)
         def class1 = Stub(TestClassResult) {
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import spock.lang.Specification
+
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
+
+class BatchingTestOutputResultProcessorTest extends Specification {
+    def delegate = Mock(TestResultProcessor)
+    def processor = new BatchingTestOutputResultProcessor(delegate)
+
+    def "coalesces consecutive output of the same test and destination"() {
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "line 1\n"))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "line 2\n"))
+
+        then:
+        0 * delegate._
+
+        when:
+        processor.flush()
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdOut, "line 1\nline 2\n"))
+        0 * delegate._
+
+        when:
+        processor.flush()
+
+        then:
+        0 * delegate._
+    }
+
+    def "forwards pending output when the test or destination changes"() {
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "out\n"))
+        processor.output("1", new DefaultTestOutputEvent(StdErr, "err\n"))
+        processor.output("2", new DefaultTestOutputEvent(StdErr, "other\n"))
+        processor.flush()
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdOut, "out\n"))
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdErr, "err\n"))
+
+        then:
+        1 * delegate.output("2", new DefaultTestOutputEvent(StdErr, "other\n"))
+        0 * delegate._
+    }
+
+    def "forwards pending output before other events"() {
+        def completeEvent = new TestCompleteEvent(100L)
+        def failure = new RuntimeException()
+
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "before failure\n"))
+        processor.failure("1", failure)
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "before completion\n"))
+        processor.completed("1", completeEvent)
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdOut, "before failure\n"))
+
+        then:
+        1 * delegate.failure("1", failure)
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdOut, "before completion\n"))
+
+        then:
+        1 * delegate.completed("1", completeEvent)
+        0 * delegate._
+    }
+
+    def "does not grow a batch beyond the maximum length"() {
+        def line = "x" * (BatchingTestOutputResultProcessor.MAX_BATCH_LENGTH.intdiv(2) + 1)
+        def large = "y" * BatchingTestOutputResultProcessor.MAX_BATCH_LENGTH
+
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, line))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, line))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, large))
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdOut, line))
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdOut, line))
+
+        then:
+        1 * delegate.output("1", new DefaultTestOutputEvent(StdOut, large))
+        0 * delegate._
+    }
+}
@@ -168,6 +168,81 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.processTestClass(test)
     }
 
+    def "starts first processor when processing starts when started eagerly"() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [:], true)
+        TestClassRunInfo test = Mock()
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        when:
+        processor.startProcessing(resultProcessor)
+
+        then:
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+
+        when:
+        processor.processTestClass(test)
+
+        then:
+        0 * factory.create()
+        1 * asyncProcessor1.processTestClass(test)
+
+        when:
+        processor.processTestClass(test)
+
+        then:
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.processTestClass(test)
+    }
+
+    def "assigns test classes longest first to the least busy processor when previous durations are available"() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [A: 100L, B: 60L, C: 50L, D: 10L], false)
+        def tests = ["A", "B", "C", "D"].collect { name -> Stub(TestClassRunInfo) { getTestClassName() >> name } }
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        tests.each { processor.processTestClass(it) }
+
+        then:
+        0 * factory.create()
+
+        when:
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor1.processTestClass(tests[0])
+        1 * asyncProcessor2.processTestClass(tests[1])
+        1 * asyncProcessor2.processTestClass(tests[2])
+        1 * asyncProcessor1.processTestClass(tests[3])
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+    }
+
     def "stopNow propagates to factory created processors"() {
         TestClassRunInfo test = Mock()
         TestClassProcessor processor1 = Mock()
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import spock.lang.Specification
+
+class RunAffectedOnlyTestClassProcessorTest extends Specification {
+    TestClassProcessor delegate = Mock()
+    TestResultProcessor testResultProcessor = Mock()
+
+    def 'only affected test classes and their nested classes are passed to delegate'() {
+        given:
+        def processor = new RunAffectedOnlyTestClassProcessor(['org.Class2'] as Set, delegate)
+
+        when:
+        processor.startProcessing(testResultProcessor)
+        ['org.Class1', 'org.Class2', 'org.Class2$Nested', 'org.Class3'].each { processor.processTestClass(new DefaultTestClassRunInfo(it)) }
+        processor.stop()
+
+        then:
+        1 * delegate.startProcessing(testResultProcessor)
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('org.Class2'))
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('org.Class2$Nested'))
+        1 * delegate.stop()
+        0 * delegate._
+    }
+}
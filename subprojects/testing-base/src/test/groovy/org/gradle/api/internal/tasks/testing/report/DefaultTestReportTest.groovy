@@ -466,6 +466,49 @@ class DefaultTestReportTest extends Specification {
         numThreads << [ 1, 4 ]
     }
 
+    @Unroll
+    def "generates report for more classes than are rendered in a single batch - #numThreads parallel thread(s)"() {
+        given:
+        report = reportWithMaxThreads(numThreads)
+        def testTestResults = buildResults {
+            250.times { i ->
+                testClassResult("org.gradle.many.Class" + i) {
+                    testcase("test") {
+                        duration = 1000;
+                        if (i % 50 == 0) {
+                            failure("something failed", "this is the failure\nat someClass")
+                        }
+                    }
+                }
+            }
+        }
+
+        when:
+        report.generateReport(testTestResults, reportDir)
+
+        then:
+        def index = results(indexFile)
+        index.assertHasTests(250)
+        index.assertHasFailures(5)
+        index.assertHasFailedTest('classes/org.gradle.many.Class200', 'test')
+
+        def packageFile = results(reportDir.file('packages/org.gradle.many.html'))
+        packageFile.assertHasTests(250)
+        packageFile.assertHasFailedTest('../classes/org.gradle.many.Class0', 'test')
+
+        def firstClassFile = results(reportDir.file('classes/org.gradle.many.Class0.html'))
+        firstClassFile.assertHasTests(1)
+        firstClassFile.testDetails('test').assertFailed()
+        firstClassFile.assertHasFailure('test', 'something failed\n\nthis is the failure\nat someClass\n')
+
+        def lastClassFile = results(reportDir.file('classes/org.gradle.many.Class249.html'))
+        lastClassFile.assertHasTests(1)
+        lastClassFile.testDetails('test').assertPassed()
+
+        where:
+        numThreads << [ 1, 4 ]
+    }
+
     def reportsOnClassesInDefaultPackage() {
         given:
         report = reportWithMaxThreads(1)
@@ -98,7 +98,25 @@ class TestEventSerializerTest extends SerializerSpec {
         result instanceof DefaultTestDescriptor
         result.id == id
         result.className == "some-class"
+        result.classDisplayName == "some-class"
         result.name == "some-test"
+        result.displayName == "some-test"
+    }
+
+    def "serializes DefaultTestDescriptor with display names"() {
+        def id = new CompositeIdGenerator.CompositeId(1L, 2L)
+        def descriptor = new DefaultTestDescriptor(id, "some-class", "some-test", "Some class", "some-class")
+
+        when:
+        def result = serialize(descriptor)
+
+        then:
+        result instanceof DefaultTestDescriptor
+        result.id == id
+        result.className == "some-class"
+        result.classDisplayName == "Some class"
+        result.name == "some-test"
+        result.displayName == "some-class"
     }
 
     def "serializes DefaultTestMethodDescriptor"() {
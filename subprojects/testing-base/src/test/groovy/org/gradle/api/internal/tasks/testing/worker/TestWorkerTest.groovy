@@ -17,10 +17,12 @@
 
 package org.gradle.api.internal.tasks.testing.worker
 
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.api.tasks.testing.TestOutputEvent
 import org.gradle.internal.remote.ObjectConnection
 import org.gradle.internal.service.DefaultServiceRegistry
 import org.gradle.internal.time.Clock
@@ -76,4 +78,30 @@ public class TestWorkerTest extends ConcurrentSpec {
         1 * processor.processTestClass(test)
         1 * processor.stop()
     }
+
+    def forwardsBatchedOutputProducedWhileStoppingBeforeSignallingCompletion() {
+        def batchingWorker = new TestWorker(factory, true)
+        def event = new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "shutdown\n")
+        TestResultProcessor workerResultProcessor = null
+
+        when:
+        async {
+            batchingWorker.execute(workerContext)
+        }
+
+        then:
+        1 * factory.create(_) >> processor
+        1 * connection.addOutgoing(TestResultProcessor) >> resultProcessor
+        1 * connection.connect() >> {
+            start {
+                batchingWorker.startProcessing()
+                batchingWorker.stop()
+            }
+        }
+        1 * processor.startProcessing(_) >> { TestResultProcessor p -> workerResultProcessor = p }
+        1 * processor.stop() >> { workerResultProcessor.output("<test-id>", event) }
+
+        then:
+        1 * resultProcessor.output("<test-id>", event)
+    }
 }
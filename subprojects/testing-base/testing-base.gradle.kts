@@ -59,6 +59,8 @@ dependencies {
     testFixturesImplementation(testLibrary("jsoup"))
 
     integTestRuntimeOnly(project(":testingJunitPlatform"))
+
+    jmhImplementation(testFixtures(project(":core")))
 }
 
 gradlebuildJava {
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.apache.commons.lang.StringUtils;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.FileOperations;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.CachingClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.CachingClasspathEntrySnapshotter;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshot;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshotter;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.IoActions;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.StreamHasher;
+import org.gradle.internal.snapshot.FileSystemSnapshotter;
+import org.gradle.internal.snapshot.ValueSnapshotter;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.gradle.internal.FileUtils.hasExtension;
+
+/**
+ * Selects the test classes affected by the changes to the inputs of a test task since its last successful execution.
+ *
+ * The classes that changed on the test runtime classpath are expanded to their transitive dependents, using the same class dependency analysis
+ * as incremental Java compilation. Any other change, like a changed resource, a changed input property, a changed class that declares
+ * constants or a class that every other class depends on, selects all test classes.
+ */
+public class AffectedTestClassesSelector {
+    /**
+     * When set, the test task only executes the test classes affected by class changes since its last successful execution, and the test classes that failed in its previous execution.
+     * Dependencies that are not visible in the byte code, for example through reflection, are not taken into account.
+     */
+    public static final String INCREMENTAL_TEST_EXECUTION_PROPERTY = "org.gradle.unsafe.incremental-test-execution";
+
+    private static final Logger LOGGER = Logging.getLogger(AffectedTestClassesSelector.class);
+
+    private final File stateFile;
+    private final String taskPath;
+    private final ClasspathEntrySnapshotter classpathEntrySnapshotter;
+    private final FileSystemSnapshotter fileSystemSnapshotter;
+    private final FileHasher fileHasher;
+    private final StreamHasher streamHasher;
+    private final FileOperations fileOperations;
+    private final ValueSnapshotter valueSnapshotter;
+    private TestInputsSnapshot currentSnapshot;
+
+    public AffectedTestClassesSelector(File stateFile, String taskPath, GeneralCompileCaches compileCaches, StringInterner interner, FileSystemSnapshotter fileSystemSnapshotter, FileHasher fileHasher, StreamHasher streamHasher, FileOperations fileOperations, ValueSnapshotter valueSnapshotter) {
+        this.stateFile = stateFile;
+        this.taskPath = taskPath;
+        this.fileSystemSnapshotter = fileSystemSnapshotter;
+        this.fileHasher = fileHasher;
+        this.streamHasher = streamHasher;
+        this.fileOperations = fileOperations;
+        this.valueSnapshotter = valueSnapshotter;
+        CachingClassDependenciesAnalyzer analyzer = new CachingClassDependenciesAnalyzer(new DefaultClassDependenciesAnalyzer(interner), compileCaches.getClassAnalysisCache());
+        this.classpathEntrySnapshotter = new CachingClasspathEntrySnapshotter(fileHasher, streamHasher, fileSystemSnapshotter, analyzer, compileCaches.getClasspathEntrySnapshotCache(), fileOperations);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(INCREMENTAL_TEST_EXECUTION_PROPERTY);
+    }
+
+    /**
+     * Snapshots the current inputs and returns the names of the top-level classes affected by the changes since the last successful execution,
+     * including the previously failed test classes, or {@code null} when all test classes need to be executed.
+     *
+     * The snapshot of the last successful execution is discarded, so that a failed or interrupted execution is followed by a full one.
+     */
+    @Nullable
+    public Set<String> selectAffectedClasses(Iterable<File> classpath, Iterable<File> inputFiles, Map<String, Object> inputProperties, Set<String> previousFailedTestClasses) {
+        TestInputsSnapshot previousSnapshot = readPreviousSnapshot();
+        GFileUtils.deleteQuietly(stateFile);
+
+        Map<String, ClasspathEntrySnapshot> classpathSnapshots = new LinkedHashMap<String, ClasspathEntrySnapshot>();
+        for (File entry : classpath) {
+            classpathSnapshots.put(entry.getAbsolutePath(), classpathEntrySnapshotter.createSnapshot(entry));
+        }
+        currentSnapshot = snapshot(classpathSnapshots, inputFiles, inputProperties, previousSnapshot);
+
+        if (previousSnapshot == null) {
+            return executeAll("there is no previous successful execution");
+        }
+        if (!previousSnapshot.getInputsHash().equals(currentSnapshot.getInputsHash())) {
+            return executeAll("an input property or a file that is not on the classpath has changed");
+        }
+        if (!new ArrayList<String>(previousSnapshot.getEntries().keySet()).equals(new ArrayList<String>(currentSnapshot.getEntries().keySet()))) {
+            return executeAll("the classpath has changed");
+        }
+
+        Set<String> changedClasses = new HashSet<String>();
+        for (Map.Entry<String, TestInputsSnapshot.EntrySnapshot> entry : currentSnapshot.getEntries().entrySet()) {
+            TestInputsSnapshot.EntrySnapshot current = entry.getValue();
+            TestInputsSnapshot.EntrySnapshot previous = previousSnapshot.getEntries().get(entry.getKey());
+            if (current.getHash().equals(previous.getHash())) {
+                continue;
+            }
+            if (!current.getResourcesHash().equals(previous.getResourcesHash())) {
+                return executeAll("a resource in '" + entry.getKey() + "' has changed");
+            }
+            Set<String> changedEntryClasses = new HashSet<String>();
+            collectChangedClasses(previous.getClassHashes(), current.getClassHashes(), changedEntryClasses);
+            collectChangedClasses(current.getClassHashes(), previous.getClassHashes(), changedEntryClasses);
+            for (String className : changedEntryClasses) {
+                // Constants are inlined by the compiler, so the classes using them are not visible as dependents
+                if (previous.getConstantClasses().contains(className) || current.getConstantClasses().contains(className)) {
+                    return executeAll("the changed class " + className + " declares constants");
+                }
+            }
+            changedClasses.addAll(changedEntryClasses);
+        }
+
+        DependentsSet affected = collectDependents(changedClasses, classpathSnapshots.values());
+        if (affected.isDependencyToAll()) {
+            return executeAll(affected.getDescription() == null ? "a changed class is a dependency of all classes" : affected.getDescription());
+        }
+        Set<String> affectedClasses = new HashSet<String>();
+        for (String className : affected.getDependentClasses()) {
+            affectedClasses.add(StringUtils.substringBefore(className, "$"));
+        }
+        for (String className : previousFailedTestClasses) {
+            affectedClasses.add(StringUtils.substringBefore(className, "$"));
+        }
+        LOGGER.info("{} classes of {} are affected by {} changed classes since the last successful execution.", affectedClasses.size(), taskPath, changedClasses.size());
+        return affectedClasses;
+    }
+
+    /**
+     * Records the inputs of this execution once it has completed successfully.
+     */
+    public void executionSucceeded() {
+        if (currentSnapshot == null) {
+            return;
+        }
+        try {
+            currentSnapshot.write(stateFile);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    @Nullable
+    private Set<String> executeAll(String reason) {
+        LOGGER.info("Executing all test classes of {} because {}.", taskPath, reason);
+        return null;
+    }
+
+    @Nullable
+    private TestInputsSnapshot readPreviousSnapshot() {
+        try {
+            return TestInputsSnapshot.read(stateFile);
+        } catch (IOException e) {
+            LOGGER.debug("Could not read the previous inputs of {}.", taskPath, e);
+            return null;
+        }
+    }
+
+    private TestInputsSnapshot snapshot(Map<String, ClasspathEntrySnapshot> classpathSnapshots, Iterable<File> inputFiles, Map<String, Object> inputProperties, @Nullable TestInputsSnapshot previousSnapshot) {
+        Map<String, TestInputsSnapshot.EntrySnapshot> entries = new LinkedHashMap<String, TestInputsSnapshot.EntrySnapshot>();
+        for (Map.Entry<String, ClasspathEntrySnapshot> entry : classpathSnapshots.entrySet()) {
+            HashCode hash = entry.getValue().getHash();
+            TestInputsSnapshot.EntrySnapshot previous = previousSnapshot == null ? null : previousSnapshot.getEntries().get(entry.getKey());
+            // The resources only need to be hashed when the entry has changed
+            HashCode resourcesHash = previous != null && previous.getHash().equals(hash) ? previous.getResourcesHash() : hashResources(new File(entry.getKey()));
+            entries.put(entry.getKey(), new TestInputsSnapshot.EntrySnapshot(hash, resourcesHash, entry.getValue().getHashes(), constantClasses(entry.getValue())));
+        }
+
+        Hasher hasher = Hashing.newHasher();
+        for (Map.Entry<String, Object> property : new TreeMap<String, Object>(inputProperties).entrySet()) {
+            hasher.putString(property.getKey());
+            // Snapshot the value the same way the task's input properties are fingerprinted, as toString() is not necessarily stable
+            valueSnapshotter.snapshot(property.getValue()).appendToHasher(hasher);
+        }
+        for (File inputFile : inputFiles) {
+            if (!isOnClasspath(inputFile, classpathSnapshots.keySet())) {
+                hasher.putString(inputFile.getAbsolutePath());
+                hasher.putHash(fileSystemSnapshotter.snapshot(inputFile).getHash());
+            }
+        }
+        return new TestInputsSnapshot(hasher.hash(), entries);
+    }
+
+    private static Set<String> constantClasses(ClasspathEntrySnapshot snapshot) {
+        Set<String> constantClasses = new HashSet<String>();
+        for (String className : snapshot.getHashes().keySet()) {
+            if (!snapshot.getData().getClassAnalysis().getConstants(className).isEmpty()) {
+                constantClasses.add(className);
+            }
+        }
+        return constantClasses;
+    }
+
+    private static boolean isOnClasspath(File file, Set<String> classpath) {
+        String path = file.getAbsolutePath();
+        for (String entry : classpath) {
+            if (path.equals(entry) || path.startsWith(entry + File.separator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private HashCode hashResources(File entry) {
+        final SortedMap<String, HashCode> resources = new TreeMap<String, HashCode>();
+        if (entry.isDirectory()) {
+            fileOperations.fileTree(entry).visit(new EmptyFileVisitor() {
+                @Override
+                public void visitFile(FileVisitDetails fileDetails) {
+                    if (!fileDetails.getName().endsWith(".class")) {
+                        resources.put(fileDetails.getPath(), fileHasher.hash(fileDetails.getFile(), fileDetails.getSize(), fileDetails.getLastModified()));
+                    }
+                }
+            });
+        } else if (hasExtension(entry, ".jar")) {
+            fileOperations.zipTree(entry).visit(new EmptyFileVisitor() {
+                @Override
+                public void visitFile(FileVisitDetails fileDetails) {
+                    if (!fileDetails.getName().endsWith(".class")) {
+                        InputStream inputStream = fileDetails.open();
+                        try {
+                            resources.put(fileDetails.getPath(), streamHasher.hash(inputStream));
+                        } finally {
+                            IoActions.closeQuietly(inputStream);
+                        }
+                    }
+                }
+            });
+        } else if (entry.isFile()) {
+            resources.put(entry.getName(), fileHasher.hash(entry));
+        }
+
+        Hasher hasher = Hashing.newHasher();
+        for (Map.Entry<String, HashCode> resource : resources.entrySet()) {
+            hasher.putString(resource.getKey());
+            hasher.putHash(resource.getValue());
+        }
+        return hasher.hash();
+    }
+
+    private static void collectChangedClasses(Map<String, HashCode> classHashes, Map<String, HashCode> otherClassHashes, Set<String> changedClasses) {
+        for (Map.Entry<String, HashCode> classHash : classHashes.entrySet()) {
+            if (!classHash.getValue().equals(otherClassHashes.get(classHash.getKey()))) {
+                changedClasses.add(classHash.getKey());
+            }
+        }
+    }
+
+    private static DependentsSet collectDependents(Set<String> changedClasses, Iterable<ClasspathEntrySnapshot> classpathSnapshots) {
+        Set<String> dependentClasses = new HashSet<String>(changedClasses);
+        Deque<String> queue = new ArrayDeque<String>(changedClasses);
+        while (!queue.isEmpty()) {
+            String className = queue.poll();
+            for (ClasspathEntrySnapshot classpathSnapshot : classpathSnapshots) {
+                DependentsSet dependents = classpathSnapshot.getData().getClassAnalysis().getDependents(className);
+                if (dependents.isDependencyToAll()) {
+                    return dependents;
+                }
+                for (String dependent : dependents.getDependentClasses()) {
+                    if (dependentClasses.add(dependent)) {
+                        queue.add(dependent);
+                    }
+                }
+            }
+        }
+        return DependentsSet.dependentClasses(dependentClasses);
+    }
+}
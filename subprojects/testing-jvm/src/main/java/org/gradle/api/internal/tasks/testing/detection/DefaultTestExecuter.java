@@ -30,6 +30,7 @@
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.PatternMatchTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.RunAffectedOnlyTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RunPreviousFailedFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
@@ -43,12 +44,24 @@
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
+    /**
+     * When set, test classes are balanced over the test workers using the durations of the previous run, instead of being assigned round-robin.
+     */
+    public static final String DURATION_AWARE_DISTRIBUTION_PROPERTY = "org.gradle.internal.testing.duration-aware-distribution";
+
+    /**
+     * When set, the first test worker process is started while test classes are being detected, rather than when the first test class has been detected.
+     * This starts a worker process even when no test classes are detected.
+     */
+    public static final String EAGER_WORKER_START_PROPERTY = "org.gradle.internal.testing.eager-worker-start";
 
     private static final Logger LOGGER = Logging.getLogger(DefaultTestExecuter.class);
 
@@ -83,23 +96,27 @@ public void execute(final JvmTestExecutionSpec testExecutionSpec, TestResultProc
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
         final WorkerLeaseRegistry.WorkerLease currentWorkerLease = workerLeaseRegistry.getCurrentWorkerLease();
         final Set<File> classpath = ImmutableSet.copyOf(testExecutionSpec.getClasspath());
+        final boolean startEagerly = Boolean.getBoolean(EAGER_WORKER_START_PROPERTY);
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             @Override
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(currentWorkerLease, workerFactory, testInstanceFactory, testExecutionSpec.getJavaForkOptions(),
-                    classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry);
+                    classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry, startEagerly);
             }
         };
         final Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
             @Override
             public TestClassProcessor create() {
-                return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testExecutionSpec.getForkEvery());
+                return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testExecutionSpec.getForkEvery(), startEagerly);
             }
         };
-        processor =
-            new PatternMatchTestClassProcessor(testFilter,
-                new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
-                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory)));
+        TestClassProcessor schedulingProcessor =
+            new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
+                new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory, getPreviousTestClassDurations(testExecutionSpec), startEagerly));
+        if (testExecutionSpec.getAffectedClasses() != null) {
+            schedulingProcessor = new RunAffectedOnlyTestClassProcessor(testExecutionSpec.getAffectedClasses(), schedulingProcessor);
+        }
+        processor = new PatternMatchTestClassProcessor(testFilter, schedulingProcessor);
 
         final FileTree testClassFiles = testExecutionSpec.getCandidateClassFiles();
 
@@ -125,6 +142,13 @@ public void stopNow() {
         }
     }
 
+    private static Map<String, Long> getPreviousTestClassDurations(JvmTestExecutionSpec testExecutionSpec) {
+        if (!Boolean.getBoolean(DURATION_AWARE_DISTRIBUTION_PROPERTY)) {
+            return Collections.emptyMap();
+        }
+        return testExecutionSpec.getPreviousTestClassDurations();
+    }
+
     private int getMaxParallelForks(JvmTestExecutionSpec testExecutionSpec) {
         int maxParallelForks = testExecutionSpec.getMaxParallelForks();
         if (maxParallelForks > maxWorkerCount) {
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The inputs of a test task as seen by incremental test execution: a hash of everything that is not a class on the test runtime classpath,
+ * and the hashes of the classes of each classpath entry, along with the classes that declare constants.
+ */
+class TestInputsSnapshot {
+    private static final int VERSION = 2;
+    private static final HashCodeSerializer HASH_CODE_SERIALIZER = new HashCodeSerializer();
+
+    private final HashCode inputsHash;
+    private final Map<String, EntrySnapshot> entries;
+
+    TestInputsSnapshot(HashCode inputsHash, Map<String, EntrySnapshot> entries) {
+        this.inputsHash = inputsHash;
+        this.entries = entries;
+    }
+
+    /**
+     * The hash of the input properties and of the input files that are not on the classpath.
+     */
+    HashCode getInputsHash() {
+        return inputsHash;
+    }
+
+    /**
+     * The snapshots of the classpath entries, keyed by absolute path, in classpath order.
+     */
+    Map<String, EntrySnapshot> getEntries() {
+        return entries;
+    }
+
+    static class EntrySnapshot {
+        private final HashCode hash;
+        private final HashCode resourcesHash;
+        private final Map<String, HashCode> classHashes;
+        private final Set<String> constantClasses;
+
+        EntrySnapshot(HashCode hash, HashCode resourcesHash, Map<String, HashCode> classHashes, Set<String> constantClasses) {
+            this.hash = hash;
+            this.resourcesHash = resourcesHash;
+            this.classHashes = classHashes;
+            this.constantClasses = constantClasses;
+        }
+
+        /**
+         * The hash of the complete content of the entry.
+         */
+        HashCode getHash() {
+            return hash;
+        }
+
+        /**
+         * The hash of all content of the entry except its class files.
+         */
+        HashCode getResourcesHash() {
+            return resourcesHash;
+        }
+
+        Map<String, HashCode> getClassHashes() {
+            return classHashes;
+        }
+
+        /**
+         * The classes of the entry that declare constants, which the compiler may have inlined into other classes.
+         */
+        Set<String> getConstantClasses() {
+            return constantClasses;
+        }
+    }
+
+    /**
+     * Reads the snapshot from the given file, returning {@code null} when there is no readable snapshot.
+     */
+    @Nullable
+    static TestInputsSnapshot read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            Decoder decoder = new KryoBackedDecoder(inputStream);
+            if (decoder.readSmallInt() != VERSION) {
+                return null;
+            }
+            HashCode inputsHash = HASH_CODE_SERIALIZER.read(decoder);
+            int entryCount = decoder.readSmallInt();
+            Map<String, EntrySnapshot> entries = new LinkedHashMap<String, EntrySnapshot>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                String path = decoder.readString();
+                HashCode hash = HASH_CODE_SERIALIZER.read(decoder);
+                HashCode resourcesHash = HASH_CODE_SERIALIZER.read(decoder);
+                int classCount = decoder.readSmallInt();
+                Map<String, HashCode> classHashes = new HashMap<String, HashCode>(classCount);
+                for (int j = 0; j < classCount; j++) {
+                    classHashes.put(decoder.readString(), HASH_CODE_SERIALIZER.read(decoder));
+                }
+                int constantClassCount = decoder.readSmallInt();
+                Set<String> constantClasses = new HashSet<String>(constantClassCount);
+                for (int j = 0; j < constantClassCount; j++) {
+                    constantClasses.add(decoder.readString());
+                }
+                entries.put(path, new EntrySnapshot(hash, resourcesHash, classHashes, constantClasses));
+            }
+            return new TestInputsSnapshot(inputsHash, entries);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    void write(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+            encoder.writeSmallInt(VERSION);
+            write(encoder);
+            encoder.flush();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void write(Encoder encoder) throws IOException {
+        HASH_CODE_SERIALIZER.write(encoder, inputsHash);
+        encoder.writeSmallInt(entries.size());
+        for (Map.Entry<String, EntrySnapshot> entry : entries.entrySet()) {
+            encoder.writeString(entry.getKey());
+            HASH_CODE_SERIALIZER.write(encoder, entry.getValue().getHash());
+            HASH_CODE_SERIALIZER.write(encoder, entry.getValue().getResourcesHash());
+            encoder.writeSmallInt(entry.getValue().getClassHashes().size());
+            for (Map.Entry<String, HashCode> classHash : entry.getValue().getClassHashes().entrySet()) {
+                encoder.writeString(classHash.getKey());
+                HASH_CODE_SERIALIZER.write(encoder, classHash.getValue());
+            }
+            encoder.writeSmallInt(entry.getValue().getConstantClasses().size());
+            for (String constantClass : entry.getValue().getConstantClasses()) {
+                encoder.writeString(constantClass);
+            }
+        }
+    }
+}
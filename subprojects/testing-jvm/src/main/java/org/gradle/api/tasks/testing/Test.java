@@ -23,16 +23,21 @@
 import org.gradle.api.Incubating;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.NonNullApi;
+import org.gradle.api.Task;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCache;
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
 import org.gradle.api.internal.tasks.testing.JvmTestExecutionSpec;
 import org.gradle.api.internal.tasks.testing.TestExecuter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
+import org.gradle.api.internal.tasks.testing.detection.AffectedTestClassesSelector;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
@@ -59,9 +64,13 @@
 import org.gradle.internal.Actions;
 import org.gradle.internal.Cast;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.jvm.UnsupportedJavaRuntimeException;
 import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.snapshot.FileSystemSnapshotter;
+import org.gradle.internal.snapshot.ValueSnapshotter;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.process.CommandLineArgumentProvider;
@@ -75,7 +84,7 @@
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -149,11 +158,18 @@ public class Test extends AbstractTestTask implements JavaForkOptions, PatternFi
     private long forkEvery;
     private int maxParallelForks = 1;
     private TestExecuter<JvmTestExecutionSpec> testExecuter;
+    private AffectedTestClassesSelector affectedTestClassesSelector;
 
     public Test() {
         patternSet = getFileResolver().getPatternSetFactory().create();
         forkOptions = getForkOptionsFactory().newJavaForkOptions();
         forkOptions.setEnableAssertions(true);
+        getOutputs().doNotCacheIf("Incremental test execution may only run part of the test classes", new Spec<Task>() {
+            @Override
+            public boolean isSatisfiedBy(Task task) {
+                return isIncrementalTestExecutionUsed();
+            }
+        });
     }
 
     @Inject
@@ -576,25 +592,42 @@ public Test copyTo(JavaForkOptions target) {
     protected JvmTestExecutionSpec createTestExecutionSpec() {
         JavaForkOptions javaForkOptions = getForkOptionsFactory().newJavaForkOptions();
         copyTo(javaForkOptions);
-        return new JvmTestExecutionSpec(getTestFramework(), getClasspath(), getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses());
-    }
-
-    private Set<String> getPreviousFailedTestClasses() {
+        final Set<String> previousFailedTestClasses = new HashSet<String>();
+        final Map<String, Long> previousTestClassDurations = new HashMap<String, Long>();
         TestResultSerializer serializer = new TestResultSerializer(getBinResultsDir());
         if (serializer.isHasResults()) {
-            final Set<String> previousFailedTestClasses = new HashSet<String>();
             serializer.read(new Action<TestClassResult>() {
                 @Override
                 public void execute(TestClassResult testClassResult) {
                     if (testClassResult.getFailuresCount() > 0) {
                         previousFailedTestClasses.add(testClassResult.getClassName());
                     }
+                    Long duration = previousTestClassDurations.get(testClassResult.getClassName());
+                    previousTestClassDurations.put(testClassResult.getClassName(), duration == null ? testClassResult.getDuration() : duration + testClassResult.getDuration());
                 }
             });
-            return previousFailedTestClasses;
-        } else {
-            return Collections.emptySet();
         }
+        Set<String> affectedClasses = null;
+        if (isIncrementalTestExecutionUsed()) {
+            affectedTestClassesSelector = createAffectedTestClassesSelector();
+            affectedClasses = affectedTestClassesSelector.selectAffectedClasses(getClasspath(), getInputs().getFiles(), getInputs().getProperties(), previousFailedTestClasses);
+        }
+        return new JvmTestExecutionSpec(getTestFramework(), getClasspath(), getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), previousFailedTestClasses, previousTestClassDurations, affectedClasses);
+    }
+
+    private boolean isIncrementalTestExecutionUsed() {
+        return AffectedTestClassesSelector.isEnabled() && getFilter().getIncludePatterns().isEmpty() && ((DefaultTestFilter) getFilter()).getCommandLineIncludePatterns().isEmpty();
+    }
+
+    private AffectedTestClassesSelector createAffectedTestClassesSelector() {
+        return new AffectedTestClassesSelector(new File(getTemporaryDir(), "incremental-test-inputs.bin"), getPath(),
+            getServices().get(GeneralCompileCaches.class),
+            getServices().get(StringInterner.class),
+            getServices().get(FileSystemSnapshotter.class),
+            getServices().get(FileHasher.class),
+            getServices().get(StreamHasher.class),
+            getServices().get(FileOperations.class),
+            getServices().get(ValueSnapshotter.class));
     }
 
     @Override
@@ -611,8 +644,12 @@ public void executeTests() {
 
         try {
             super.executeTests();
+            if (affectedTestClassesSelector != null) {
+                affectedTestClassesSelector.executionSucceeded();
+            }
         } finally {
             testFramework = null;
+            affectedTestClassesSelector = null;
         }
     }
 
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysisCache
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshotCache
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SnapshotTestUtil
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+class AffectedTestClassesSelectorTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def mainClasses = tmpDir.createDir("main")
+    def testClasses = tmpDir.createDir("test")
+    def stateFile = tmpDir.file("state.bin")
+    def classAnalysisCache = Stub(ClassAnalysisCache) {
+        get(_, _) >> { key, Factory factory -> factory.create() }
+    }
+    def classpathEntrySnapshotCache = Stub(ClasspathEntrySnapshotCache) {
+        get(_, _ as Factory) >> { key, Factory factory -> factory.create() }
+    }
+    def compileCaches = Stub(GeneralCompileCaches) {
+        getClassAnalysisCache() >> classAnalysisCache
+        getClasspathEntrySnapshotCache() >> classpathEntrySnapshotCache
+    }
+
+    def setup() {
+        classFile(mainClasses, "org/Base")
+        classFile(mainClasses, "org/Other")
+        classFile(testClasses, "org/BaseTest", "org/Base")
+        classFile(testClasses, "org/BaseTest\$Nested", "org/Base")
+        classFile(testClasses, "org/OtherTest", "org/Other")
+    }
+
+    def "selects all test classes without a previous successful execution"() {
+        expect:
+        select() == null
+    }
+
+    def "selects no test classes when nothing has changed"() {
+        given:
+        succeed()
+
+        expect:
+        select() == [] as Set
+    }
+
+    def "selects test classes that depend on changed classes"() {
+        given:
+        succeed()
+        classFile(mainClasses, "org/Base", "java/lang/Object", "changed")
+
+        expect:
+        select() == ["org.Base", "org.BaseTest"] as Set
+    }
+
+    def "selects changed test classes"() {
+        given:
+        succeed()
+        classFile(testClasses, "org/OtherTest", "org/Other", "changed")
+
+        expect:
+        select() == ["org.OtherTest"] as Set
+    }
+
+    def "selects previously failed test classes"() {
+        given:
+        succeed()
+
+        expect:
+        select([:], ["org.OtherTest"] as Set) == ["org.OtherTest"] as Set
+    }
+
+    def "selects all test classes when a resource has changed"() {
+        given:
+        mainClasses.file("org/resource.txt").text = "content"
+        succeed()
+        mainClasses.file("org/resource.txt").text = "changed"
+
+        expect:
+        select() == null
+    }
+
+    def "selects all test classes when a constant has changed"() {
+        given:
+        classFile(mainClasses, "org/Other", "java/lang/Object", null, 1)
+        succeed()
+        classFile(mainClasses, "org/Other", "java/lang/Object", null, 2)
+
+        expect:
+        select() == null
+    }
+
+    def "selects all test classes when a constant has been removed"() {
+        given:
+        classFile(mainClasses, "org/Other", "java/lang/Object", null, 1)
+        succeed()
+        classFile(mainClasses, "org/Other")
+
+        expect:
+        select() == null
+    }
+
+    def "selects all test classes when an input property has changed"() {
+        given:
+        succeed([maxHeapSize: "1g"])
+
+        expect:
+        select([maxHeapSize: "2g"]) == null
+    }
+
+    def "selects no test classes when an input property with an unstable string representation is unchanged"() {
+        given:
+        succeed([options: new UnstableToString(value: "a")])
+
+        expect:
+        select([options: new UnstableToString(value: "a")]) == [] as Set
+    }
+
+    def "selects all test classes after a failed execution"() {
+        given:
+        succeed()
+        select()
+
+        expect:
+        select() == null
+    }
+
+    private void succeed(Map<String, Object> inputProperties = [:]) {
+        def selector = selector()
+        selector.selectAffectedClasses([mainClasses, testClasses], [mainClasses, testClasses], inputProperties, [] as Set)
+        selector.executionSucceeded()
+    }
+
+    private Set<String> select(Map<String, Object> inputProperties = [:], Set<String> previousFailedTestClasses = [] as Set) {
+        return selector().selectAffectedClasses([mainClasses, testClasses], [mainClasses, testClasses], inputProperties, previousFailedTestClasses)
+    }
+
+    private AffectedTestClassesSelector selector() {
+        // A new file system snapshotter for every execution, as the snapshots are retained until the end of the build
+        return new AffectedTestClassesSelector(stateFile, ":test", compileCaches, new StringInterner(), TestFiles.fileSystemSnapshotter(), TestFiles.fileHasher(), TestFiles.streamHasher(), TestFiles.fileOperations(tmpDir.testDirectory), SnapshotTestUtil.valueSnapshotter())
+    }
+
+    private static void classFile(TestFile dir, String name, String superName = "java/lang/Object", String field = null, Integer constant = null) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null)
+        if (field != null) {
+            writer.visitField(Opcodes.ACC_PRIVATE, field, "I", null, null).visitEnd()
+        }
+        if (constant != null) {
+            writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "VALUE", "I", null, constant).visitEnd()
+        }
+        writer.visitEnd()
+        dir.file(name + ".class").bytes = writer.toByteArray()
+    }
+
+    static class UnstableToString implements Serializable {
+        String value
+    }
+}
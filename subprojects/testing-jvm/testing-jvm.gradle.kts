@@ -30,6 +30,7 @@ dependencies {
     implementation(project(":logging"))
     implementation(project(":processServices"))
     implementation(project(":fileCollections"))
+    implementation(project(":snapshots"))
     implementation(project(":jvmServices"))
     implementation(project(":coreApi"))
     implementation(project(":modelCore"))